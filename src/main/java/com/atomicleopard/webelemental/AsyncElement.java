@@ -0,0 +1,418 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.Matcher;
+import org.openqa.selenium.By;
+
+/**
+ * <p>
+ * Performs the operations of an {@link Element} without blocking the calling
+ * thread, returning a {@link Future} of each result. Obtained from
+ * {@link Element#async()}.
+ * </p>
+ * <p>
+ * Operations on Elements of the same browser session are performed one at a
+ * time, in the order they were requested, while operations on different
+ * sessions are performed in parallel. This allows a test driving several
+ * browsers, such as a buyer and a seller in the same scenario, to wait for
+ * all of them at once.
+ * </p>
+ * <p>
+ * The session of an Element is its driver, found from the search context it
+ * was located from or from the elements it selected. When neither is, or
+ * wraps, a driver, such as for an Element created from plain
+ * {@link org.openqa.selenium.WebElement}s, its driver is unknown. All such
+ * Elements are then treated as a single session, so that their operations
+ * keep their order, at the cost of not running in parallel.
+ * </p>
+ * <p>
+ * Failures, including the {@link AssertionError} of a failed
+ * {@link #verify(Matcher)}, are thrown by {@link Future#get()} wrapped in an
+ * {@link java.util.concurrent.ExecutionException}. If the executor rejects an
+ * operation, the operation fails with the {@link RejectedExecutionException},
+ * as do the operations of the same session waiting behind it.
+ * </p>
+ * Example:
+ * 
+ * <pre>
+ * <code>
+ * Future&lt;Element&gt; bought = buyer.async().click();
+ * Future&lt;Element&gt; listed = seller.async().verify(ElementMatchers.text("Sold"), 10, TimeUnit.SECONDS);
+ * bought.get();
+ * listed.get();
+ * </code>
+ * </pre>
+ */
+public class AsyncElement {
+	private static final Executor DEFAULT_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+		private final AtomicInteger count = new AtomicInteger();
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "webelemental-async-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	private static volatile Executor executor = DEFAULT_EXECUTOR;
+	private static final Map<Object, SessionExecutor> sessions = new WeakHashMap<Object, SessionExecutor>();
+
+	private final Element element;
+
+	AsyncElement(Element element) {
+		this.element = element;
+	}
+
+	/**
+	 * @return the Element whose operations are performed by this AsyncElement
+	 */
+	public Element element() {
+		return element;
+	}
+
+	/**
+	 * @param selector
+	 *            specified as a CSS, or jQuery style, selector
+	 * @return the Element returned by {@link Element#find(String)}, with its
+	 *         elements already selected
+	 */
+	public Future<Element> find(final String selector) {
+		return submit(new Callable<Element>() {
+			public Element call() {
+				return element.find(selector).select();
+			}
+		});
+	}
+
+	/**
+	 * @param selector
+	 * @return the Element returned by {@link Element#find(By)}, with its
+	 *         elements already selected
+	 */
+	public Future<Element> find(final By selector) {
+		return submit(new Callable<Element>() {
+			public Element call() {
+				return element.find(selector).select();
+			}
+		});
+	}
+
+	/**
+	 * @return the result of {@link Element#text()}
+	 */
+	public Future<String> text() {
+		return submit(new Callable<String>() {
+			public String call() {
+				return element.text();
+			}
+		});
+	}
+
+	/**
+	 * @param name
+	 *            the name of the attribute to return
+	 * @return the result of {@link Element#attr(String)}
+	 */
+	public Future<String> attr(final String name) {
+		return submit(new Callable<String>() {
+			public String call() {
+				return element.attr(name);
+			}
+		});
+	}
+
+	/**
+	 * @return the Element, once {@link Element#click()} has been performed
+	 */
+	public Future<Element> click() {
+		return submit(new Callable<Element>() {
+			public Element call() {
+				return element.click();
+			}
+		});
+	}
+
+	/**
+	 * @param value
+	 *            the value to assign to all selected elements
+	 * @return the Element, once {@link Element#val(CharSequence)} has been
+	 *         performed
+	 */
+	public Future<Element> val(final CharSequence value) {
+		return submit(new Callable<Element>() {
+			public Element call() {
+				return element.val(value);
+			}
+		});
+	}
+
+	/**
+	 * @param matcher
+	 * @return true if the Element currently matches the given matcher
+	 */
+	public Future<Boolean> matches(final Matcher<Element> matcher) {
+		return submit(new Callable<Boolean>() {
+			public Boolean call() {
+				return matcher.matches(element);
+			}
+		});
+	}
+
+	/**
+	 * Asserts the Element matches the given matcher, as
+	 * <code>element.verify().using(matcher)</code> does, without waiting for
+	 * it to match.
+	 * 
+	 * @param matcher
+	 * @return the Element, once it has been verified
+	 * @see #verify(Matcher, long, TimeUnit)
+	 */
+	public Future<Element> verify(Matcher<Element> matcher) {
+		return verify(matcher, 0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Asserts the Element matches the given matcher, as
+	 * <code>element.verify().within(timeout, unit).using(matcher)</code> does,
+	 * waiting up to the given time for it to match.
+	 * 
+	 * @param matcher
+	 * @param timeout
+	 *            the maximum time to wait for the Element to match
+	 * @param unit
+	 *            the unit of the given timeout
+	 * @return the Element, once it has been verified
+	 */
+	public Future<Element> verify(final Matcher<Element> matcher, final long timeout, final TimeUnit unit) {
+		return submit(new Callable<Element>() {
+			public Element call() {
+				element.verify().within(timeout, unit).using(matcher);
+				return element;
+			}
+		});
+	}
+
+	/**
+	 * Sets the {@link Executor} which performs the operations of all
+	 * AsyncElements. By default a pool of daemon threads is used, growing as
+	 * required.
+	 * 
+	 * @param executor
+	 *            the executor to perform operations with, or null to restore
+	 *            the default
+	 */
+	public static void setExecutor(Executor executor) {
+		AsyncElement.executor = executor == null ? DEFAULT_EXECUTOR : executor;
+	}
+
+	/**
+	 * @return the {@link Executor} which performs the operations of all
+	 *         AsyncElements
+	 */
+	public static Executor getExecutor() {
+		return executor;
+	}
+
+	private <T> Future<T> submit(final Callable<T> callable) {
+		final StackTraceElement[] origin = Metrics.capture();
+		Operation<T> operation = new Operation<T>(new Callable<T>() {
+			public T call() throws Exception {
+				Metrics.origin(origin);
+				try {
+					return callable.call();
+				} finally {
+					Metrics.origin(null);
+				}
+			}
+		});
+		SessionExecutor session;
+		synchronized (sessions) {
+			Object key = element.session();
+			session = sessions.get(key);
+			if (session == null) {
+				session = new SessionExecutor();
+				sessions.put(key, session);
+			}
+		}
+		session.execute(operation);
+		return operation;
+	}
+
+	/**
+	 * An operation whose result is published separately from performing it,
+	 * so that its session can move on before the result is seen, and which can
+	 * be failed without being performed when the executor rejects it.
+	 */
+	private static final class Operation<T> extends FutureTask<T> {
+		private final Callable<T> callable;
+		private T result;
+		private Throwable failure;
+
+		Operation(Callable<T> callable) {
+			super(callable);
+			this.callable = callable;
+		}
+
+		void perform() {
+			if (isDone()) {
+				return;
+			}
+			try {
+				result = callable.call();
+			} catch (Throwable e) {
+				failure = e;
+			}
+		}
+
+		void publish() {
+			if (failure != null) {
+				setException(failure);
+			} else {
+				set(result);
+			}
+		}
+
+		void fail(Throwable cause) {
+			setException(cause);
+		}
+	}
+
+	/**
+	 * Passes the operations of one session to the current executor one at a
+	 * time, in the order they were requested. If the executor rejects an
+	 * operation, it fails along with every operation queued behind it.
+	 * Operations are passed to the executor without holding the lock of the
+	 * session, and an operation the executor runs before returning is followed
+	 * by the next in a loop rather than recursively, so that a caller-runs
+	 * executor neither blocks the session nor deepens the stack. The next
+	 * operation is taken before the result of the last is published, so an
+	 * operation requested once that result is seen is never left waiting.
+	 */
+	private static final class SessionExecutor {
+		private final Queue<Operation<?>> queue = new LinkedList<Operation<?>>();
+		private boolean active;
+
+		void execute(Operation<?> operation) {
+			synchronized (this) {
+				queue.add(operation);
+				if (active) {
+					return;
+				}
+				active = true;
+			}
+			submit(take());
+		}
+
+		private synchronized Operation<?> take() {
+			Operation<?> operation = queue.poll();
+			active = operation != null;
+			return operation;
+		}
+
+		private void submit(Operation<?> operation) {
+			while (operation != null) {
+				Submission submission = new Submission(this, operation);
+				try {
+					executor.execute(submission);
+				} catch (RejectedExecutionException e) {
+					reject(operation, e);
+					return;
+				}
+				operation = submission.submitted();
+			}
+		}
+
+		private void reject(Operation<?> operation, RejectedExecutionException e) {
+			List<Operation<?>> rejected = new ArrayList<Operation<?>>();
+			rejected.add(operation);
+			synchronized (this) {
+				active = false;
+				rejected.addAll(queue);
+				queue.clear();
+			}
+			for (Operation<?> failed : rejected) {
+				failed.fail(e);
+			}
+		}
+	}
+
+	/**
+	 * Performs one operation of a session, then takes the next. When the
+	 * operation finished before the executor returned, the next is left to the
+	 * submitting thread.
+	 */
+	private static final class Submission implements Runnable {
+		private final SessionExecutor session;
+		private final Operation<?> operation;
+		private boolean submitting = true;
+		private boolean finished;
+		private Operation<?> next;
+
+		Submission(SessionExecutor session, Operation<?> operation) {
+			this.session = session;
+			this.operation = operation;
+		}
+
+		public void run() {
+			operation.perform();
+			Operation<?> next = session.take();
+			operation.publish();
+			if (!finish(next)) {
+				session.submit(next);
+			}
+		}
+
+		/**
+		 * @return true if the executor has not yet returned, leaving the
+		 *         submitting thread to continue with the next operation
+		 */
+		private synchronized boolean finish(Operation<?> next) {
+			this.finished = true;
+			this.next = next;
+			return submitting;
+		}
+
+		/**
+		 * @return the next operation, if this operation already finished and
+		 *         the calling thread should submit it, otherwise null
+		 */
+		synchronized Operation<?> submitted() {
+			submitting = false;
+			return finished ? next : null;
+		}
+	}
+}
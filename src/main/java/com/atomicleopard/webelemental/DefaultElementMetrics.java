@@ -0,0 +1,255 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * An {@link ElementMetrics} which accumulates, for each operation, the number
+ * of times it was performed, the commands it sent to the browser, the number
+ * of elements it was performed on and a histogram of how long it took.
+ * </p>
+ * <p>
+ * Recording never blocks, all totals are kept in atomic counters so many
+ * threads can record at once with little overhead. The accumulated metrics
+ * can be exported as JSON, typically once a test run has completed:
+ * 
+ * <pre>
+ * <code>
+ * DefaultElementMetrics metrics = new DefaultElementMetrics();
+ * Element.setMetrics(metrics);
+ * ... run tests ...
+ * metrics.writeJson(new FileWriter("target/element-metrics.json"));
+ * </code>
+ * </pre>
+ * </p>
+ */
+public class DefaultElementMetrics implements ElementMetrics {
+	/**
+	 * The number of latency histogram buckets. Bucket i counts operations
+	 * taking less than 2^i microseconds which did not fit in an earlier
+	 * bucket, the last bucket counts all longer operations.
+	 */
+	public static final int BUCKETS = 32;
+
+	private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<String, OperationMetrics>();
+
+	public void record(String operation, int selected, int commands, long nanos) {
+		OperationMetrics metrics = operations.get(operation);
+		if (metrics == null) {
+			OperationMetrics created = new OperationMetrics();
+			metrics = operations.putIfAbsent(operation, created);
+			if (metrics == null) {
+				metrics = created;
+			}
+		}
+		metrics.record(selected, commands, nanos);
+	}
+
+	/**
+	 * @return the metrics accumulated for each operation, keyed and sorted by
+	 *         operation name
+	 */
+	public Map<String, OperationMetrics> operations() {
+		return Collections.unmodifiableMap(new TreeMap<String, OperationMetrics>(operations));
+	}
+
+	/**
+	 * @return the total number of commands sent to the browser by all
+	 *         operations
+	 */
+	public long commands() {
+		long commands = 0;
+		for (OperationMetrics metrics : operations.values()) {
+			commands += metrics.commands();
+		}
+		return commands;
+	}
+
+	/**
+	 * Discards all accumulated metrics
+	 */
+	public void reset() {
+		operations.clear();
+	}
+
+	/**
+	 * @return the accumulated metrics as a JSON document
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"commands\":").append(commands()).append(",\"operations\":{");
+		boolean first = true;
+		for (Map.Entry<String, OperationMetrics> entry : operations().entrySet()) {
+			if (!first) {
+				json.append(',');
+			}
+			first = false;
+			json.append('"').append(escape(entry.getKey())).append("\":");
+			entry.getValue().appendJson(json);
+		}
+		return json.append("}}").toString();
+	}
+
+	/**
+	 * Writes the accumulated metrics as a JSON document to the given writer,
+	 * which is then closed.
+	 * 
+	 * @param writer
+	 * @throws IOException
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		try {
+			writer.write(toJson());
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static String escape(String string) {
+		return string.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+	/**
+	 * The metrics accumulated for a single operation
+	 */
+	public static final class OperationMetrics {
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong commands = new AtomicLong();
+		private final AtomicLong selected = new AtomicLong();
+		private final AtomicLong maxSelected = new AtomicLong();
+		private final AtomicLong nanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+		OperationMetrics() {
+		}
+
+		void record(int selected, int commands, long nanos) {
+			this.count.incrementAndGet();
+			this.commands.addAndGet(commands);
+			this.selected.addAndGet(selected);
+			max(this.maxSelected, selected);
+			this.nanos.addAndGet(nanos);
+			max(this.maxNanos, nanos);
+			this.histogram.incrementAndGet(bucket(nanos));
+		}
+
+		/**
+		 * @return the number of times the operation was performed
+		 */
+		public long count() {
+			return count.get();
+		}
+
+		/**
+		 * @return the total number of commands sent to the browser
+		 */
+		public long commands() {
+			return commands.get();
+		}
+
+		/**
+		 * @return the total number of elements the operation was performed on
+		 */
+		public long selected() {
+			return selected.get();
+		}
+
+		/**
+		 * @return the largest number of elements the operation was performed
+		 *         on at once
+		 */
+		public long maxSelected() {
+			return maxSelected.get();
+		}
+
+		/**
+		 * @return the total time taken, in nanoseconds
+		 */
+		public long nanos() {
+			return nanos.get();
+		}
+
+		/**
+		 * @return the longest time taken by a single operation, in
+		 *         nanoseconds
+		 */
+		public long maxNanos() {
+			return maxNanos.get();
+		}
+
+		/**
+		 * @param bucket
+		 *            the index of a histogram bucket, see {@link #BUCKETS}
+		 * @return the number of operations in the given latency bucket
+		 */
+		public long histogram(int bucket) {
+			return histogram.get(bucket);
+		}
+
+		void appendJson(StringBuilder json) {
+			long count = count();
+			json.append("{\"count\":").append(count);
+			json.append(",\"commands\":").append(commands());
+			json.append(",\"selected\":").append(selected());
+			json.append(",\"maxSelected\":").append(maxSelected());
+			json.append(",\"nanos\":").append(nanos());
+			json.append(",\"meanNanos\":").append(count == 0 ? 0 : nanos() / count);
+			json.append(",\"maxNanos\":").append(maxNanos());
+			json.append(",\"histogramMicros\":{");
+			boolean first = true;
+			for (int i = 0; i < BUCKETS; i++) {
+				long value = histogram(i);
+				if (value > 0) {
+					if (!first) {
+						json.append(',');
+					}
+					first = false;
+					json.append('"').append(i == BUCKETS - 1 ? "inf" : String.valueOf(1L << i)).append("\":").append(value);
+				}
+			}
+			json.append("}}");
+		}
+
+		static int bucket(long nanos) {
+			long micros = nanos / 1000;
+			int bucket = 64 - Long.numberOfLeadingZeros(micros);
+			return Math.min(bucket, BUCKETS - 1);
+		}
+
+		private static void max(AtomicLong max, long value) {
+			long current = max.get();
+			while (value > current && !max.compareAndSet(current, value)) {
+				current = max.get();
+			}
+		}
+	}
+}
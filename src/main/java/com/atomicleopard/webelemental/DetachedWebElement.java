@@ -0,0 +1,428 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.Tag;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.FindsByClassName;
+import org.openqa.selenium.internal.FindsByCssSelector;
+import org.openqa.selenium.internal.FindsById;
+import org.openqa.selenium.internal.FindsByName;
+import org.openqa.selenium.internal.FindsByTagName;
+import org.openqa.selenium.internal.FindsByXPath;
+
+/**
+ * <p>
+ * A read-only {@link WebElement} backed by a local copy of the html of an
+ * element, parsed when the element was detached by {@link Element#detach()}.
+ * </p>
+ * <p>
+ * Queries are answered without any interaction with the browser. Elements
+ * are found within the copy with CSS selectors, ids, class names, tag names
+ * and names, along with the XPath axes used by {@link Element} to traverse
+ * between elements. Actions, and queries requiring the layout of the page,
+ * throw an {@link UnsupportedOperationException}.
+ * </p>
+ */
+final class DetachedWebElement implements WebElement, FindsByCssSelector, FindsById, FindsByClassName, FindsByTagName, FindsByName, FindsByXPath {
+	/**
+	 * The attribute marking copied elements which were not visible when they
+	 * were detached. It is removed again when the copy is parsed.
+	 */
+	static final String HIDDEN = "data-webelemental-hidden";
+
+	private static final Pattern TAG_NAME = Pattern.compile("^\\s*<([a-zA-Z][^\\s/>]*)");
+	private static final List<String> BOOLEAN_ATTRIBUTES = Arrays.asList("checked", "selected", "disabled", "readonly", "multiple", "required", "autofocus", "hidden");
+	private static final String READ_ONLY = "This element is a read-only snapshot detached from the page by Element.detach(), %s is not supported";
+
+	private final org.jsoup.nodes.Element node;
+	private final Set<org.jsoup.nodes.Element> hidden;
+
+	private DetachedWebElement(org.jsoup.nodes.Element node, Set<org.jsoup.nodes.Element> hidden) {
+		this.node = node;
+		this.hidden = hidden;
+	}
+
+	/**
+	 * Parses the outer html of an element into a detached copy of it.
+	 * Elements within the html marked with {@link #HIDDEN} are not displayed.
+	 * 
+	 * @param html
+	 *            the outer html of an element
+	 * @param displayed
+	 *            false if the element itself is not displayed
+	 * @return the detached copy of the element
+	 */
+	static DetachedWebElement parse(String html, boolean displayed) {
+		Matcher tagName = TAG_NAME.matcher(html);
+		String tag = tagName.find() ? tagName.group(1).toLowerCase() : "div";
+		org.jsoup.nodes.Element root = null;
+		if ("html".equals(tag)) {
+			root = Parser.parse(html, "").child(0);
+		} else {
+			for (Node node : Parser.parseFragment(html, new org.jsoup.nodes.Element(Tag.valueOf(context(tag)), ""), "")) {
+				if (root == null && node instanceof org.jsoup.nodes.Element) {
+					root = (org.jsoup.nodes.Element) node;
+				}
+			}
+		}
+		if (root == null) {
+			root = new org.jsoup.nodes.Element(Tag.valueOf(tag), "");
+		}
+		root.remove();
+		Set<org.jsoup.nodes.Element> hidden = Collections.newSetFromMap(new IdentityHashMap<org.jsoup.nodes.Element, Boolean>());
+		for (org.jsoup.nodes.Element element : root.getAllElements()) {
+			if (element.hasAttr(HIDDEN)) {
+				hidden.add(element);
+				element.removeAttr(HIDDEN);
+			}
+		}
+		if (!displayed) {
+			hidden.add(root);
+		}
+		return new DetachedWebElement(root, hidden);
+	}
+
+	/**
+	 * @return the name of a tag which may contain the given tag, so that the
+	 *         html parser keeps elements which are only valid within tables,
+	 *         lists and selects
+	 */
+	private static String context(String tag) {
+		if ("tr".equals(tag)) {
+			return "tbody";
+		}
+		if ("td".equals(tag) || "th".equals(tag)) {
+			return "tr";
+		}
+		if ("tbody".equals(tag) || "thead".equals(tag) || "tfoot".equals(tag) || "caption".equals(tag) || "colgroup".equals(tag)) {
+			return "table";
+		}
+		if ("option".equals(tag) || "optgroup".equals(tag)) {
+			return "select";
+		}
+		if ("head".equals(tag) || "body".equals(tag)) {
+			return "html";
+		}
+		return "body";
+	}
+
+	public void click() {
+		throw readOnly("click()");
+	}
+
+	public void submit() {
+		throw readOnly("submit()");
+	}
+
+	public void sendKeys(CharSequence... keysToSend) {
+		throw readOnly("sendKeys()");
+	}
+
+	public void clear() {
+		throw readOnly("clear()");
+	}
+
+	public String getTagName() {
+		return node.tagName();
+	}
+
+	/**
+	 * As with a live element, boolean attributes are returned as "true" or
+	 * null, the value of a textarea or an option without a value attribute is
+	 * its text, and textContent is the text of all descendants regardless of
+	 * visibility.
+	 */
+	public String getAttribute(String name) {
+		String attribute = name.toLowerCase();
+		if ("outerhtml".equals(attribute)) {
+			return node.outerHtml();
+		}
+		if ("innerhtml".equals(attribute)) {
+			return node.html();
+		}
+		if ("textcontent".equals(attribute)) {
+			StringBuilder text = new StringBuilder();
+			appendTextContent(node, text);
+			return text.toString();
+		}
+		if (BOOLEAN_ATTRIBUTES.contains(attribute)) {
+			return node.hasAttr(attribute) ? "true" : null;
+		}
+		if ("value".equals(attribute) && !node.hasAttr(attribute) && ("textarea".equals(node.tagName()) || "option".equals(node.tagName()))) {
+			return node.text();
+		}
+		return node.hasAttr(attribute) ? node.attr(attribute) : null;
+	}
+
+	public boolean isSelected() {
+		return node.hasAttr("checked") || node.hasAttr("selected");
+	}
+
+	public boolean isEnabled() {
+		return !node.hasAttr("disabled");
+	}
+
+	/**
+	 * @return the text of this element and its displayed descendants, with
+	 *         line breaks between block elements, or an empty string if this
+	 *         element is not displayed
+	 */
+	public String getText() {
+		if (!isDisplayed()) {
+			return "";
+		}
+		StringBuilder text = new StringBuilder();
+		appendText(node, text);
+		return text.toString().replaceAll("[ \\t\\x0B\\f\\r]*\\n[ \\t\\x0B\\f\\r\\n]*", "\n").replaceAll("  +", " ").trim();
+	}
+
+	private void appendText(org.jsoup.nodes.Element element, StringBuilder text) {
+		for (Node child : element.childNodes()) {
+			if (child instanceof TextNode) {
+				String childText = ((TextNode) child).getWholeText().replaceAll("\\s+", " ");
+				if (childText.startsWith(" ") && (text.length() == 0 || Character.isWhitespace(text.charAt(text.length() - 1)))) {
+					childText = childText.substring(1);
+				}
+				text.append(childText);
+			} else if (child instanceof org.jsoup.nodes.Element && !hidden.contains(child)) {
+				org.jsoup.nodes.Element childElement = (org.jsoup.nodes.Element) child;
+				String tag = childElement.tagName();
+				if ("td".equals(tag) || "th".equals(tag)) {
+					text.append(' ');
+				}
+				boolean block = !"td".equals(tag) && !"th".equals(tag) && (childElement.isBlock() || "br".equals(tag));
+				if (block) {
+					text.append('\n');
+				}
+				appendText(childElement, text);
+				if (block) {
+					text.append('\n');
+				}
+			}
+		}
+	}
+
+	private static void appendTextContent(org.jsoup.nodes.Element element, StringBuilder text) {
+		for (Node child : element.childNodes()) {
+			if (child instanceof TextNode) {
+				text.append(((TextNode) child).getWholeText());
+			} else if (child instanceof DataNode) {
+				text.append(((DataNode) child).getWholeData());
+			} else if (child instanceof org.jsoup.nodes.Element) {
+				appendTextContent((org.jsoup.nodes.Element) child, text);
+			}
+		}
+	}
+
+	public List<WebElement> findElements(By by) {
+		return by.findElements(this);
+	}
+
+	public WebElement findElement(By by) {
+		return by.findElement(this);
+	}
+
+	public boolean isDisplayed() {
+		return !hidden.contains(node);
+	}
+
+	public Point getLocation() {
+		throw readOnly("getLocation()");
+	}
+
+	public Dimension getSize() {
+		throw readOnly("getSize()");
+	}
+
+	public String getCssValue(String propertyName) {
+		throw readOnly("getCssValue()");
+	}
+
+	public List<WebElement> findElementsByCssSelector(String using) {
+		return wrap(node.select(using));
+	}
+
+	public WebElement findElementByCssSelector(String using) {
+		return first(findElementsByCssSelector(using), "css selector", using);
+	}
+
+	public List<WebElement> findElementsById(String using) {
+		return wrap(node.getElementsByAttributeValue("id", using));
+	}
+
+	public WebElement findElementById(String using) {
+		return first(findElementsById(using), "id", using);
+	}
+
+	public List<WebElement> findElementsByClassName(String using) {
+		return wrap(node.getElementsByClass(using));
+	}
+
+	public WebElement findElementByClassName(String using) {
+		return first(findElementsByClassName(using), "class name", using);
+	}
+
+	public List<WebElement> findElementsByTagName(String using) {
+		return wrap(node.getElementsByTag(using));
+	}
+
+	public WebElement findElementByTagName(String using) {
+		return first(findElementsByTagName(using), "tag name", using);
+	}
+
+	public List<WebElement> findElementsByName(String using) {
+		return wrap(node.getElementsByAttributeValue("name", using));
+	}
+
+	public WebElement findElementByName(String using) {
+		return first(findElementsByName(using), "name", using);
+	}
+
+	/**
+	 * Only the XPath expressions used by {@link Element} to move between
+	 * related elements and to read tables, and by {@link PseudoSelector} to
+	 * test selectors following a pseudo-class, are supported. Nothing outside
+	 * of the detached element can be reached.
+	 */
+	public List<WebElement> findElementsByXPath(String using) {
+		List<org.jsoup.nodes.Element> found = new ArrayList<org.jsoup.nodes.Element>();
+		if ("..".equals(using) || "parent::*".equals(using)) {
+			if (node.parent() != null) {
+				found.add(node.parent());
+			}
+		} else if ("/*".equals(using)) {
+			found.add(root());
+		} else if ("ancestor-or-self::*".equals(using)) {
+			for (org.jsoup.nodes.Element element = node; element != null; element = element.parent()) {
+				found.add(0, element);
+			}
+		} else if ("preceding-sibling::* | following-sibling::*".equals(using)) {
+			found.addAll(node.siblingElements());
+		} else if ("./tr | ./*/tr".equals(using)) {
+			for (org.jsoup.nodes.Element child : node.children()) {
+				found.addAll("tr".equals(child.tagName()) ? Collections.singletonList(child) : children(child, "tr"));
+			}
+		} else if ("./thead/tr".equals(using)) {
+			for (org.jsoup.nodes.Element head : children(node, "thead")) {
+				found.addAll(children(head, "tr"));
+			}
+		} else if ("./td | ./th".equals(using)) {
+			found.addAll(children(node, "td", "th"));
+		} else if ("following-sibling::*[1]".equals(using)) {
+			addIfPresent(found, node.nextElementSibling());
+		} else if ("preceding-sibling::*[1]".equals(using)) {
+			addIfPresent(found, node.previousElementSibling());
+		} else {
+			throw new UnsupportedOperationException(String.format("Detached elements cannot be searched with the XPath '%s', use a CSS selector instead", using));
+		}
+		List<WebElement> result = new ArrayList<WebElement>(found.size());
+		for (org.jsoup.nodes.Element element : found) {
+			result.add(new DetachedWebElement(element, hidden));
+		}
+		return result;
+	}
+
+	public WebElement findElementByXPath(String using) {
+		return first(findElementsByXPath(using), "xpath", using);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof DetachedWebElement && ((DetachedWebElement) obj).node == node;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(node);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Detached <%s>", node.tagName());
+	}
+
+	private org.jsoup.nodes.Element root() {
+		org.jsoup.nodes.Element root = node;
+		while (root.parent() != null) {
+			root = root.parent();
+		}
+		return root;
+	}
+
+	/**
+	 * Wraps the given descendants, dropping this element itself as a live
+	 * element is never found within itself.
+	 */
+	private List<WebElement> wrap(List<org.jsoup.nodes.Element> elements) {
+		List<WebElement> result = new ArrayList<WebElement>(elements.size());
+		for (org.jsoup.nodes.Element element : elements) {
+			if (element != node) {
+				result.add(new DetachedWebElement(element, hidden));
+			}
+		}
+		return result;
+	}
+
+	private static List<org.jsoup.nodes.Element> children(org.jsoup.nodes.Element element, String... tags) {
+		List<org.jsoup.nodes.Element> children = new ArrayList<org.jsoup.nodes.Element>();
+		for (org.jsoup.nodes.Element child : element.children()) {
+			if (Arrays.asList(tags).contains(child.tagName())) {
+				children.add(child);
+			}
+		}
+		return children;
+	}
+
+	private static void addIfPresent(List<org.jsoup.nodes.Element> elements, org.jsoup.nodes.Element element) {
+		if (element != null) {
+			elements.add(element);
+		}
+	}
+
+	private static WebElement first(List<WebElement> elements, String strategy, String using) {
+		if (elements.isEmpty()) {
+			throw new NoSuchElementException(String.format("No detached element found by %s '%s'", strategy, using));
+		}
+		return elements.get(0);
+	}
+
+	private static UnsupportedOperationException readOnly(String operation) {
+		return new UnsupportedOperationException(String.format(READ_ONLY, operation));
+	}
+}
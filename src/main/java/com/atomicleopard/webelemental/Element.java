@@ -22,19 +22,35 @@ package com.atomicleopard.webelemental;
 
 import static com.atomicleopard.expressive.Expressive.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
 
+import org.hamcrest.Matcher;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsDriver;
 
 import com.atomicleopard.expressive.EList;
 import com.atomicleopard.expressive.EListImpl;
 import com.atomicleopard.expressive.ETransformer;
 import com.atomicleopard.expressive.Expressive;
-import com.atomicleopard.expressive.transform.CollectionTransformer;
 import com.atomicleopard.expressive.transform.ETransformers;
+import com.atomicleopard.webelemental.matchers.PropertyMatcher;
 
 /**
  * <p>
@@ -57,24 +73,110 @@ import com.atomicleopard.expressive.transform.ETransformers;
  * etc) act on all selected elements, while query methods (such as
  * {@link #text()}, {@link #classes()} act on the first selected element.
  * </p>
+ * <p>
+ * Elements remember how they were derived, from the context or elements they
+ * were created with through each find, traversal and index method such as
+ * {@link #first()}. When the page is re-rendered and the selected elements go
+ * stale, an operation failing with a {@link StaleElementReferenceException}
+ * selects the elements again through that lineage and is retried. See
+ * {@link #retryStale(int)}.
+ * </p>
  */
 public class Element implements Iterable<Element> {
-	private EList<WebElement> elements;
+	/**
+	 * The number of times, by default, an operation failing with a
+	 * {@link StaleElementReferenceException} is retried
+	 */
+	public static final int DEFAULT_STALE_RETRIES = 1;
+	/**
+	 * The number of elements described by {@link #toString()}, by default
+	 */
+	public static final int DEFAULT_DESCRIPTION_LIMIT = 10;
+	private static final Random RANDOM = new Random();
+	/**
+	 * The session of Elements whose driver cannot be found, see
+	 * {@link #session()}
+	 */
+	static final Object UNKNOWN_SESSION = new Object();
+	private static volatile int descriptionLimit = DEFAULT_DESCRIPTION_LIMIT;
+	private static volatile SelectorCache selectorCache;
+
+	private Selection elements;
+	private final Element parent;
+	private final SearchContext context;
+	private final String selector;
+	private final By locator;
+	private final Step step;
+	private int roundTripsSaved;
+	private int count = -1;
+	private int staleRetries = DEFAULT_STALE_RETRIES;
+	private int heals;
+	private PropertyCache cache;
 
 	public Element(WebElement element) {
-		this.elements = new EListImpl<WebElement>();
-		if (element != null) {
-			elements.add(element);
-		}
+		this.parent = null;
+		this.context = null;
+		this.selector = null;
+		this.locator = null;
+		this.step = null;
+		this.elements = Selection.of(element);
 	}
 
 	public Element(List<WebElement> elements) {
-		this.elements = new EListImpl<WebElement>();
-		if (elements != null) {
-			this.elements.addAll(elements);
+		this.parent = null;
+		this.context = null;
+		this.selector = null;
+		this.locator = null;
+		this.step = null;
+		this.elements = Selection.of(elements);
+	}
+
+	/**
+	 * Creates a lazy Element, which selects all elements within the given
+	 * context matching the given selector when it is first used. The selection
+	 * is remembered until an action method (such as {@link #click()}) is
+	 * invoked, after which it is selected again on next use.
+	 * 
+	 * @param context
+	 *            the {@link SearchContext}, usually a WebDriver, to select
+	 *            elements from
+	 * @param selector
+	 */
+	public Element(SearchContext context, By selector) {
+		this(null, context, null, selector, null);
+	}
+
+	/**
+	 * Creates a lazy Element, which selects all elements within the given
+	 * context matching the given CSS selector when it is first used.
+	 * 
+	 * @param context
+	 *            the {@link SearchContext}, usually a WebDriver, to select
+	 *            elements from
+	 * @param selector
+	 *            specified as a CSS, or jQuery style, selector
+	 * @see #Element(SearchContext, By)
+	 */
+	public Element(SearchContext context, String selector) {
+		this(null, context, selector, By.cssSelector(selector), null);
+	}
+
+	private Element(Element parent, SearchContext context, String selector, By locator, Step step) {
+		this.parent = parent;
+		this.context = context;
+		this.selector = selector;
+		this.locator = locator;
+		this.step = step;
+		if (parent != null) {
+			this.staleRetries = parent.staleRetries;
+			this.cache = parent.cache;
 		}
 	}
 
+	private Element(Element parent, Step step) {
+		this(parent, null, null, null, step);
+	}
+
 	/**
 	 * @return the id of the first selected element, null if no id exists, or
 	 *         null if no elements are selected
@@ -110,8 +212,16 @@ public class Element implements Iterable<Element> {
 	 *         null if the attribute does not exist, or null if no elements are
 	 *         selected
 	 */
-	public String attr(String name) {
-		return elements.isEmpty() ? null : elements.first().getAttribute(name);
+	public String attr(final String name) {
+		return perform("attr", new Operation<String>() {
+			String run() {
+				Selection elements = elements();
+				if (elements.isEmpty()) {
+					return null;
+				}
+				return attribute(cache, elements.first(), name);
+			}
+		});
 	}
 
 	/**
@@ -121,11 +231,112 @@ public class Element implements Iterable<Element> {
 	 *            the value to assign to all selected elements
 	 * @return this Element, supporting a fluid API
 	 */
-	public Element val(CharSequence value) {
-		for (WebElement element : elements) {
-			element.clear();
-			element.sendKeys(value);
+	public Element val(final CharSequence value) {
+		perform("val", new Operation<Void>() {
+			Void run() {
+				Selection elements = elements();
+				for (; completed < elements.size(); completed++) {
+					WebElement element = elements.get(completed);
+					Metrics.commands(2);
+					element.clear();
+					element.sendKeys(value);
+				}
+				return null;
+			}
+		});
+		invalidate();
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Sets the value of all selected elements to the given value, in a single
+	 * script execution when the selected elements are bound to a driver which
+	 * can execute javascript. 'input' and 'change' events are dispatched to
+	 * each element after its value is set.
+	 * </p>
+	 * <p>
+	 * Unlike {@link #val(CharSequence)} no keystrokes are sent, so any
+	 * behaviour triggered by individual key events will not occur. When no
+	 * script executor is available, this behaves the same as
+	 * {@link #val(CharSequence)}.
+	 * </p>
+	 * 
+	 * @param value
+	 *            the value to assign to all selected elements
+	 * @return this Element, supporting a fluid API
+	 */
+	public Element fill(final CharSequence value) {
+		boolean filled = perform("fill", new Operation<Boolean>() {
+			Boolean run() {
+				Selection elements = elements();
+				JavascriptExecutor executor = Scripts.executor(elements);
+				if (executor == null) {
+					return false;
+				}
+				Metrics.command();
+				executor.executeScript(Scripts.FILL, elements, null, list(String.valueOf(value)));
+				return true;
+			}
+		});
+		if (!filled) {
+			return val(value);
+		}
+		invalidate();
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Sets the value of many fields within the selected elements at once. Each
+	 * key of the given map is a CSS selector, and all elements matching it
+	 * within the selected elements are assigned the corresponding value.
+	 * </p>
+	 * <p>
+	 * When the selected elements are bound to a driver which can execute
+	 * javascript, all fields are found and filled in a single script
+	 * execution, in the same way as {@link #fill(CharSequence)}. Otherwise
+	 * each field is found and assigned its value using
+	 * {@link #val(CharSequence)}.
+	 * </p>
+	 * Example:
+	 * 
+	 * <pre>
+	 * <code>
+	 * form.fill(Expressive.&lt;String, CharSequence&gt; map("#firstName", "Anthony", "#lastName", "Smith"));
+	 * </code>
+	 * </pre>
+	 * 
+	 * @param values
+	 *            CSS selectors mapped to the value to assign to the elements
+	 *            they match
+	 * @return this Element, supporting a fluid API
+	 */
+	public Element fill(final Map<String, ? extends CharSequence> values) {
+		boolean filled = perform("fill", new Operation<Boolean>() {
+			Boolean run() {
+				Selection elements = elements();
+				JavascriptExecutor executor = Scripts.executor(elements);
+				if (executor == null) {
+					return false;
+				}
+				List<String> selectors = new ArrayList<String>(values.size());
+				List<String> strings = new ArrayList<String>(values.size());
+				for (Map.Entry<String, ? extends CharSequence> entry : values.entrySet()) {
+					selectors.add(entry.getKey());
+					strings.add(String.valueOf(entry.getValue()));
+				}
+				Metrics.command();
+				executor.executeScript(Scripts.FILL, elements, selectors, strings);
+				return true;
+			}
+		});
+		if (!filled) {
+			for (Map.Entry<String, ? extends CharSequence> entry : values.entrySet()) {
+				find(entry.getKey()).val(entry.getValue());
+			}
 		}
+		invalidate();
 		return this;
 	}
 
@@ -135,9 +346,17 @@ public class Element implements Iterable<Element> {
 	 * @return this Element, supporting a fluid API
 	 */
 	public Element click() {
-		for (WebElement element : elements) {
-			element.click();
-		}
+		perform("click", new Operation<Void>() {
+			Void run() {
+				Selection elements = elements();
+				for (; completed < elements.size(); completed++) {
+					Metrics.command();
+					elements.get(completed).click();
+				}
+				return null;
+			}
+		});
+		invalidate();
 		return this;
 	}
 
@@ -150,7 +369,7 @@ public class Element implements Iterable<Element> {
 	 * @see WebElement#getText()
 	 */
 	public String html() {
-		return elements.isEmpty() ? null : elements.first().getText();
+		return text();
 	}
 
 	/**
@@ -162,7 +381,19 @@ public class Element implements Iterable<Element> {
 	 * @see WebElement#getText()
 	 */
 	public String text() {
-		return elements.isEmpty() ? null : elements.first().getText();
+		return perform("text", new Operation<String>() {
+			String run() {
+				Selection elements = elements();
+				if (elements.isEmpty()) {
+					return null;
+				}
+				if (cache != null) {
+					return cache.text(elements.first());
+				}
+				Metrics.command();
+				return elements.first().getText();
+			}
+		});
 	}
 
 	/**
@@ -173,26 +404,40 @@ public class Element implements Iterable<Element> {
 	 * @return this Element, supporting a fluid API
 	 */
 	public Element text(CharSequence value) {
-		for (WebElement element : elements) {
-			element.clear();
-			element.sendKeys(value);
-		}
-		return this;
+		return val(value);
 	}
 
 	/**
+	 * Returns the number of selected elements. If the elements of this Element
+	 * have not yet been selected, and it was found with CSS selectors from
+	 * elements bound to a driver which can execute javascript, the elements are
+	 * counted by script without being selected.
+	 * 
 	 * @return the number of selected elements
 	 */
 	public int size() {
-		return elements.size();
+		return perform("size", new Operation<Integer>() {
+			Integer run() {
+				if (elements == null) {
+					if (count < 0) {
+						count = countChain();
+					}
+					if (count >= 0) {
+						return count;
+					}
+				}
+				return elements().size();
+			}
+		});
 	}
 
 	/**
 	 * @return true is there are no selected elements within this
 	 *         {@linkplain Element}
+	 * @see #size()
 	 */
 	public boolean isEmpty() {
-		return elements.isEmpty();
+		return size() == 0;
 	}
 
 	/**
@@ -200,57 +445,376 @@ public class Element implements Iterable<Element> {
 	 *         elements are selected or the first matching element is not visible
 	 */
 	public boolean isVisible() {
-		return elements.isEmpty() ? false : elements.first().isDisplayed();
+		return perform("visible", new Operation<Boolean>() {
+			Boolean run() {
+				Selection elements = elements();
+				if (elements.isEmpty()) {
+					return false;
+				}
+				if (cache != null) {
+					return cache.displayed(elements.first());
+				}
+				Metrics.command();
+				return elements.first().isDisplayed();
+			}
+		});
+	}
+
+	/**
+	 * <p>
+	 * Takes an immutable {@link ElementSnapshot} of the tag name, text,
+	 * visibility and the named attributes of every selected element.
+	 * </p>
+	 * <p>
+	 * When the selected elements belong to a driver which can execute
+	 * javascript, the snapshot is collected for all selected elements in a
+	 * single script execution, otherwise each property is read from each
+	 * selected element in turn.
+	 * </p>
+	 * 
+	 * @param attributes
+	 *            the names of the attributes to capture
+	 * @return a snapshot of all selected elements which can be queried without
+	 *         further interaction with the browser
+	 */
+	public ElementSnapshot snapshot(String... attributes) {
+		return snapshot(list(attributes));
+	}
+
+	ElementSnapshot snapshot(final List<String> names) {
+		return perform("snapshot", new Operation<ElementSnapshot>() {
+			ElementSnapshot run() {
+				ElementSnapshot snapshot = new ElementSnapshot(names);
+				Selection elements = elements();
+				if (elements.isEmpty()) {
+					return snapshot;
+				}
+				JavascriptExecutor executor = Scripts.executor(elements);
+				if (executor != null) {
+					Metrics.command();
+					List<?> results = (List<?>) executor.executeScript(Scripts.SNAPSHOT, elements, names);
+					for (int i = 0; i < results.size(); i++) {
+						List<?> values = (List<?>) results.get(i);
+						String text = (String) values.get(1);
+						boolean displayed = Boolean.TRUE.equals(values.get(2));
+						List<String> attributes = Scripts.strings(values.get(3));
+						snapshot.add((String) values.get(0), text, displayed, attributes);
+						remember(elements.get(i), text, displayed, names, attributes);
+					}
+				} else {
+					for (WebElement element : elements) {
+						Metrics.commands(names.size() + 3);
+						List<String> values = new ArrayList<String>(names.size());
+						for (String name : names) {
+							values.add(element.getAttribute(name));
+						}
+						String text = element.getText();
+						boolean displayed = element.isDisplayed();
+						snapshot.add(element.getTagName(), text, displayed, values);
+						remember(element, text, displayed, names, values);
+					}
+				}
+				return snapshot;
+			}
+		});
+	}
+
+	/**
+	 * Remembers properties of the given element read by
+	 * {@link #snapshot(List)}, when a cache is enabled
+	 */
+	private void remember(WebElement element, String text, boolean displayed, List<String> names, List<String> values) {
+		if (cache != null) {
+			cache.rememberText(element, text);
+			cache.rememberDisplayed(element, displayed);
+			for (int i = 0; i < names.size(); i++) {
+				cache.rememberAttribute(element, names.get(i), values.get(i));
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Copies the html of all selected elements into a local, read-only
+	 * snapshot, and returns an Element selecting the copies.
+	 * </p>
+	 * <p>
+	 * Query methods, {@link #find(String)}, traversal and {@link #verify()} on
+	 * the returned Element are evaluated in-process, without any interaction
+	 * with the browser. Changes to the page after the copy was taken are not
+	 * reflected in it. Action methods, such as {@link #click()}, throw an
+	 * {@link UnsupportedOperationException}.
+	 * </p>
+	 * <p>
+	 * When the selected elements belong to a driver which can execute
+	 * javascript, all of them are copied in a single script execution, and the
+	 * visibility of every copied element is recorded. Otherwise only the
+	 * visibility of the selected elements themselves is recorded.
+	 * </p>
+	 * 
+	 * @return an Element selecting read-only copies of the selected elements
+	 */
+	public Element detach() {
+		return new Element(perform("detach", new Operation<List<WebElement>>() {
+			List<WebElement> run() {
+				Selection elements = elements();
+				List<WebElement> detached = new ArrayList<WebElement>(elements.size());
+				JavascriptExecutor executor = Scripts.executor(elements);
+				if (executor != null) {
+					Metrics.command();
+					for (String html : Scripts.strings(executor.executeScript(Scripts.DETACH, elements))) {
+						detached.add(DetachedWebElement.parse(html, true));
+					}
+				} else {
+					for (WebElement element : elements) {
+						Metrics.commands(2);
+						detached.add(DetachedWebElement.parse(element.getAttribute("outerHTML"), element.isDisplayed()));
+					}
+				}
+				return detached;
+			}
+		}));
 	}
 
 	/**
 	 * @return an Element containing the parent element of every selected element
-	 *         within this Element
+	 *         within this Element, in document order and without duplicates
 	 */
 	public Element parent() {
-		EList<WebElement> list = new EListImpl<WebElement>();
+		return traverse("parent", null, By.xpath(".."));
+	}
+
+	/**
+	 * For each selected element, selects the first element matching the given
+	 * CSS selector by testing the element itself and then each of its ancestors
+	 * in turn.
+	 * 
+	 * @param selector
+	 *            specified as a CSS selector
+	 * @return an Element containing the closest matching element for every
+	 *         selected element, in document order and without duplicates
+	 */
+	public Element closest(String selector) {
+		return traverse("closest", selector, null);
+	}
+
+	/**
+	 * Selects the closest ancestor-or-self of each selected element matching
+	 * the given CSS selector without executing javascript, by finding every
+	 * matching element in the document and then searching the ancestors of
+	 * each selected element for one of them.
+	 */
+	private List<WebElement> closestByLocators(Selection elements, String selector) {
+		Set<WebElement> candidates = new HashSet<WebElement>();
+		Metrics.command();
+		for (WebElement root : elements.first().findElements(By.xpath("/*"))) {
+			Metrics.command();
+			candidates.add(root);
+			candidates.addAll(root.findElements(SelectorPlan.of(selector).locator(root)));
+		}
+		Set<WebElement> found = new LinkedHashSet<WebElement>();
 		for (WebElement element : elements) {
-			list.addAll(element.findElements(By.xpath("..")));
+			Metrics.command();
+			List<WebElement> ancestors = element.findElements(By.xpath("ancestor-or-self::*"));
+			for (int i = ancestors.size() - 1; i >= 0; i--) {
+				if (candidates.contains(ancestors.get(i))) {
+					found.add(ancestors.get(i));
+					break;
+				}
+			}
 		}
-		return new Element(list);
+		return new ArrayList<WebElement>(found);
+	}
+
+	/**
+	 * @return an Element containing the siblings of every selected element, in
+	 *         document order and without duplicates
+	 */
+	public Element siblings() {
+		return traverse("siblings", null, By.xpath("preceding-sibling::* | following-sibling::*"));
+	}
+
+	/**
+	 * @return an Element containing the element immediately following every
+	 *         selected element, in document order and without duplicates
+	 */
+	public Element next() {
+		return traverse("next", null, By.xpath("following-sibling::*[1]"));
+	}
+
+	/**
+	 * @return an Element containing the element immediately preceding every
+	 *         selected element, in document order and without duplicates
+	 */
+	public Element prev() {
+		return traverse("prev", null, By.xpath("preceding-sibling::*[1]"));
 	}
 
 	/**
+	 * <p>
 	 * Selects all elements matching the given CSS selector that are children of
 	 * the selected elements within this Element.
+	 * </p>
+	 * <p>
+	 * The selection is deferred until the returned Element is first used. This
+	 * allows a chain of finds, such as
+	 * <code>find("table").find("tbody tr").find("td")</code>, to be resolved
+	 * in a single script execution over the elements the chain started from,
+	 * rather than one lookup per selected element at each step of the chain.
+	 * </p>
+	 * <p>
+	 * When the elements are looked up by the driver instead, a selector made of
+	 * a single id, class, name attribute or tag name, such as "#login", ".row",
+	 * "[name=q]" or "td", is found with the equivalent native locator if the
+	 * driver supports it.
+	 * </p>
+	 * <p>
+	 * The jQuery pseudo-classes :visible, :hidden, :contains(text), :eq(n),
+	 * :first, :last and :has(selector) may be used, and are evaluated along
+	 * with the rest of the chain in a single script execution when possible.
+	 * </p>
 	 * 
 	 * @param selector
 	 *            specified as a CSS, or jQuery style, selector
 	 * @return an Element containing all elements matching the given selector
+	 * @see #roundTripsSaved()
 	 */
 	public Element find(String selector) {
-		return find(By.cssSelector(selector));
+		return new Element(this, null, selector, By.cssSelector(selector), null);
 	}
 
 	/**
 	 * Selects all elements matching the given selector that are children of the
-	 * selected elements within this Element.
+	 * selected elements within this Element. Elements matched from more than
+	 * one selected element are only selected once. As with
+	 * {@link #find(String)}, the selection is deferred until the returned
+	 * Element is first used.
 	 * 
 	 * @param selector
 	 * @return an Element containing all elements matching the given selector
 	 */
 	public Element find(By selector) {
-		EList<WebElement> list = new EListImpl<WebElement>();
-		for (WebElement webElement : elements) {
-			list.addAll(webElement.findElements(selector));
+		return new Element(this, null, null, selector, null);
+	}
+
+	/**
+	 * <p>
+	 * Narrows the selected elements to those matching the given matcher.
+	 * </p>
+	 * <p>
+	 * The matchers provided by {@link ElementMatchers} for ids, classes,
+	 * attributes, values, text and visibility are evaluated for all selected
+	 * elements at once. When given an exact value, such as
+	 * <code>filter(cssClass("active"))</code>, they are evaluated in the
+	 * browser by a single script, otherwise they are evaluated locally against
+	 * an {@link ElementSnapshot} of all selected elements. Any other matcher is
+	 * evaluated against each selected element in turn.
+	 * </p>
+	 * <p>
+	 * As with the other methods deriving an Element, the matcher is not
+	 * evaluated until the returned Element is first used, and is evaluated
+	 * again when its elements are selected again.
+	 * </p>
+	 * 
+	 * @param matcher
+	 *            the matcher selected elements must satisfy
+	 * @return an Element containing the selected elements matching the given
+	 *         matcher
+	 */
+	public Element filter(Matcher<Element> matcher) {
+		return filter(matcher, true);
+	}
+
+	/**
+	 * Narrows the selected elements to those not matching the given matcher.
+	 * 
+	 * @param matcher
+	 *            the matcher selected elements must not satisfy
+	 * @return an Element containing the selected elements not matching the
+	 *         given matcher
+	 * @see #filter(Matcher)
+	 */
+	public Element not(Matcher<Element> matcher) {
+		return filter(matcher, false);
+	}
+
+	private Element filter(final Matcher<Element> matcher, final boolean keep) {
+		return new Element(this, new Step() {
+			public List<WebElement> select(Element parent) {
+				return parent.filtered(matcher, keep);
+			}
+		});
+	}
+
+	private List<WebElement> filtered(Matcher<Element> matcher, boolean keep) {
+		Selection elements = elements();
+		JavascriptExecutor executor = Scripts.executor(elements);
+		List<WebElement> filtered = new ArrayList<WebElement>();
+		if (executor != null && matcher instanceof PropertyMatcher) {
+			PropertyMatcher propertyMatcher = (PropertyMatcher) matcher;
+			List<Object> predicate = propertyMatcher.predicate();
+			if (predicate != null) {
+				Metrics.command();
+				filtered.addAll(Scripts.webElements(executor.executeScript(Scripts.FILTER, elements, predicate, keep)));
+			} else {
+				ElementSnapshot snapshot = snapshot(propertyMatcher.attributes());
+				for (int i = 0; i < elements.size(); i++) {
+					if (propertyMatcher.matches(snapshot, i) == keep) {
+						filtered.add(elements.get(i));
+					}
+				}
+			}
+		} else {
+			for (WebElement element : elements) {
+				if (matcher.matches(new Element(element)) == keep) {
+					filtered.add(element);
+				}
+			}
 		}
-		return new Element(list);
+		return filtered;
+	}
+
+	/**
+	 * Returns the number of round trips to the browser which were avoided by
+	 * resolving the chain of CSS selectors this Element was found with in a
+	 * single script execution. This will be zero for Elements which were not
+	 * obtained from {@link #find(String)}, or which could not be resolved by
+	 * script.
+	 * 
+	 * @return the number of round trips saved when selecting the elements of
+	 *         this Element
+	 */
+	public int roundTripsSaved() {
+		elements();
+		return roundTripsSaved;
 	}
 
 	/**
+	 * Each selected element is wrapped in an {@link Element} as the iteration
+	 * reaches it. The returned iterator does not support removal.
+	 * 
 	 * @return an {@link Iterator} over all selected {@link Element}s
 	 */
 	public Iterator<Element> iterator() {
-		EList<Element> list = new EListImpl<Element>();
-		for (WebElement webElement : elements) {
-			list.add(new Element(webElement));
-		}
-		return list.iterator();
+		final int size = elements().size();
+		return new Iterator<Element>() {
+			private int position = 0;
+
+			public boolean hasNext() {
+				return position < size;
+			}
+
+			public Element next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return new Element(Element.this, index(position++));
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("Selected elements cannot be removed from an Element");
+			}
+		};
 	}
 
 	/**
@@ -258,7 +822,7 @@ public class Element implements Iterable<Element> {
 	 *         this Element has no selected elements
 	 */
 	public Element first() {
-		return new Element(elements.first());
+		return new Element(this, index(0));
 	}
 
 	/**
@@ -270,7 +834,7 @@ public class Element implements Iterable<Element> {
 	 *         empty if this Element has no selected element at the given index
 	 */
 	public Element get(int index) {
-		return new Element(elements.at(index));
+		return new Element(this, index(index));
 	}
 
 	/**
@@ -278,7 +842,7 @@ public class Element implements Iterable<Element> {
 	 *         this Element has no selected elements
 	 */
 	public Element last() {
-		return new Element(elements.last());
+		return new Element(this, index(-1));
 	}
 
 	/**
@@ -287,9 +851,150 @@ public class Element implements Iterable<Element> {
 	 *         elements
 	 */
 	public Element any() {
-		EList<WebElement> duplicate = elements.duplicate();
-		Collections.shuffle(duplicate);
-		return new Element(duplicate.first());
+		return any(RANDOM);
+	}
+
+	/**
+	 * Chooses a selected element using the given source of randomness, so
+	 * that a seeded {@link Random} chooses the same element on every run.
+	 * 
+	 * @param random
+	 *            the source of randomness to choose the element with
+	 * @return a random selected element from all the selected elements, the
+	 *         returned Element will be empty if this Element has no selected
+	 *         elements
+	 */
+	public Element any(Random random) {
+		int size = elements().size();
+		return new Element(this, index(size == 0 ? 0 : random.nextInt(size)));
+	}
+
+	/**
+	 * Chooses up to the given number of selected elements at random, each
+	 * equally likely to be chosen. The chosen elements remain in the order
+	 * they were selected in.
+	 * 
+	 * @param count
+	 *            the number of elements to choose
+	 * @return an Element selecting the chosen elements, or all the selected
+	 *         elements if there are no more than the given number
+	 */
+	public Element sample(int count) {
+		return sample(count, RANDOM);
+	}
+
+	/**
+	 * Chooses up to the given number of selected elements using the given
+	 * source of randomness, so that a seeded {@link Random} chooses the same
+	 * elements on every run.
+	 * 
+	 * @param count
+	 *            the number of elements to choose
+	 * @param random
+	 *            the source of randomness to choose the elements with
+	 * @return an Element selecting the chosen elements, or all the selected
+	 *         elements if there are no more than the given number
+	 * @see #sample(int)
+	 */
+	public Element sample(int count, Random random) {
+		if (count < 0) {
+			throw new IllegalArgumentException(String.format("Cannot sample %s elements", count));
+		}
+		int size = elements().size();
+		if (count >= size) {
+			return slice(0, size);
+		}
+		final int[] chosen = new int[count];
+		for (int i = 0; i < size; i++) {
+			if (i < count) {
+				chosen[i] = i;
+			} else {
+				int replaced = random.nextInt(i + 1);
+				if (replaced < count) {
+					chosen[replaced] = i;
+				}
+			}
+		}
+		Arrays.sort(chosen);
+		return new Element(this, new Step() {
+			public List<WebElement> select(Element parent) {
+				Selection elements = parent.elements();
+				List<WebElement> sample = new ArrayList<WebElement>(chosen.length);
+				for (int index : chosen) {
+					if (index < elements.size()) {
+						sample.add(elements.get(index));
+					}
+				}
+				return sample;
+			}
+		});
+	}
+
+	/**
+	 * The same as {@link #get(int)}, named after the jQuery method.
+	 * 
+	 * @param index
+	 *            the index of the element, counting back from the last
+	 *            element for negative indexes
+	 * @return the selected element at the given index, returned Element will be
+	 *         empty if this Element has no selected element at the given index
+	 */
+	public Element eq(int index) {
+		return get(index);
+	}
+
+	/**
+	 * @param from
+	 *            the index of the first element to keep, counting back from
+	 *            the last element for negative indexes
+	 * @return the selected elements from the given index onwards
+	 * @see #slice(int, int)
+	 */
+	public Element slice(int from) {
+		return slice(from, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Narrows the selection to a range of the selected elements, as jQuery's
+	 * slice does. Indexes count back from the last element when negative, and
+	 * are limited to the selected elements.
+	 * 
+	 * @param from
+	 *            the index of the first element to keep, inclusive
+	 * @param to
+	 *            the index of the last element to keep, exclusive
+	 * @return the selected elements within the given range
+	 */
+	public Element slice(final int from, final int to) {
+		return new Element(this, new Step() {
+			public List<WebElement> select(Element parent) {
+				return parent.elements().slice(from, to);
+			}
+		});
+	}
+
+	/**
+	 * @return the first, third, fifth and so on selected elements, that is
+	 *         those at even indexes
+	 */
+	public Element even() {
+		return every(0);
+	}
+
+	/**
+	 * @return the second, fourth, sixth and so on selected elements, that is
+	 *         those at odd indexes
+	 */
+	public Element odd() {
+		return every(1);
+	}
+
+	private Element every(final int start) {
+		return new Element(this, new Step() {
+			public List<WebElement> select(Element parent) {
+				return parent.elements().every(start, 2);
+			}
+		});
 	}
 
 	/**
@@ -312,7 +1017,8 @@ public class Element implements Iterable<Element> {
 	 * </code>
 	 * </pre>
 	 * 
-	 * Example - set the value of all the selected elements to something unique:
+	 * Example - set the value of all the selected elements to something unique
+	 * (see also {@link #apply(ETransformer)}):
 	 * 
 	 * <pre>
 	 * <code>
@@ -341,6 +1047,9 @@ public class Element implements Iterable<Element> {
 	 * </code>
 	 * </pre>
 	 * 
+	 * For tables, {@link #rows(String)} and {@link #table()} read the same
+	 * content in a single round trip.
+	 * 
 	 * The {@link ETransformer} interface enables powerful transformations, and
 	 * is worth investigating. To help you write succinct code, many common
 	 * operations are available statically using {@link ETransformers}
@@ -352,38 +1061,888 @@ public class Element implements Iterable<Element> {
 	 *         selected element
 	 */
 	public <T> EList<T> each(ETransformer<Element, T> eTransformer) {
-		return new CollectionTransformer<Element, T>(eTransformer).to(this);
+		EList<T> results = new EListImpl<T>();
+		for (Element element : this) {
+			results.add(eTransformer.to(element));
+		}
+		return results;
 	}
 
 	/**
-	 * Returns an {@link ElementMatcher}, which allows assertions and
-	 * verifications to be applied to the set of selected elements using a fluid,
-	 * declarative API.
+	 * Performs the given transformation on all the selected elements within this
+	 * {@link Element}, discarding the results. This is equivalent to
+	 * {@link #each(ETransformer)}, but avoids collecting results which are not
+	 * used, such as when the transformation only performs actions.
 	 * 
-	 * @return an {@link ElementMatcher} for all the selected elements
+	 * @param eTransformer
+	 *            the transformation to apply to all selected elements
+	 * @return this Element, supporting a fluid API
 	 */
-	public ElementMatcher verify() {
-		return new ElementMatcher(this);
+	public Element apply(ETransformer<Element, ?> eTransformer) {
+		for (Element element : this) {
+			eTransformer.to(element);
+		}
+		return this;
 	}
 
-	@Override
-	public String toString() {
-		StringBuilder sb = new StringBuilder();
-		int size = elements.size();
-		if (size > 1) {
-			for (Element element : this) {
-				sb.append(element);
-				sb.append(", ");
-			}
-		} else if (size == 0) {
-			sb.append("None");
-		} else {
-			sb.append("<");
-			sb.append(elements.first().getTagName());
-			sb.append(String.format(" id='%s'", id()));
-			sb.append(String.format(" class='%s'", attr("class")));
-			sb.append("/>");
-		}
-		return sb.toString();
+	/**
+	 * <p>
+	 * Reads the text of the cells of every selected row, where the cells of a
+	 * row are its descendants matching the given CSS selector.
+	 * </p>
+	 * <p>
+	 * When the selected elements belong to a driver which can execute
+	 * javascript, every cell is read in a single script execution. Otherwise
+	 * the cells of each row are found, and their text read, one command at a
+	 * time.
+	 * </p>
+	 * 
+	 * <pre>
+	 * <code>
+	 * List&lt;List&lt;String&gt;&gt; people = new Element(driver, "#people tbody tr").rows("td");
+	 * </code>
+	 * </pre>
+	 * 
+	 * @param cellSelector
+	 *            specified as a CSS selector
+	 * @return the text of the cells of each selected row, in selection order
+	 */
+	public List<List<String>> rows(final String cellSelector) {
+		return perform("rows", new Operation<List<List<String>>>() {
+			List<List<String>> run() {
+				return cellTexts(elements(), cellSelector);
+			}
+		});
+	}
+
+	/**
+	 * Reads the text of the cells of every selected row as
+	 * {@link #rows(String)} does, but only as the returned rows are iterated
+	 * over, a chunk of rows at a time. This keeps each script result small for
+	 * very large tables, at the cost of a round trip per chunk.
+	 * 
+	 * @param cellSelector
+	 *            specified as a CSS selector
+	 * @param chunkSize
+	 *            the number of rows read at a time
+	 * @return the text of the cells of each selected row, in selection order
+	 * @throws IllegalArgumentException
+	 *             if the chunk size is less than 1
+	 */
+	public Iterable<List<String>> rows(final String cellSelector, final int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException(String.format("At least one row must be read at a time, the chunk size %s is too small", chunkSize));
+		}
+		return new Iterable<List<String>>() {
+			public Iterator<List<String>> iterator() {
+				return new Iterator<List<String>>() {
+					private int start;
+					private int position;
+					private List<List<String>> chunk = Collections.emptyList();
+
+					public boolean hasNext() {
+						if (position < chunk.size()) {
+							return true;
+						}
+						if (start >= elements().size()) {
+							return false;
+						}
+						final int from = start;
+						chunk = perform("rows", new Operation<List<List<String>>>() {
+							List<List<String>> run() {
+								Selection rows = elements();
+								return cellTexts(rows.subList(Math.min(from, rows.size()), Math.min(from + chunkSize, rows.size())), cellSelector);
+							}
+						});
+						start += chunkSize;
+						position = 0;
+						return !chunk.isEmpty();
+					}
+
+					public List<String> next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return chunk.get(position++);
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException("Rows cannot be removed");
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * <p>
+	 * Reads the text of the cells of every row of the selected tables, other
+	 * than their header rows. Rows within a thead element, and a first row of
+	 * only th cells, are header rows. The rows of nested tables are not
+	 * included.
+	 * </p>
+	 * <p>
+	 * When the selected elements belong to a driver which can execute
+	 * javascript, all tables are read in a single script execution. Otherwise
+	 * the rows and cells of each table are found, and the text of each cell
+	 * read, one command at a time.
+	 * </p>
+	 * 
+	 * @return the text of the cells of each row, in document order
+	 */
+	public List<List<String>> table() {
+		return readTable().rows;
+	}
+
+	/**
+	 * Reads the rows of the selected tables as {@link #table()} does, keying
+	 * the text of each cell by the text of the header cell in the same
+	 * column. The headers are taken from the last header row of the first
+	 * selected table which has one. Cells beyond the last header cell are
+	 * keyed by their column index.
+	 * 
+	 * @return the text of the cells of each row keyed by column header, in
+	 *         document order
+	 * @throws IllegalStateException
+	 *             if none of the selected tables has a header row
+	 */
+	public List<Map<String, String>> tableByHeader() {
+		Table table = readTable();
+		if (table.header == null) {
+			throw new IllegalStateException("None of the selected tables has a header row, use table() instead");
+		}
+		List<Map<String, String>> keyed = new ArrayList<Map<String, String>>(table.rows.size());
+		for (List<String> row : table.rows) {
+			Map<String, String> cells = new LinkedHashMap<String, String>();
+			for (int i = 0; i < row.size(); i++) {
+				cells.put(i < table.header.size() ? table.header.get(i) : String.valueOf(i), row.get(i));
+			}
+			keyed.add(cells);
+		}
+		return keyed;
+	}
+
+	/**
+	 * Returns an {@link ElementMatcher}, which allows assertions and
+	 * verifications to be applied to the set of selected elements using a fluid,
+	 * declarative API.
+	 * 
+	 * @return an {@link ElementMatcher} for all the selected elements
+	 */
+	public ElementMatcher verify() {
+		return new ElementMatcher(this);
+	}
+
+	/**
+	 * Returns an {@link AsyncElement}, which performs the operations of this
+	 * Element without blocking the calling thread. Operations on Elements of
+	 * the same browser session are performed in the order they are requested,
+	 * while different sessions are driven in parallel.
+	 * 
+	 * @return an {@link AsyncElement} for this Element
+	 */
+	public AsyncElement async() {
+		return new AsyncElement(this);
+	}
+
+	/**
+	 * @return the browser session this Element was derived from, being the
+	 *         driver of the first Element in its lineage whose search context
+	 *         is, or whose selected elements wrap, a driver. Failing that, the
+	 *         search context it was originally located from, unless that is an
+	 *         element, in which case the driver is unknown and
+	 *         {@link #UNKNOWN_SESSION} is returned so that all such Elements
+	 *         are treated as one session.
+	 */
+	Object session() {
+		Element root = this;
+		for (Element element = this; element != null; element = element.parent) {
+			if (element.context instanceof WebDriver) {
+				return element.context;
+			}
+			if (element.context instanceof WrapsDriver) {
+				return ((WrapsDriver) element.context).getWrappedDriver();
+			}
+			if (element.elements != null) {
+				for (WebElement webElement : element.elements) {
+					if (webElement instanceof WrapsDriver) {
+						return ((WrapsDriver) webElement).getWrappedDriver();
+					}
+				}
+			}
+			root = element;
+		}
+		return root.context == null || root.context instanceof WebElement ? UNKNOWN_SESSION : root.context;
+	}
+
+	/**
+	 * Selects the elements of this Element now, rather than when it is first
+	 * used.
+	 * 
+	 * @return this Element
+	 */
+	Element select() {
+		elements();
+		return this;
+	}
+
+	private Selection elements() {
+		if (elements == null) {
+			Metrics.begin();
+			try {
+				elements = resolve();
+			} finally {
+				Metrics.end("find", selected());
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * @return the number of elements currently selected, without selecting
+	 *         the elements of an unresolved Element
+	 */
+	int selected() {
+		return elements == null ? 0 : elements.size();
+	}
+
+	/**
+	 * Selects the elements of a lazy Element, or an Element derived from
+	 * another by one of the find, traversal or index methods.
+	 */
+	private Selection resolve() {
+		if (step != null) {
+			return Selection.of(step.select(parent));
+		}
+		SelectorPlan plan = null;
+		if (selector != null) {
+			Selection fused = resolveChain();
+			if (fused != null) {
+				return fused;
+			}
+			plan = SelectorPlan.of(selector);
+			if (plan.pseudo() != null) {
+				return Selection.of(plan.pseudo().select(parent == null ? Collections.singletonList(context) : parent.elements()));
+			}
+		}
+		if (parent == null) {
+			Metrics.command();
+			return Selection.of(context.findElements(plan == null ? locator : plan.locator(context)));
+		}
+		Selection parents = parent.elements();
+		By by = locator;
+		if (plan != null) {
+			if (parents.isEmpty()) {
+				return parents;
+			}
+			by = plan.locator(parents.first());
+		}
+		Set<WebElement> unique = new LinkedHashSet<WebElement>();
+		for (WebElement webElement : parents) {
+			Metrics.command();
+			unique.addAll(webElement.findElements(by));
+		}
+		return Selection.of(unique);
+	}
+
+	/**
+	 * @return the selected elements of this Element evaluated with
+	 *         {@link #evaluateChain(boolean)}, or null if the chain could not be
+	 *         evaluated by script or doing so would not save a round trip
+	 *         or use the selector cache
+	 */
+	private Selection resolveChain() {
+		List<?> result = evaluateChain(false);
+		if (result == null) {
+			return null;
+		}
+		roundTripsSaved = ((Number) result.get(1)).intValue() - 1;
+		return Selection.of(Scripts.webElements(result.get(0)));
+	}
+
+	/**
+	 * @return the number of elements this Element would select, evaluated by
+	 *         script without selecting the elements themselves, or -1 if the
+	 *         number cannot be evaluated by script
+	 */
+	private int countChain() {
+		if (selector == null) {
+			return -1;
+		}
+		List<?> result = evaluateChain(true);
+		return result == null ? -1 : ((Number) result.get(0)).intValue();
+	}
+
+	/**
+	 * The CSS selectors of this Element and all its unresolved ancestors are
+	 * gathered so the whole chain can be evaluated by one script over the
+	 * nearest selected elements.
+	 * 
+	 * @param countOnly
+	 *            true if only the number of matching elements is required
+	 * @return the script result, [elements or count, lookups], or null if the
+	 *         chain could not be evaluated by script. When elements are
+	 *         required, null is also returned if evaluating the chain by
+	 *         script would not save a round trip, unless the chain uses
+	 *         jQuery pseudo-classes or the {@link SelectorCache} is enabled.
+	 */
+	private List<?> evaluateChain(boolean countOnly) {
+		LinkedList<String> selectors = new LinkedList<String>();
+		Element root = this;
+		while (root.elements == null && root.selector != null && root.parent != null) {
+			selectors.addFirst(root.selector);
+			root = root.parent;
+		}
+		List<WebElement> roots = null;
+		JavascriptExecutor executor;
+		if (root.elements == null && root.selector != null && root.context instanceof JavascriptExecutor) {
+			selectors.addFirst(root.selector);
+			executor = (JavascriptExecutor) root.context;
+		} else if (root == this) {
+			return null;
+		} else {
+			roots = root.elements();
+			executor = Scripts.executor(roots);
+		}
+		int lookups = roots == null ? 1 : roots.size();
+		if (countOnly && lookups == 0) {
+			return list(0, 0);
+		}
+		if (executor == null) {
+			return null;
+		}
+		List<Object> program = program(selectors);
+		if (program != null) {
+			Metrics.command();
+			return (List<?>) executor.executeScript(Scripts.QUERY, roots, program, countOnly);
+		}
+		SelectorCache cache = selectorCache;
+		if (!countOnly && cache != null && lookups > 0) {
+			Metrics.command();
+			return cache.find(executor, roots, selectors);
+		}
+		if (!countOnly && selectors.size() == 1 && lookups == 1) {
+			return null;
+		}
+		Metrics.command();
+		return (List<?>) executor.executeScript(Scripts.FIND, roots, selectors, countOnly);
+	}
+
+	/**
+	 * @return the given chain of selectors compiled for {@link Scripts#QUERY},
+	 *         or null if none of them use jQuery pseudo-classes
+	 */
+	private static List<Object> program(List<String> selectors) {
+		List<Object> program = new ArrayList<Object>(selectors.size());
+		boolean pseudo = false;
+		for (String selector : selectors) {
+			SelectorPlan plan = SelectorPlan.of(selector);
+			pseudo |= plan.pseudo() != null;
+			program.add(plan.program());
+		}
+		return pseudo ? program : null;
+	}
+
+	/**
+	 * Moves from every selected element to related elements. When a script
+	 * executor is available this is done for all selected elements in one
+	 * script, otherwise the given fallback locator is applied to each selected
+	 * element.
+	 */
+	private Element traverse(final String direction, final String selector, final By fallback) {
+		return new Element(this, new Step() {
+			public List<WebElement> select(Element parent) {
+				return parent.related(direction, selector, fallback);
+			}
+		});
+	}
+
+	private List<WebElement> related(String direction, String selector, By fallback) {
+		Selection elements = elements();
+		if (elements.isEmpty()) {
+			return elements;
+		}
+		JavascriptExecutor executor = Scripts.executor(elements);
+		if (executor != null) {
+			Metrics.command();
+			return Scripts.webElements(executor.executeScript(Scripts.TRAVERSE, elements, direction, selector));
+		}
+		if (fallback == null) {
+			return closestByLocators(elements, selector);
+		}
+		Set<WebElement> found = new LinkedHashSet<WebElement>();
+		for (WebElement element : elements) {
+			Metrics.command();
+			found.addAll(element.findElements(fallback));
+		}
+		return new ArrayList<WebElement>(found);
+	}
+
+	/**
+	 * @return a step selecting the element at the given index of the parent
+	 *         Element, counting back from the last element for negative
+	 *         indexes
+	 */
+	private static Step index(final int index) {
+		return new Step() {
+			public List<WebElement> select(Element parent) {
+				Selection elements = parent.elements();
+				int position = index < 0 ? elements.size() + index : index;
+				return position >= 0 && position < elements.size() ? elements.slice(position, position + 1) : Selection.EMPTY;
+			}
+		};
+	}
+
+	/**
+	 * Installs the {@link ElementMetrics} which all subsequent operations on
+	 * Elements, from any thread, are reported to.
+	 * 
+	 * @param metrics
+	 *            the metrics to report operations to, or null to stop
+	 *            reporting operations
+	 * @see DefaultElementMetrics
+	 */
+	public static void setMetrics(ElementMetrics metrics) {
+		Metrics.install(metrics);
+	}
+
+	/**
+	 * @return the installed {@link ElementMetrics}, or null if none is
+	 *         installed
+	 */
+	public static ElementMetrics getMetrics() {
+		return Metrics.installed();
+	}
+
+	/**
+	 * Sets the number of selected elements described by {@link #toString()},
+	 * and so by the failure messages of {@link ElementMatcher}. Elements
+	 * beyond the limit are counted but not described, as in
+	 * "&lt;li .../&gt;, ... (first 10 of 500)".
+	 * 
+	 * @param limit
+	 *            the number of elements to describe, at least 1
+	 * @throws IllegalArgumentException
+	 *             if the limit is less than 1
+	 */
+	public static void setDescriptionLimit(int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException(String.format("At least one element must be described, the limit %s is too low", limit));
+		}
+		descriptionLimit = limit;
+	}
+
+	/**
+	 * @return the number of selected elements described by
+	 *         {@link #toString()}
+	 */
+	public static int getDescriptionLimit() {
+		return descriptionLimit;
+	}
+
+	/**
+	 * <p>
+	 * Enables a cache, shared by all Elements, of the elements found by CSS
+	 * selectors in browsers which can execute javascript. Finding the same
+	 * selectors from the same elements, or from the page, again reuses the
+	 * elements found previously as long as the document has not changed since.
+	 * The check is made by a script sent in place of the lookup itself, so no
+	 * additional commands are sent to the browser, but no elements are
+	 * transferred when they are reused.
+	 * </p>
+	 * <p>
+	 * Changes to the document are counted by a MutationObserver installed in
+	 * the page on first use. Any change to the document, or loading another
+	 * page, causes every lookup to be made again. Browsers without
+	 * MutationObserver support are never cached.
+	 * </p>
+	 * 
+	 * @param size
+	 *            the number of lookups to remember, the least recently used
+	 *            are forgotten first, or 0 to disable the cache
+	 * @throws IllegalArgumentException
+	 *             if the size is negative
+	 */
+	public static void setSelectorCacheSize(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException(String.format("The selector cache cannot hold %s lookups", size));
+		}
+		selectorCache = size == 0 ? null : new SelectorCache(size);
+	}
+
+	/**
+	 * @return the number of lookups remembered by the selector cache, or 0 if
+	 *         it is disabled
+	 * @see #setSelectorCacheSize(int)
+	 */
+	public static int getSelectorCacheSize() {
+		SelectorCache cache = selectorCache;
+		return cache == null ? 0 : cache.capacity();
+	}
+
+	/**
+	 * @return the selector cache enabled by {@link #setSelectorCacheSize(int)},
+	 *         or null if it is disabled
+	 */
+	static SelectorCache selectorCache() {
+		return selectorCache;
+	}
+
+	/**
+	 * Sets the number of times an operation on this Element, and on Elements
+	 * subsequently derived from it, is retried after failing with a
+	 * {@link StaleElementReferenceException}. Before each retry the elements
+	 * are selected again through the lineage of this Element. Actions on each
+	 * selected element, such as {@link #click()} and
+	 * {@link #val(CharSequence)}, resume from the element which went stale,
+	 * rather than being repeated for the elements before it.
+	 * 
+	 * @param retries
+	 *            the number of retries, zero disables retrying
+	 * @return this Element, supporting a fluid API
+	 * @see #DEFAULT_STALE_RETRIES
+	 */
+	public Element retryStale(int retries) {
+		this.staleRetries = retries;
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Remembers the attributes, text and visibility read from each selected
+	 * element by this Element, and by Elements subsequently derived from it,
+	 * so that reading them again does not send a command to the browser.
+	 * Properties read in bulk by {@link #snapshot(String...)} and
+	 * {@link #toString()} are remembered too.
+	 * </p>
+	 * <p>
+	 * Remembered properties are forgotten when an action method such as
+	 * {@link #click()} or {@link #val(CharSequence)} is invoked, when the
+	 * selected elements go stale, or when {@link #refresh()} is called. Changes
+	 * to the page made any other way, such as by a timer in the page, are not
+	 * seen until then.
+	 * </p>
+	 * 
+	 * @return this Element, supporting a fluid API
+	 * @see #cacheHits()
+	 * @see #cacheMisses()
+	 */
+	public Element cache() {
+		if (cache == null) {
+			cache = new PropertyCache();
+		}
+		return this;
+	}
+
+	/**
+	 * Forgets the properties remembered by {@link #cache()}, and discards the
+	 * selection of a lazy Element or an Element derived from another, so that
+	 * both are read from the browser again on next use.
+	 * 
+	 * @return this Element, supporting a fluid API
+	 */
+	public Element refresh() {
+		invalidate();
+		return this;
+	}
+
+	/**
+	 * @return the number of properties read from the cache enabled by
+	 *         {@link #cache()} rather than the browser, shared by all Elements
+	 *         using the same cache, or 0 if no cache is enabled
+	 */
+	public int cacheHits() {
+		return cache == null ? 0 : cache.hits();
+	}
+
+	/**
+	 * @return the number of properties which had to be read from the browser
+	 *         since the cache enabled by {@link #cache()} did not hold them,
+	 *         or 0 if no cache is enabled
+	 */
+	public int cacheMisses() {
+		return cache == null ? 0 : cache.misses();
+	}
+
+	/**
+	 * @return the number of times this Element has selected its elements again
+	 *         after they went stale
+	 * @see #retryStale(int)
+	 */
+	public int heals() {
+		return heals;
+	}
+
+	/**
+	 * Performs the given operation, retrying it after selecting the elements
+	 * again if it fails with a {@link StaleElementReferenceException}. An
+	 * operation acting on each selected element in turn resumes from the
+	 * element which went stale, see {@link Operation#completed}.
+	 */
+	private <T> T perform(String name, Operation<T> operation) {
+		Metrics.begin();
+		try {
+			int retries = 0;
+			while (true) {
+				try {
+					return operation.run();
+				} catch (StaleElementReferenceException e) {
+					if (retries++ >= staleRetries || !heal()) {
+						throw e;
+					}
+				}
+			}
+		} finally {
+			Metrics.end(name, selected());
+		}
+	}
+
+	/**
+	 * Discards the selection of this Element and of every Element it was
+	 * derived from, so that they are selected again on next use.
+	 * 
+	 * @return false if this Element has no lineage to select its elements
+	 *         again with, in that neither it nor any Element it was derived
+	 *         from looks up elements with a selector
+	 */
+	private boolean heal() {
+		if (!hasLookup()) {
+			return false;
+		}
+		invalidateLineage();
+		heals++;
+		return true;
+	}
+
+	/**
+	 * Discards the selection of this Element and of every Element it was
+	 * derived from, as {@link #invalidate()} does for this Element alone, so
+	 * that elements which have since appeared or been replaced are found.
+	 */
+	void invalidateLineage() {
+		for (Element element = this; element != null; element = element.parent) {
+			element.invalidate();
+		}
+	}
+
+	private boolean hasLookup() {
+		for (Element element = this; element != null; element = element.parent) {
+			if (element.locator != null || element.selector != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return a {@link JavascriptExecutor} able to run scripts against the
+	 *         elements of this Element, or null if none is available. Unlike
+	 *         {@link Scripts#executor(List)} this does not require any
+	 *         elements to be selected when the Element was located from a
+	 *         javascript capable driver.
+	 */
+	JavascriptExecutor executor() {
+		if (elements != null && !elements.isEmpty()) {
+			return Scripts.executor(elements);
+		}
+		if (context instanceof JavascriptExecutor) {
+			return (JavascriptExecutor) context;
+		}
+		return parent == null ? Scripts.executor(elements()) : parent.executor();
+	}
+
+	/**
+	 * Discards the selection of a lazy Element, or an Element derived from
+	 * another, so that it is selected again on next use. Any properties
+	 * remembered by {@link #cache()} are forgotten.
+	 */
+	void invalidate() {
+		if (cache != null) {
+			cache.clear();
+		}
+		if (parent != null || context != null) {
+			elements = null;
+			roundTripsSaved = 0;
+			count = -1;
+		}
+	}
+
+	/**
+	 * Describes the tag name, id and class of the selected elements, up to
+	 * the limit set by {@link #setDescriptionLimit(int)}. The described
+	 * elements are read in a single script execution when possible.
+	 */
+	@Override
+	public String toString() {
+		return perform("toString", new Operation<String>() {
+			String run() {
+				Selection elements = elements();
+				if (elements.isEmpty()) {
+					return "None";
+				}
+				int described = Math.min(elements.size(), descriptionLimit);
+				String description = describe(elements.subList(0, described), cache).toString();
+				return described < elements.size() ? String.format("%s, ... (first %s of %s)", description, described, elements.size()) : description;
+			}
+		});
+	}
+
+	/**
+	 * @return a snapshot of the tag name, id and class of the given elements,
+	 *         reading the id and class through the given cache when it is not
+	 *         null
+	 */
+	private static ElementSnapshot describe(List<WebElement> elements, PropertyCache cache) {
+		List<String> names = list("id", "class");
+		ElementSnapshot snapshot = new ElementSnapshot(names);
+		JavascriptExecutor executor = Scripts.executor(elements);
+		if (executor != null) {
+			Metrics.command();
+			List<?> results = (List<?>) executor.executeScript(Scripts.DESCRIBE, elements, names);
+			for (int i = 0; i < results.size(); i++) {
+				List<?> values = (List<?>) results.get(i);
+				List<String> attributes = Scripts.strings(values.get(1));
+				snapshot.add((String) values.get(0), null, false, attributes);
+				if (cache != null) {
+					cache.rememberAttribute(elements.get(i), "id", attributes.get(0));
+					cache.rememberAttribute(elements.get(i), "class", attributes.get(1));
+				}
+			}
+		} else {
+			for (WebElement element : elements) {
+				Metrics.command();
+				snapshot.add(element.getTagName(), null, false, Expressive.<String> list(attribute(cache, element, "id"), attribute(cache, element, "class")));
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return the named attribute of the given element, read through the
+	 *         given cache when it is not null
+	 */
+	private static String attribute(PropertyCache cache, WebElement element, String name) {
+		if (cache != null) {
+			return cache.attribute(element, name);
+		}
+		Metrics.command();
+		return element.getAttribute(name);
+	}
+
+	private Table readTable() {
+		return perform("table", new Operation<Table>() {
+			Table run() {
+				return table(elements());
+			}
+		});
+	}
+
+	/**
+	 * @return the text of the descendants of each of the given rows matching
+	 *         the given CSS selector
+	 */
+	private static List<List<String>> cellTexts(List<WebElement> rows, String cellSelector) {
+		List<List<String>> texts = new ArrayList<List<String>>(rows.size());
+		if (rows.isEmpty()) {
+			return texts;
+		}
+		JavascriptExecutor executor = Scripts.executor(rows);
+		if (executor != null) {
+			Metrics.command();
+			for (Object row : (List<?>) executor.executeScript(Scripts.ROWS, rows, cellSelector)) {
+				texts.add(Scripts.strings(row));
+			}
+		} else {
+			for (WebElement row : rows) {
+				Metrics.command();
+				texts.add(texts(row.findElements(SelectorPlan.of(cellSelector).locator(row))));
+			}
+		}
+		return texts;
+	}
+
+	private static Table table(List<WebElement> tables) {
+		Table table = new Table();
+		if (tables.isEmpty()) {
+			return table;
+		}
+		JavascriptExecutor executor = Scripts.executor(tables);
+		if (executor != null) {
+			Metrics.command();
+			List<?> result = (List<?>) executor.executeScript(Scripts.TABLE, tables);
+			table.header = result.get(0) == null ? null : Scripts.strings(result.get(0));
+			for (Object row : (List<?>) result.get(1)) {
+				table.rows.add(Scripts.strings(row));
+			}
+			return table;
+		}
+		for (WebElement element : tables) {
+			Metrics.commands(2);
+			List<WebElement> rows = element.findElements(By.xpath("./tr | ./*/tr"));
+			List<WebElement> head = element.findElements(By.xpath("./thead/tr"));
+			List<String> header = null;
+			for (int r = 0; r < rows.size(); r++) {
+				Metrics.command();
+				List<WebElement> cells = rows.get(r).findElements(By.xpath("./td | ./th"));
+				if (head.contains(rows.get(r)) || (r == 0 && headings(cells))) {
+					header = texts(cells);
+				} else {
+					table.rows.add(texts(cells));
+				}
+			}
+			if (table.header == null) {
+				table.header = header;
+			}
+		}
+		return table;
+	}
+
+	private static boolean headings(List<WebElement> cells) {
+		for (WebElement cell : cells) {
+			Metrics.command();
+			if (!"th".equalsIgnoreCase(cell.getTagName())) {
+				return false;
+			}
+		}
+		return !cells.isEmpty();
+	}
+
+	private static List<String> texts(List<WebElement> cells) {
+		List<String> texts = new ArrayList<String>(cells.size());
+		for (WebElement cell : cells) {
+			Metrics.command();
+			texts.add(cell.getText());
+		}
+		return texts;
+	}
+
+	/**
+	 * The header and body rows read from one or more tables
+	 */
+	private static final class Table {
+		private List<String> header;
+		private final List<List<String>> rows = new ArrayList<List<String>>();
+	}
+
+	/**
+	 * Derives the selected elements of an Element from those of its parent.
+	 */
+	private interface Step {
+		List<WebElement> select(Element parent);
+	}
+
+	/**
+	 * An operation on the selected elements, which is performed again if they
+	 * go stale.
+	 */
+	private abstract static class Operation<T> {
+		/**
+		 * The number of selected elements an action has been performed on,
+		 * so that when it is performed again after the elements are selected
+		 * again, it is not repeated for those elements
+		 */
+		int completed;
+
+		abstract T run();
 	}
 }
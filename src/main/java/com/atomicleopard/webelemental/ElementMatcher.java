@@ -24,8 +24,23 @@ import static com.atomicleopard.webelemental.ElementMatchers.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
+import org.hamcrest.StringDescription;
+import org.openqa.selenium.StaleElementReferenceException;
+
+import com.atomicleopard.webelemental.matchers.PropertyMatcher;
+import com.atomicleopard.webelemental.matchers.QuantifiedMatcher;
+import com.atomicleopard.webelemental.matchers.QuantifiedMatcher.Quantifier;
 
 /**
  * <p>
@@ -53,18 +68,186 @@ import org.hamcrest.Matchers;
  * JUnit, you can access {@link Matchers} from the factory class
  * {@link ElementMatchers}.
  * </p>
+ * <p>
+ * Each assertion is normally made as soon as it is invoked. Alternatively,
+ * {@link #batch()} collects assertions so that {@link #assertAll()} can make
+ * them together, reading the properties they need in a single round trip and
+ * reporting every assertion which fails:
+ * 
+ * <pre>
+ * <code>
+ * element.verify().batch().isPresent().hasId("x").hasValue("y").isVisible().assertAll();
+ * </code>
+ * </pre>
+ * </p>
+ * <p>
+ * Assertions on the id, class, attributes, value, text and visibility are
+ * made against the first selected element, unless {@link #all()} or
+ * {@link #any()} is invoked to make them against the whole selection.
+ * </p>
  * 
  * @see Element
  * @see ElementMatchers
  */
 public class ElementMatcher {
+	/**
+	 * The time, in seconds, {@link #eventually()} waits for assertions to hold
+	 */
+	public static final long DEFAULT_TIMEOUT_SECONDS = 10;
+
 	private Element element;
+	private long timeoutMillis;
+	private List<Matcher<Element>> batch;
+	private Quantifier quantifier;
 
 	public ElementMatcher(Element element) {
 		super();
 		this.element = element;
 	}
 
+	/**
+	 * <p>
+	 * Makes all subsequent assertions wait up to the given amount of time for
+	 * the Element to satisfy them, rather than failing immediately.
+	 * </p>
+	 * <p>
+	 * While an assertion does not hold, the page is watched for changes with a
+	 * MutationObserver in asynchronous scripts lasting up to a second each, and
+	 * the assertion is tried again once the page has changed, or the second
+	 * has passed. Lazy Elements, and Elements obtained from the find methods,
+	 * select their elements again each time an assertion is tried, along with
+	 * every Element they were derived from.
+	 * </p>
+	 * <p>
+	 * When the driver cannot execute asynchronous scripts, its script timeout
+	 * is shorter than a second (Selenium's default script timeout is 0), or
+	 * the browser does not support MutationObserver, the assertion is instead
+	 * polled with a gradually increasing delay.
+	 * </p>
+	 * 
+	 * @param timeout
+	 *            the maximum time to wait for each assertion to hold
+	 * @param unit
+	 *            the unit of the given timeout
+	 * @return this {@link ElementMatcher}, supporting a fluid API
+	 */
+	public ElementMatcher within(long timeout, TimeUnit unit) {
+		this.timeoutMillis = unit.toMillis(timeout);
+		return this;
+	}
+
+	/**
+	 * Makes all subsequent assertions wait up to
+	 * {@value #DEFAULT_TIMEOUT_SECONDS} seconds for the Element to satisfy them.
+	 * 
+	 * @return this {@link ElementMatcher}, supporting a fluid API
+	 * @see #within(long, TimeUnit)
+	 */
+	public ElementMatcher eventually() {
+		return within(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Makes all subsequent assertions on the id, class, attributes, value,
+	 * text and visibility hold for every selected element, rather than only
+	 * the first. The properties of all selected elements are read at once,
+	 * and a failed assertion reports the indexes of the elements it failed
+	 * for.
+	 * 
+	 * @return this {@link ElementMatcher}, supporting a fluid API
+	 * @see ElementMatchers#everyElement(Matcher)
+	 */
+	public ElementMatcher all() {
+		this.quantifier = Quantifier.EVERY;
+		return this;
+	}
+
+	/**
+	 * Makes all subsequent assertions on the id, class, attributes, value,
+	 * text and visibility hold for at least one selected element, rather than
+	 * the first.
+	 * 
+	 * @return this {@link ElementMatcher}, supporting a fluid API
+	 * @see #all()
+	 * @see ElementMatchers#anyElement(Matcher)
+	 */
+	public ElementMatcher any() {
+		this.quantifier = Quantifier.ANY;
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Collects all subsequent assertions rather than making them immediately.
+	 * The collected assertions are made by {@link #assertAll()}, which must be
+	 * invoked for them to have any effect.
+	 * </p>
+	 * 
+	 * @return this {@link ElementMatcher}, supporting a fluid API
+	 */
+	public ElementMatcher batch() {
+		this.batch = new ArrayList<Matcher<Element>>();
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Makes all assertions collected since {@link #batch()} was invoked, and
+	 * returns to making assertions immediately.
+	 * </p>
+	 * <p>
+	 * When the selected elements belong to a driver which can execute
+	 * javascript, the properties needed by the assertions on the id, class,
+	 * attributes, value, text and visibility of the Element are read in a
+	 * single script execution. Any other assertions are made against the
+	 * Element as usual.
+	 * </p>
+	 * <p>
+	 * If any assertion fails, an {@link AssertionError} describing every
+	 * failed assertion is thrown. When waiting has been requested with
+	 * {@link #within(long, TimeUnit)} or {@link #eventually()}, the assertions
+	 * are tried together until they all hold.
+	 * </p>
+	 * 
+	 * @return this {@link ElementMatcher}, supporting a fluid API
+	 * @throws IllegalStateException
+	 *             if {@link #batch()} has not been invoked
+	 */
+	public ElementMatcher assertAll() {
+		if (batch == null) {
+			throw new IllegalStateException("No assertions have been collected, assertAll() can only be used after batch()");
+		}
+		List<Matcher<Element>> matchers = batch;
+		batch = null;
+		Metrics.begin();
+		try {
+			assertAll(matchers);
+		} finally {
+			Metrics.end("verify", element.selected());
+		}
+		return this;
+	}
+
+	private void assertAll(List<Matcher<Element>> matchers) {
+		if (timeoutMillis > 0) {
+			long deadline = System.currentTimeMillis() + timeoutMillis;
+			Waiter waiter = new Waiter(element.executor());
+			long remaining = timeoutMillis;
+			while (remaining > 0) {
+				if (failuresNow(matchers).isEmpty()) {
+					return;
+				}
+				waiter.await(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+		}
+		ElementSnapshot snapshot = scriptedSnapshot(matchers);
+		List<Matcher<Element>> failures = failures(matchers, snapshot);
+		if (!failures.isEmpty()) {
+			throw new AssertionError(describeFailures(matchers.size(), failures, snapshot == null ? describedSnapshot(failures) : snapshot));
+		}
+	}
+
 	/**
 	 * Asserts that the Element is present, in that at least one element was
 	 * selected
@@ -72,8 +255,7 @@ public class ElementMatcher {
 	 * @return this {@link ElementMatcher}, supporting a fluid API
 	 */
 	public ElementMatcher isPresent() {
-		assertThat(element, size(not(0)));
-		return this;
+		return verify(size(not(0)));
 	}
 
 	/**
@@ -83,8 +265,7 @@ public class ElementMatcher {
 	 * @return this {@link ElementMatcher}, supporting a fluid API
 	 */
 	public ElementMatcher isNotPresent() {
-		assertThat(element, size(0));
-		return this;
+		return verify(size(0));
 	}
 
 	/**
@@ -94,8 +275,7 @@ public class ElementMatcher {
 	 * @return this {@link ElementMatcher}, supporting a fluid API
 	 */
 	public ElementMatcher isNotEmpty() {
-		assertThat(trimToNull(element.text()), not(nullValue()));
-		return this;
+		return verify(text(new NotBlank()));
 	}
 
 	/**
@@ -117,8 +297,7 @@ public class ElementMatcher {
 	 * @return this {@link ElementMatcher}, supporting a fluid API
 	 */
 	public ElementMatcher hasSize(Matcher<Integer> matcher) {
-		assertThat(element, size(matcher));
-		return this;
+		return verify(size(matcher));
 	}
 
 	/**
@@ -128,8 +307,7 @@ public class ElementMatcher {
 	 * @see Element#isVisible()
 	 */
 	public ElementMatcher isVisible() {
-		assertThat(element.isVisible(), is(true));
-		return this;
+		return verify(visible());
 	}
 
 	/**
@@ -139,8 +317,7 @@ public class ElementMatcher {
 	 * @see Element#isVisible()
 	 */
 	public ElementMatcher isNotVisible() {
-		assertThat(element.isVisible(), is(false));
-		return this;
+		return verify(notVisible());
 	}
 
 	/**
@@ -166,8 +343,7 @@ public class ElementMatcher {
 	 * @return this {@link ElementMatcher}, supporting a fluid API
 	 */
 	public ElementMatcher hasAttribute(String attribute, Matcher<String> matcher) {
-		assertThat(element, attr(attribute, matcher));
-		return this;
+		return verify(attr(attribute, matcher));
 	}
 
 	/**
@@ -189,8 +365,7 @@ public class ElementMatcher {
 	 * @return this {@link ElementMatcher}, supporting a fluid API
 	 */
 	public ElementMatcher hasText(Matcher<String> matcher) {
-		assertThat(element.text(), matcher);
-		return this;
+		return verify(text(matcher));
 	}
 
 	/**
@@ -201,8 +376,7 @@ public class ElementMatcher {
 	 * @return this {@link ElementMatcher}, supporting a fluid API
 	 */
 	public ElementMatcher hasValue(String value) {
-		assertThat(element, value(is(value)));
-		return this;
+		return verify(value(is(value)));
 	}
 
 	/**
@@ -213,8 +387,7 @@ public class ElementMatcher {
 	 * @return this {@link ElementMatcher}, supporting a fluid API
 	 */
 	public ElementMatcher hasValue(Matcher<String> matcher) {
-		assertThat(element, value(matcher));
-		return this;
+		return verify(value(matcher));
 	}
 
 	/**
@@ -225,8 +398,7 @@ public class ElementMatcher {
 	 * @return this {@link ElementMatcher}, supporting a fluid API
 	 */
 	public ElementMatcher hasId(String id) {
-		assertThat(element, id(id));
-		return this;
+		return verify(id(id));
 	}
 
 	/**
@@ -237,8 +409,7 @@ public class ElementMatcher {
 	 * @return this {@link ElementMatcher}, supporting a fluid API
 	 */
 	public ElementMatcher hasId(Matcher<String> matcher) {
-		assertThat(element, id(matcher));
-		return this;
+		return verify(id(matcher));
 	}
 
 	/**
@@ -249,10 +420,188 @@ public class ElementMatcher {
 	 * @return this {@link ElementMatcher}, supporting a fluid API
 	 */
 	public ElementMatcher using(Matcher<Element> matcher) {
-		assertThat(element, matcher);
+		return verify(matcher);
+	}
+
+	private ElementMatcher verify(Matcher<Element> matcher) {
+		if (quantifier != null && matcher instanceof PropertyMatcher) {
+			matcher = new QuantifiedMatcher(quantifier, matcher);
+		}
+		if (batch != null) {
+			batch.add(matcher);
+			return this;
+		}
+		Metrics.begin();
+		try {
+			verifyNow(matcher);
+		} finally {
+			Metrics.end("verify", element.selected());
+		}
 		return this;
 	}
 
+	private void verifyNow(Matcher<Element> matcher) {
+		if (timeoutMillis > 0) {
+			long deadline = System.currentTimeMillis() + timeoutMillis;
+			Waiter waiter = new Waiter(element.executor());
+			long remaining = timeoutMillis;
+			while (remaining > 0) {
+				if (matchesNow(matcher)) {
+					return;
+				}
+				waiter.await(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+		}
+		if (!isProperty(matcher) && !(matcher instanceof QuantifiedMatcher)) {
+			assertThat(element, matcher);
+		} else if (!matcher.matches(element)) {
+			ElementSnapshot snapshot = describedSnapshot(Collections.singletonList(matcher));
+			StringDescription description = new StringDescription();
+			description.appendText("\nExpected: ");
+			describeExpected(description, matcher, snapshot);
+			description.appendText("\n     got: ");
+			describeActual(description, matcher, snapshot);
+			throw new AssertionError(description.appendText("\n").toString());
+		}
+	}
+
+	private boolean matchesNow(Matcher<Element> matcher) {
+		element.invalidateLineage();
+		try {
+			return matcher.matches(element);
+		} catch (StaleElementReferenceException e) {
+			return false;
+		}
+	}
+
+	private List<Matcher<Element>> failuresNow(List<Matcher<Element>> matchers) {
+		element.invalidateLineage();
+		try {
+			return failures(matchers, scriptedSnapshot(matchers));
+		} catch (StaleElementReferenceException e) {
+			return matchers;
+		}
+	}
+
+	/**
+	 * @return the given matchers which do not match the Element. Property
+	 *         matchers are evaluated against the given snapshot, when one was
+	 *         taken, and any other matchers against the Element.
+	 */
+	private List<Matcher<Element>> failures(List<Matcher<Element>> matchers, ElementSnapshot snapshot) {
+		List<Matcher<Element>> failures = new ArrayList<Matcher<Element>>();
+		for (Matcher<Element> matcher : matchers) {
+			boolean matches;
+			if (snapshot != null && matcher instanceof PropertyMatcher) {
+				matches = ((PropertyMatcher) matcher).matches(snapshot, 0);
+			} else if (snapshot != null && isQuantifiedProperty(matcher)) {
+				matches = ((QuantifiedMatcher) matcher).matches(snapshot);
+			} else {
+				matches = matcher.matches(element);
+			}
+			if (!matches) {
+				failures.add(matcher);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * @return one snapshot of the first selected element, or of all selected
+	 *         elements when a quantified property matcher needs them, when it
+	 *         can be taken by script, otherwise null
+	 */
+	private ElementSnapshot scriptedSnapshot(List<Matcher<Element>> matchers) {
+		return element.executor() == null ? null : snapshot(matchers);
+	}
+
+	/**
+	 * @return a snapshot of the properties the given matchers verify, to
+	 *         report the actual values of failed assertions, or null if it
+	 *         could not be taken
+	 */
+	private ElementSnapshot describedSnapshot(List<Matcher<Element>> failures) {
+		for (Matcher<Element> failure : failures) {
+			if (isProperty(failure)) {
+				try {
+					return snapshot(failures);
+				} catch (RuntimeException e) {
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
+	private ElementSnapshot snapshot(List<Matcher<Element>> matchers) {
+		Set<String> attributes = new LinkedHashSet<String>();
+		boolean quantified = false;
+		for (Matcher<Element> matcher : matchers) {
+			if (matcher instanceof PropertyMatcher) {
+				attributes.addAll(((PropertyMatcher) matcher).attributes());
+			} else if (isQuantifiedProperty(matcher)) {
+				attributes.addAll(((QuantifiedMatcher) matcher).attributes());
+				quantified = true;
+			}
+		}
+		Element snapshotted = quantified ? element : element.first();
+		return snapshotted.snapshot(new ArrayList<String>(attributes));
+	}
+
+	private static boolean isProperty(Matcher<Element> matcher) {
+		return matcher instanceof PropertyMatcher || isQuantifiedProperty(matcher);
+	}
+
+	private static boolean isQuantifiedProperty(Matcher<Element> matcher) {
+		return matcher instanceof QuantifiedMatcher && ((QuantifiedMatcher) matcher).attributes() != null;
+	}
+
+	private String describeFailures(int total, List<Matcher<Element>> failures, ElementSnapshot snapshot) {
+		StringDescription description = new StringDescription();
+		description.appendText(String.format("%s of %s assertions failed", failures.size(), total));
+		for (Matcher<Element> failure : failures) {
+			description.appendText("\nExpected: ");
+			describeExpected(description, failure, snapshot);
+			description.appendText("\n     got: ");
+			describeActual(description, failure, snapshot);
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Describes the given matcher, followed by the indexes of the elements a
+	 * quantified matcher failed for. These are found again from the given
+	 * snapshot, when it captured the verified property, or from the Element.
+	 */
+	private void describeExpected(Description description, Matcher<Element> matcher, ElementSnapshot snapshot) {
+		description.appendDescriptionOf(matcher);
+		if (matcher instanceof QuantifiedMatcher) {
+			QuantifiedMatcher quantified = (QuantifiedMatcher) matcher;
+			List<Integer> failures = snapshot != null && isQuantifiedProperty(matcher) ? quantified.failures(snapshot) : quantified.failures(element);
+			if (!failures.isEmpty()) {
+				description.appendText(String.format(", failed for the elements at %s", failures));
+			}
+		}
+	}
+
+	/**
+	 * Describes the actual value of the property verified by the given
+	 * matcher, as captured by the given snapshot, or the Element itself when
+	 * the matcher does not verify a captured property.
+	 */
+	private void describeActual(Description description, Matcher<Element> matcher, ElementSnapshot snapshot) {
+		if (snapshot != null && snapshot.isEmpty() && isProperty(matcher)) {
+			description.appendText(snapshot.toString());
+		} else if (snapshot != null && matcher instanceof PropertyMatcher) {
+			description.appendValue(((PropertyMatcher) matcher).actual(snapshot, 0));
+		} else if (snapshot != null && isQuantifiedProperty(matcher)) {
+			description.appendValueList("[", ", ", "]", ((QuantifiedMatcher) matcher).actual(snapshot));
+		} else {
+			description.appendText(String.valueOf(element));
+		}
+	}
+
 	String trimToNull(String string) {
 		if (string != null) {
 			string = string.trim();
@@ -262,4 +611,14 @@ public class ElementMatcher {
 		}
 		return string;
 	}
+
+	private class NotBlank extends BaseMatcher<String> {
+		public boolean matches(Object item) {
+			return trimToNull((String) item) != null;
+		}
+
+		public void describeTo(Description description) {
+			description.appendText("not empty");
+		}
+	}
 }
@@ -23,7 +23,6 @@ package com.atomicleopard.webelemental;
 import static org.hamcrest.Matchers.*;
 
 import org.hamcrest.Matcher;
-import org.hamcrest.Matchers;
 
 import com.atomicleopard.webelemental.matchers.HasAttributeMatcher;
 import com.atomicleopard.webelemental.matchers.HasClassMatcher;
@@ -32,6 +31,8 @@ import com.atomicleopard.webelemental.matchers.HasSizeMatcher;
 import com.atomicleopard.webelemental.matchers.HasTextMatcher;
 import com.atomicleopard.webelemental.matchers.HasValueMatcher;
 import com.atomicleopard.webelemental.matchers.IsVisibleMatcher;
+import com.atomicleopard.webelemental.matchers.QuantifiedMatcher;
+import com.atomicleopard.webelemental.matchers.QuantifiedMatcher.Quantifier;
 
 /**
  * <p>
@@ -48,7 +49,7 @@ public final class ElementMatchers {
 	}
 
 	public static Matcher<Element> id(String string) {
-		return id(is(string));
+		return new HasIdMatcher(string);
 	}
 
 	public static Matcher<Element> id(Matcher<String> matcher) {
@@ -56,7 +57,7 @@ public final class ElementMatchers {
 	}
 
 	public static Matcher<Element> cssClass(String string) {
-		return cssClass(Matchers.is(string));
+		return new HasClassMatcher(string);
 	}
 
 	public static Matcher<Element> cssClass(Matcher<String> matcher) {
@@ -64,7 +65,7 @@ public final class ElementMatchers {
 	}
 
 	public static Matcher<Element> attr(String attribute, String value) {
-		return attr(attribute, Matchers.is(value));
+		return new HasAttributeMatcher(attribute, value);
 	}
 
 	public static Matcher<Element> attr(String attribute, Matcher<String> matcher) {
@@ -72,7 +73,7 @@ public final class ElementMatchers {
 	}
 
 	public static Matcher<Element> value(String string) {
-		return value(Matchers.is(string));
+		return new HasValueMatcher(string);
 	}
 
 	public static Matcher<Element> value(Matcher<String> matcher) {
@@ -88,7 +89,7 @@ public final class ElementMatchers {
 	}
 
 	public static Matcher<Element> text(String string) {
-		return text(Matchers.is(string));
+		return new HasTextMatcher(string);
 	}
 
 	public static Matcher<Element> text(Matcher<String> matcher) {
@@ -100,6 +101,37 @@ public final class ElementMatchers {
 	}
 
 	public static Matcher<Element> notVisible() {
-		return not(new IsVisibleMatcher());
+		return new IsVisibleMatcher(false);
+	}
+
+	/**
+	 * @param matcher
+	 * @return a matcher requiring the given matcher to match every selected
+	 *         element, reading the properties of all selected elements at once
+	 *         where possible
+	 * @see QuantifiedMatcher
+	 */
+	public static Matcher<Element> everyElement(Matcher<Element> matcher) {
+		return new QuantifiedMatcher(Quantifier.EVERY, matcher);
+	}
+
+	/**
+	 * @param matcher
+	 * @return a matcher requiring the given matcher to match at least one
+	 *         selected element
+	 * @see QuantifiedMatcher
+	 */
+	public static Matcher<Element> anyElement(Matcher<Element> matcher) {
+		return new QuantifiedMatcher(Quantifier.ANY, matcher);
+	}
+
+	/**
+	 * @param matcher
+	 * @return a matcher requiring the given matcher to match none of the
+	 *         selected elements
+	 * @see QuantifiedMatcher
+	 */
+	public static Matcher<Element> noElement(Matcher<Element> matcher) {
+		return new QuantifiedMatcher(Quantifier.NO, matcher);
 	}
 }
@@ -0,0 +1,56 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+/**
+ * <p>
+ * Receives a record of every operation performed by an {@link Element} or
+ * {@link ElementMatcher}, once an implementation has been installed with
+ * {@link Element#setMetrics(ElementMetrics)}.
+ * </p>
+ * <p>
+ * Operations are named after the method performing them, such as "find",
+ * "attr", "text", "click", "val" and "verify". The commands sent to the
+ * browser while an operation invokes another are attributed to the inner
+ * operation, so the commands and time recorded for each operation never
+ * overlap and can be added together.
+ * </p>
+ * <p>
+ * Operations may be recorded from many threads at once, implementations must
+ * be thread-safe.
+ * </p>
+ * 
+ * @see DefaultElementMetrics
+ */
+public interface ElementMetrics {
+	/**
+	 * @param operation
+	 *            the name of the operation performed
+	 * @param selected
+	 *            the number of elements selected by the Element the operation
+	 *            was performed on
+	 * @param commands
+	 *            the number of commands sent to the browser by the operation
+	 * @param nanos
+	 *            the time taken by the operation, in nanoseconds
+	 */
+	void record(String operation, int selected, int commands, long nanos);
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+/**
+ * <p>
+ * The scripts {@link Element} executes in the browser, each identified by its
+ * exact source. Drivers without a javascript engine, such as the in-memory
+ * driver of webelemental-testkit, can use them to recognise each script and
+ * answer it themselves.
+ * </p>
+ * <p>
+ * The sources are an implementation detail of {@link Element} and change
+ * between releases, so they should be looked up here rather than copied.
+ * </p>
+ */
+public enum ElementScript {
+	/**
+	 * Returns [tagName, text, visible, [attribute values...]] for each element
+	 * in arguments[0]
+	 */
+	SNAPSHOT(Scripts.SNAPSHOT),
+	/**
+	 * Returns [tagName, [attribute values...]] for each element in
+	 * arguments[0]
+	 */
+	DESCRIBE(Scripts.DESCRIBE),
+	/**
+	 * Returns the texts of the descendants of each element in arguments[0]
+	 * matching the CSS selector arguments[1]
+	 */
+	ROWS(Scripts.ROWS),
+	/**
+	 * Returns [header, rows] holding the cell texts of the tables in
+	 * arguments[0]
+	 */
+	TABLE(Scripts.TABLE),
+	/**
+	 * Returns the elements in arguments[0] for which the predicate
+	 * arguments[1] evaluates to arguments[2]
+	 */
+	FILTER(Scripts.FILTER),
+	/**
+	 * Returns the outer html of a copy of each element in arguments[0], with
+	 * elements which are not visible marked by {@link #HIDDEN_ATTRIBUTE}
+	 */
+	DETACH(Scripts.DETACH),
+	/**
+	 * Applies each CSS selector in arguments[1] in turn from the elements in
+	 * arguments[0], or the document if null, returning [elements, lookups], or
+	 * [count, lookups] when arguments[2] is true
+	 */
+	FIND(Scripts.FIND),
+	/**
+	 * Returns [generation] if the document is still at the generation
+	 * arguments[2], otherwise [generation, elements, lookups] as {@link #FIND}
+	 */
+	CACHED_FIND(Scripts.CACHED_FIND),
+	/**
+	 * Evaluates the compiled jQuery style selectors in arguments[1] from the
+	 * elements in arguments[0], returning results as {@link #FIND} does
+	 */
+	QUERY(Scripts.QUERY),
+	/**
+	 * Moves from each element in arguments[0] in the direction named by
+	 * arguments[1], filtering 'closest' by the CSS selector arguments[2]
+	 */
+	TRAVERSE(Scripts.TRAVERSE),
+	/**
+	 * An asynchronous script completing with the generation of the document
+	 * once it changes from arguments[1], or after arguments[0] milliseconds
+	 */
+	AWAIT_MUTATION(Scripts.AWAIT_MUTATION),
+	/**
+	 * Assigns the values in arguments[2] to the elements in arguments[0], or
+	 * to their descendants matching the CSS selectors in arguments[1], firing
+	 * 'input' and 'change' events
+	 */
+	FILL(Scripts.FILL);
+
+	/**
+	 * The attribute marking copies of elements which are not visible, in the
+	 * html returned by {@link #DETACH}
+	 */
+	public static final String HIDDEN_ATTRIBUTE = DetachedWebElement.HIDDEN;
+
+	private final String source;
+
+	private ElementScript(String source) {
+		this.source = source;
+	}
+
+	/**
+	 * @return the exact source of this script, as passed to
+	 *         {@link org.openqa.selenium.JavascriptExecutor}
+	 */
+	public String source() {
+		return source;
+	}
+
+	/**
+	 * @param source
+	 *            the source of an executed script
+	 * @return the script with the given source, or null if it is not one of
+	 *         the scripts executed by {@link Element}
+	 */
+	public static ElementScript of(String source) {
+		for (ElementScript script : values()) {
+			if (script.source.equals(source)) {
+				return script;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,259 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static com.atomicleopard.expressive.Expressive.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.atomicleopard.expressive.EList;
+import com.atomicleopard.expressive.EListImpl;
+import com.atomicleopard.expressive.Expressive;
+
+/**
+ * <p>
+ * An {@link ElementSnapshot} is an immutable, local copy of the tag name,
+ * text, visibility and a chosen set of attributes of every element selected
+ * by an {@link Element} at the time {@link Element#snapshot(String...)} was
+ * invoked.
+ * </p>
+ * <p>
+ * Querying a snapshot never goes back to the browser, which makes it the
+ * cheapest way of reading several properties from many elements. As with
+ * {@link Element}, the query methods which do not take an index act on the
+ * first selected element.
+ * </p>
+ * <p>
+ * Only the attributes named when the snapshot was taken are available,
+ * asking for any other attribute results in an
+ * {@link IllegalArgumentException}.
+ * </p>
+ * 
+ * @see Element#snapshot(String...)
+ */
+public final class ElementSnapshot {
+	private final List<String> attributes;
+	private final List<String> tagNames;
+	private final List<String> texts;
+	private final List<Boolean> visibilities;
+	private final List<List<String>> values;
+
+	ElementSnapshot(List<String> attributes) {
+		this.attributes = Collections.unmodifiableList(new ArrayList<String>(attributes));
+		this.tagNames = new ArrayList<String>();
+		this.texts = new ArrayList<String>();
+		this.visibilities = new ArrayList<Boolean>();
+		this.values = new ArrayList<List<String>>();
+	}
+
+	void add(String tagName, String text, boolean visible, List<String> values) {
+		this.tagNames.add(tagName);
+		this.texts.add(text);
+		this.visibilities.add(visible);
+		this.values.add(Collections.unmodifiableList(new ArrayList<String>(values)));
+	}
+
+	/**
+	 * @return the names of the attributes captured by this snapshot
+	 */
+	public List<String> attributes() {
+		return attributes;
+	}
+
+	/**
+	 * @return the number of elements captured in this snapshot
+	 */
+	public int size() {
+		return tagNames.size();
+	}
+
+	/**
+	 * @return true if no elements were captured in this snapshot
+	 */
+	public boolean isEmpty() {
+		return tagNames.isEmpty();
+	}
+
+	/**
+	 * @param index
+	 * @return the tag name of the element at the given index, or null if no
+	 *         element was captured at the given index
+	 */
+	public String tagName(int index) {
+		return inRange(index) ? tagNames.get(index) : null;
+	}
+
+	/**
+	 * @param index
+	 * @return the text of the element at the given index, or null if no
+	 *         element was captured at the given index
+	 */
+	public String text(int index) {
+		return inRange(index) ? texts.get(index) : null;
+	}
+
+	/**
+	 * @param index
+	 * @return true if the element at the given index was visible, false if it
+	 *         was not visible or no element was captured at the given index
+	 */
+	public boolean isVisible(int index) {
+		return inRange(index) ? visibilities.get(index) : false;
+	}
+
+	/**
+	 * @param index
+	 * @param name
+	 *            the name of a captured attribute
+	 * @return the value of the named attribute on the element at the given
+	 *         index, null if the attribute does not exist, or null if no
+	 *         element was captured at the given index
+	 * @throws IllegalArgumentException
+	 *             if the named attribute was not captured by this snapshot
+	 */
+	public String attr(int index, String name) {
+		int attribute = attributeIndex(name);
+		return inRange(index) ? values.get(index).get(attribute) : null;
+	}
+
+	/**
+	 * @param name
+	 *            the name of a captured attribute
+	 * @return the value of the named attribute for every captured element, in
+	 *         selection order
+	 * @throws IllegalArgumentException
+	 *             if the named attribute was not captured by this snapshot
+	 */
+	public EList<String> attrs(String name) {
+		int attribute = attributeIndex(name);
+		EList<String> result = new EListImpl<String>();
+		for (List<String> elementValues : values) {
+			result.add(elementValues.get(attribute));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the text of every captured element, in selection order
+	 */
+	public EList<String> texts() {
+		EList<String> result = new EListImpl<String>();
+		result.addAll(texts);
+		return result;
+	}
+
+	/**
+	 * @return the text of the first captured element, or null if no elements
+	 *         were captured
+	 * @see Element#text()
+	 */
+	public String text() {
+		return text(0);
+	}
+
+	/**
+	 * @return true if the first captured element was visible
+	 * @see Element#isVisible()
+	 */
+	public boolean isVisible() {
+		return isVisible(0);
+	}
+
+	/**
+	 * @param name
+	 *            the name of a captured attribute
+	 * @return the value of the named attribute on the first captured element
+	 * @see Element#attr(String)
+	 */
+	public String attr(String name) {
+		return attr(0, name);
+	}
+
+	/**
+	 * @return the id of the first captured element, requires the 'id'
+	 *         attribute to have been captured
+	 * @see Element#id()
+	 */
+	public String id() {
+		return attr("id");
+	}
+
+	/**
+	 * @return the value of the first captured element, requires the 'value'
+	 *         attribute to have been captured
+	 * @see Element#val()
+	 */
+	public String val() {
+		return attr("value");
+	}
+
+	/**
+	 * @return the classes of the first captured element, requires the 'class'
+	 *         attribute to have been captured
+	 * @see Element#classes()
+	 */
+	public EList<String> classes() {
+		return classes(0);
+	}
+
+	/**
+	 * @param index
+	 * @return the classes of the element at the given index, requires the
+	 *         'class' attribute to have been captured
+	 * @see Element#classes()
+	 */
+	public EList<String> classes(int index) {
+		String classes = attr(index, "class");
+		return classes == null ? Expressive.<String> list() : list(classes.split("\\s"));
+	}
+
+	@Override
+	public String toString() {
+		if (isEmpty()) {
+			return "None";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < size(); i++) {
+			sb.append("<");
+			sb.append(tagNames.get(i));
+			for (int j = 0; j < attributes.size(); j++) {
+				sb.append(String.format(" %s='%s'", attributes.get(j), values.get(i).get(j)));
+			}
+			sb.append("/>");
+			sb.append(", ");
+		}
+		return sb.substring(0, sb.length() - 2);
+	}
+
+	private boolean inRange(int index) {
+		return index >= 0 && index < tagNames.size();
+	}
+
+	private int attributeIndex(String name) {
+		int index = attributes.indexOf(name);
+		if (index < 0) {
+			throw new IllegalArgumentException(String.format("The attribute '%s' was not captured by this snapshot, only %s were captured", name, attributes));
+		}
+		return index;
+	}
+}
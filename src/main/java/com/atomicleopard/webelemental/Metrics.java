@@ -0,0 +1,144 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+/**
+ * Tracks the operation being performed on each thread, counting the commands
+ * it sends to the browser and reporting it to the installed
+ * {@link ElementMetrics} when it ends. Nothing is tracked while no
+ * {@link ElementMetrics} is installed.
+ */
+final class Metrics {
+	private static volatile ElementMetrics installed;
+	private static final ThreadLocal<Frame> current = new ThreadLocal<Frame>();
+	private static final ThreadLocal<StackTraceElement[]> origin = new ThreadLocal<StackTraceElement[]>();
+
+	private Metrics() {
+	}
+
+	static void install(ElementMetrics metrics) {
+		installed = metrics;
+	}
+
+	static ElementMetrics installed() {
+		return installed;
+	}
+
+	/**
+	 * Starts an operation on the current thread, which ends with
+	 * {@link #end(String, int)}.
+	 */
+	static void begin() {
+		if (installed != null) {
+			current.set(new Frame(current.get()));
+		}
+	}
+
+	/**
+	 * Counts a command sent to the browser by the current operation.
+	 */
+	static void command() {
+		commands(1);
+	}
+
+	/**
+	 * Counts the given number of commands sent to the browser by the current
+	 * operation.
+	 */
+	static void commands(int commands) {
+		if (installed != null) {
+			Frame frame = current.get();
+			if (frame != null) {
+				frame.commands += commands;
+			}
+		}
+	}
+
+	/**
+	 * Ends the current operation, reporting it to the installed
+	 * {@link ElementMetrics}. The time taken by operations performed within
+	 * it is not included.
+	 * 
+	 * @param operation
+	 *            the name of the operation
+	 * @param selected
+	 *            the number of elements the operation was performed on
+	 */
+	static void end(String operation, int selected) {
+		Frame frame = current.get();
+		if (frame == null) {
+			return;
+		}
+		current.set(frame.parent);
+		long elapsed = System.nanoTime() - frame.start;
+		if (frame.parent != null) {
+			frame.parent.nestedNanos += elapsed;
+		}
+		ElementMetrics metrics = installed;
+		if (metrics != null) {
+			metrics.record(operation, selected, frame.commands, elapsed - frame.nestedNanos);
+		}
+	}
+
+	/**
+	 * @return the stack of the current thread, to be passed to
+	 *         {@link #origin(StackTraceElement[])} by the thread an operation
+	 *         is handed to, or null if no {@link ElementMetrics} is installed
+	 */
+	static StackTraceElement[] capture() {
+		return installed == null ? null : new Throwable().getStackTrace();
+	}
+
+	/**
+	 * Sets the stack which requested the operations subsequently performed by
+	 * the current thread.
+	 * 
+	 * @param stack
+	 *            a stack returned by {@link #capture()}, or null to clear it
+	 */
+	static void origin(StackTraceElement[] stack) {
+		if (stack == null) {
+			origin.remove();
+		} else {
+			origin.set(stack);
+		}
+	}
+
+	/**
+	 * @return the stack which requested the operations performed by the
+	 *         current thread, when they were handed to it by another thread,
+	 *         otherwise null
+	 */
+	static StackTraceElement[] origin() {
+		return origin.get();
+	}
+
+	private static final class Frame {
+		private final Frame parent;
+		private final long start = System.nanoTime();
+		private int commands;
+		private long nestedNanos;
+
+		private Frame(Frame parent) {
+			this.parent = parent;
+		}
+	}
+}
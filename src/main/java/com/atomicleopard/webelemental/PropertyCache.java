@@ -0,0 +1,114 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openqa.selenium.WebElement;
+
+/**
+ * Remembers the attributes, text and visibility read from each
+ * {@link WebElement}, so that reading them again does not send a command to
+ * the browser. Enabled with {@link Element#cache()}, and cleared whenever an
+ * action is performed or {@link Element#refresh()} is called.
+ */
+final class PropertyCache {
+	private static final String TEXT = "text";
+	private static final String DISPLAYED = "displayed";
+	private static final String ATTRIBUTE = "@";
+
+	private final Map<WebElement, Map<String, Object>> properties = new HashMap<WebElement, Map<String, Object>>();
+	private int hits;
+	private int misses;
+
+	String attribute(WebElement element, String name) {
+		String key = ATTRIBUTE + name;
+		if (!contains(element, key)) {
+			Metrics.command();
+			remember(element, key, element.getAttribute(name));
+		}
+		return (String) properties.get(element).get(key);
+	}
+
+	String text(WebElement element) {
+		if (!contains(element, TEXT)) {
+			Metrics.command();
+			remember(element, TEXT, element.getText());
+		}
+		return (String) properties.get(element).get(TEXT);
+	}
+
+	boolean displayed(WebElement element) {
+		if (!contains(element, DISPLAYED)) {
+			Metrics.command();
+			remember(element, DISPLAYED, element.isDisplayed());
+		}
+		return (Boolean) properties.get(element).get(DISPLAYED);
+	}
+
+	/**
+	 * Remembers an attribute which was read some other way, such as by
+	 * script, without counting a hit or miss.
+	 */
+	void rememberAttribute(WebElement element, String name, String value) {
+		remember(element, ATTRIBUTE + name, value);
+	}
+
+	void rememberText(WebElement element, String text) {
+		remember(element, TEXT, text);
+	}
+
+	void rememberDisplayed(WebElement element, boolean displayed) {
+		remember(element, DISPLAYED, displayed);
+	}
+
+	void clear() {
+		properties.clear();
+	}
+
+	int hits() {
+		return hits;
+	}
+
+	int misses() {
+		return misses;
+	}
+
+	private boolean contains(WebElement element, String key) {
+		Map<String, Object> values = properties.get(element);
+		if (values != null && values.containsKey(key)) {
+			hits++;
+			return true;
+		}
+		misses++;
+		return false;
+	}
+
+	private void remember(WebElement element, String key, Object value) {
+		Map<String, Object> values = properties.get(element);
+		if (values == null) {
+			values = new HashMap<String, Object>();
+			properties.put(element, values);
+		}
+		values.put(key, value);
+	}
+}
@@ -0,0 +1,415 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static com.atomicleopard.expressive.Expressive.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.InvalidSelectorException;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebElement;
+
+/**
+ * <p>
+ * A selector using the jQuery pseudo-classes :visible, :hidden,
+ * :contains(text), :eq(n), :first, :last or :has(selector), which browsers do
+ * not support natively. The selector is compiled into steps, each a native
+ * CSS selector followed by the pseudo-classes filtering its matches. As in
+ * jQuery, :first, :last and :eq(n) choose from all the elements matched so
+ * far rather than from the children of each parent, and :contains(text)
+ * searches the textContent of an element, including hidden text.
+ * </p>
+ * <p>
+ * The compiled steps are evaluated by {@link Scripts#QUERY} in a single
+ * script execution, or with a lookup and property reads per element by
+ * {@link #select(List)} when no script executor is available.
+ * </p>
+ */
+final class PseudoSelector {
+	private static final Set<String> PSEUDO_CLASSES = new HashSet<String>(Arrays.asList("visible", "hidden", "contains", "eq", "first", "last", "has"));
+	private static final String COMBINATORS = ">+~";
+
+	private final List<List<Step>> groups;
+
+	private PseudoSelector(List<List<Step>> groups) {
+		this.groups = groups;
+	}
+
+	/**
+	 * @param selector
+	 *            a CSS selector, which may use jQuery pseudo-classes
+	 * @return the compiled selector, or null if the selector does not use any
+	 *         jQuery pseudo-classes
+	 * @throws InvalidSelectorException
+	 *             if a pseudo-class is given an invalid argument
+	 */
+	static PseudoSelector compile(String selector) {
+		List<List<Step>> groups = parse(selector);
+		for (List<Step> group : groups) {
+			for (Step step : group) {
+				if (!step.filters.isEmpty()) {
+					return new PseudoSelector(groups);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the compiled selector in the form taken by {@link Scripts#QUERY}
+	 */
+	List<Object> program() {
+		return program(groups);
+	}
+
+	/**
+	 * Selects the elements matching this selector within the given roots by
+	 * looking up the native CSS part of each step and reading the properties
+	 * of each element the pseudo-classes filter.
+	 * 
+	 * @param roots
+	 *            the search contexts to select elements within
+	 * @return the matching elements, without duplicates
+	 * @throws InvalidSelectorException
+	 *             if the selector uses a sibling combinator after a
+	 *             pseudo-class, which cannot be evaluated without javascript
+	 */
+	List<WebElement> select(List<? extends SearchContext> roots) {
+		return select(groups, roots);
+	}
+
+	private static List<WebElement> select(List<List<Step>> groups, List<? extends SearchContext> roots) {
+		Set<WebElement> found = new LinkedHashSet<WebElement>();
+		for (List<Step> group : groups) {
+			List<? extends SearchContext> current = roots;
+			for (Step step : group) {
+				current = step.select(current);
+			}
+			for (SearchContext element : current) {
+				found.add((WebElement) element);
+			}
+		}
+		return new ArrayList<WebElement>(found);
+	}
+
+	private static List<Object> program(List<List<Step>> groups) {
+		List<Object> program = new ArrayList<Object>(groups.size());
+		for (List<Step> group : groups) {
+			List<Object> steps = new ArrayList<Object>(group.size());
+			for (Step step : group) {
+				List<Object> filters = new ArrayList<Object>(step.filters.size());
+				for (Filter filter : step.filters) {
+					filters.add(list(filter.type, filter.argument instanceof Parsed ? program(((Parsed) filter.argument).groups) : filter.argument));
+				}
+				steps.add(list(step.combinator, step.css, filters));
+			}
+			program.add(steps);
+		}
+		return program;
+	}
+
+	private static List<List<Step>> parse(String selector) {
+		List<List<Step>> groups = new ArrayList<List<Step>>();
+		for (String group : split(selector)) {
+			if (group.trim().length() == 0) {
+				throw new InvalidSelectorException(String.format("The selector '%s' has an empty selector between commas", selector));
+			}
+			groups.add(steps(selector, group.trim()));
+		}
+		return groups;
+	}
+
+	/**
+	 * Splits the given selector into compound selectors, moving the jQuery
+	 * pseudo-classes of each compound selector into the filters of a step,
+	 * and any native CSS following a pseudo-class into an 'is' filter.
+	 */
+	private static List<Step> steps(String selector, String group) {
+		List<Step> steps = new ArrayList<Step>();
+		StringBuilder css = new StringBuilder();
+		String combinator = "";
+		int length = group.length();
+		int i = 0;
+		if (i < length && COMBINATORS.indexOf(group.charAt(i)) >= 0) {
+			combinator = String.valueOf(group.charAt(i));
+			i = skipSpaces(group, i + 1);
+		}
+		while (i < length) {
+			StringBuilder compound = new StringBuilder();
+			StringBuilder rest = null;
+			List<Filter> filters = new ArrayList<Filter>();
+			while (i < length && !Character.isWhitespace(group.charAt(i)) && COMBINATORS.indexOf(group.charAt(i)) < 0) {
+				int end = tokenEnd(group, i);
+				if (group.charAt(i) == ':' && end > i + 1) {
+					String name = group.substring(i + 1, identifierEnd(group, i + 1));
+					if (PSEUDO_CLASSES.contains(name)) {
+						if (rest != null && rest.length() > 0) {
+							filters.add(new Filter("is", rest.toString()));
+						}
+						rest = new StringBuilder();
+						String argument = end > i + 1 + name.length() ? group.substring(i + 2 + name.length(), end - 1) : null;
+						filters.add(filter(selector, name, argument));
+						i = end;
+						continue;
+					}
+				}
+				(rest == null ? compound : rest).append(group, i, end);
+				i = end;
+			}
+			if (rest != null && rest.length() > 0) {
+				filters.add(new Filter("is", rest.toString()));
+			}
+			int next = skipSpaces(group, i);
+			String following = null;
+			if (next < length && COMBINATORS.indexOf(group.charAt(next)) >= 0) {
+				following = String.valueOf(group.charAt(next));
+				next = skipSpaces(group, next + 1);
+			} else if (next < length && next > i) {
+				following = " ";
+			}
+			i = next;
+			css.append(compound.length() == 0 ? "*" : compound);
+			if (!filters.isEmpty()) {
+				steps.add(new Step(combinator, css.toString(), filters));
+				css.setLength(0);
+				combinator = following == null ? "" : following;
+			} else if (following != null) {
+				css.append(" ".equals(following) ? " " : " " + following + " ");
+			}
+		}
+		if (css.length() > 0) {
+			steps.add(new Step(combinator, css.toString(), Collections.<Filter> emptyList()));
+		}
+		return steps;
+	}
+
+	private static Filter filter(String selector, String name, String argument) {
+		if ("contains".equals(name) || "eq".equals(name) || "has".equals(name)) {
+			if (argument == null || argument.trim().length() == 0) {
+				throw new InvalidSelectorException(String.format("The pseudo-class :%s in the selector '%s' requires an argument", name, selector));
+			}
+			if ("contains".equals(name)) {
+				return new Filter(name, unquote(argument.trim()));
+			}
+			if ("has".equals(name)) {
+				return new Filter(name, new Parsed(parse(argument)));
+			}
+			try {
+				return new Filter(name, Integer.valueOf(argument.trim()));
+			} catch (NumberFormatException e) {
+				throw new InvalidSelectorException(String.format("The pseudo-class :eq in the selector '%s' requires an index, not '%s'", selector, argument), e);
+			}
+		}
+		if (argument != null) {
+			throw new InvalidSelectorException(String.format("The pseudo-class :%s in the selector '%s' does not take an argument", name, selector));
+		}
+		return new Filter(name, null);
+	}
+
+	/**
+	 * @return the given selector split at each comma which is not within
+	 *         brackets, parentheses or quotes
+	 */
+	private static List<String> split(String selector) {
+		List<String> groups = new ArrayList<String>();
+		int start = 0;
+		for (int i = 0; i < selector.length(); i = tokenEnd(selector, i)) {
+			if (selector.charAt(i) == ',') {
+				groups.add(selector.substring(start, i));
+				start = i + 1;
+			}
+		}
+		groups.add(selector.substring(start));
+		return groups;
+	}
+
+	/**
+	 * @return the index after the token starting at the given index, which is
+	 *         a whole attribute selector, quoted string, or a pseudo-class with
+	 *         its parenthesised argument, otherwise a single character
+	 */
+	private static int tokenEnd(String selector, int start) {
+		char c = selector.charAt(start);
+		if (c == '\\') {
+			return Math.min(start + 2, selector.length());
+		}
+		if (c == '"' || c == '\'') {
+			int end = start + 1;
+			while (end < selector.length() && selector.charAt(end) != c) {
+				end = selector.charAt(end) == '\\' ? end + 2 : end + 1;
+			}
+			return Math.min(end + 1, selector.length());
+		}
+		if (c == '[' || c == '(') {
+			char close = c == '[' ? ']' : ')';
+			int depth = 0;
+			int end = start;
+			while (end < selector.length()) {
+				char current = selector.charAt(end);
+				if (current == '"' || current == '\'' || current == '\\') {
+					end = tokenEnd(selector, end);
+					continue;
+				}
+				if (current == c) {
+					depth++;
+				} else if (current == close && --depth == 0) {
+					return end + 1;
+				}
+				end++;
+			}
+			throw new InvalidSelectorException(String.format("The selector '%s' has an unclosed '%s'", selector, c));
+		}
+		if (c == ':') {
+			int end = identifierEnd(selector, start + 1);
+			return end < selector.length() && selector.charAt(end) == '(' ? tokenEnd(selector, end) : Math.max(end, start + 1);
+		}
+		return start + 1;
+	}
+
+	private static int identifierEnd(String selector, int start) {
+		int end = start;
+		while (end < selector.length() && (Character.isLetterOrDigit(selector.charAt(end)) || selector.charAt(end) == '-' || selector.charAt(end) == '_')) {
+			end++;
+		}
+		return end;
+	}
+
+	private static int skipSpaces(String selector, int start) {
+		int end = start;
+		while (end < selector.length() && Character.isWhitespace(selector.charAt(end))) {
+			end++;
+		}
+		return end;
+	}
+
+	private static String unquote(String text) {
+		if (text.length() >= 2 && (text.charAt(0) == '"' || text.charAt(0) == '\'') && text.charAt(text.length() - 1) == text.charAt(0)) {
+			return text.substring(1, text.length() - 1);
+		}
+		return text;
+	}
+
+	/**
+	 * A native CSS selector applied to the elements selected so far, in the
+	 * direction of its combinator, followed by the pseudo-classes filtering
+	 * its matches.
+	 */
+	private static final class Step {
+		private final String combinator;
+		private final String css;
+		private final List<Filter> filters;
+
+		Step(String combinator, String css, List<Filter> filters) {
+			this.combinator = combinator;
+			this.css = css;
+			this.filters = filters;
+		}
+
+		List<WebElement> select(List<? extends SearchContext> roots) {
+			if ("+".equals(combinator) || "~".equals(combinator)) {
+				throw new InvalidSelectorException(String.format("The combinator '%s' following a jQuery pseudo-class can only be evaluated by a driver which can execute javascript", combinator));
+			}
+			By locator = By.cssSelector(">".equals(combinator) ? ":scope > " + css : css);
+			Set<WebElement> found = new LinkedHashSet<WebElement>();
+			for (SearchContext root : roots) {
+				Metrics.command();
+				found.addAll(root.findElements(locator));
+			}
+			List<WebElement> selected = new ArrayList<WebElement>(found);
+			for (Filter filter : filters) {
+				selected = filter.apply(selected);
+			}
+			return selected;
+		}
+	}
+
+	private static final class Filter {
+		private final String type;
+		private final Object argument;
+
+		Filter(String type, Object argument) {
+			this.type = type;
+			this.argument = argument;
+		}
+
+		List<WebElement> apply(List<WebElement> elements) {
+			if ("first".equals(type)) {
+				return elements.isEmpty() ? elements : elements.subList(0, 1);
+			}
+			if ("last".equals(type)) {
+				return elements.isEmpty() ? elements : elements.subList(elements.size() - 1, elements.size());
+			}
+			if ("eq".equals(type)) {
+				int index = (Integer) argument;
+				int position = index < 0 ? elements.size() + index : index;
+				return position >= 0 && position < elements.size() ? elements.subList(position, position + 1) : Collections.<WebElement> emptyList();
+			}
+			List<WebElement> kept = new ArrayList<WebElement>();
+			for (WebElement element : elements) {
+				if (test(element)) {
+					kept.add(element);
+				}
+			}
+			return kept;
+		}
+
+		private boolean test(WebElement element) {
+			if ("has".equals(type)) {
+				return !select(((Parsed) argument).groups, Collections.singletonList(element)).isEmpty();
+			}
+			if ("is".equals(type)) {
+				Metrics.command();
+				List<WebElement> parents = element.findElements(By.xpath("parent::*"));
+				if (parents.isEmpty()) {
+					return false;
+				}
+				Metrics.command();
+				return parents.get(0).findElements(By.cssSelector((String) argument)).contains(element);
+			}
+			Metrics.command();
+			if ("contains".equals(type)) {
+				// textContent, as the script evaluating :contains reads, rather than the rendered text
+				String text = element.getAttribute("textContent");
+				return text != null && text.contains((String) argument);
+			}
+			return "visible".equals(type) == element.isDisplayed();
+		}
+	}
+
+	/**
+	 * The selector argument of :has
+	 */
+	private static final class Parsed {
+		private final List<List<Step>> groups;
+
+		Parsed(List<List<Step>> groups) {
+			this.groups = groups;
+		}
+	}
+}
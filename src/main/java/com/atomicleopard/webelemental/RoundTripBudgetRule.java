@@ -0,0 +1,241 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.rules.MethodRule;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+
+/**
+ * <p>
+ * Enforces the {@link RoundTripBudget} of each test, counting the commands sent
+ * to the browser by operations on {@link Element}s and
+ * {@link ElementMatcher}s while the test runs.
+ * </p>
+ * 
+ * <pre>
+ * <code>
+ * &#064;Rule
+ * public RoundTripBudgetRule budget = new RoundTripBudgetRule();
+ * 
+ * &#064;Test
+ * &#064;RoundTripBudget(max = 25)
+ * public void shouldListPeople() {
+ * 	...
+ * }
+ * </code>
+ * </pre>
+ * <p>
+ * When the budget is exceeded the test fails, listing the commands sent from
+ * each line of code outside of WebElemental which performed an operation,
+ * most first. Lines of the test class itself, and the classes nested in it,
+ * are reported wherever it lives. Tests without a budget are run unchanged.
+ * </p>
+ * <p>
+ * While a budgeted test runs, the rule is installed as the
+ * {@link ElementMetrics} of all Elements, forwarding each operation to any
+ * {@link ElementMetrics} installed before it. Operations performed by other
+ * threads during the test are counted against its budget. Operations of an
+ * {@link AsyncElement} are reported at the line which requested them.
+ * </p>
+ */
+public class RoundTripBudgetRule implements MethodRule {
+	/**
+	 * Packages whose frames are skipped when looking for the call site of an
+	 * operation, other than those of the test class
+	 */
+	private static final List<String> INTERNAL_PACKAGES = Arrays.asList("com.atomicleopard.webelemental.", "com.atomicleopard.expressive.", "org.hamcrest.");
+
+	public Statement apply(Statement base, FrameworkMethod method, Object target) {
+		RoundTripBudget budget = method.getAnnotation(RoundTripBudget.class);
+		if (budget == null) {
+			budget = target.getClass().getAnnotation(RoundTripBudget.class);
+		}
+		if (budget == null) {
+			return base;
+		}
+		return new BudgetedStatement(base, budget.max(), target.getClass());
+	}
+
+	/**
+	 * @param stack
+	 *            the stack of an operation
+	 * @param testClass
+	 *            the class of the running test
+	 * @return the first frame of the given stack outside of WebElemental, or
+	 *         of the test class or a class nested in it, within the code run
+	 *         by the test. Null if there is none.
+	 */
+	static StackTraceElement callSite(StackTraceElement[] stack, Class<?> testClass) {
+		Set<String> testClasses = outerClasses(testClass);
+		for (StackTraceElement frame : stack) {
+			if (BudgetedStatement.class.getName().equals(frame.getClassName())) {
+				return null;
+			}
+			if (!internal(frame.getClassName(), testClasses)) {
+				return frame;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the names of the outermost classes enclosing the given class and
+	 *         each of its superclasses
+	 */
+	private static Set<String> outerClasses(Class<?> testClass) {
+		Set<String> names = new HashSet<String>();
+		for (Class<?> type = testClass; type != null && type != Object.class; type = type.getSuperclass()) {
+			Class<?> outer = type;
+			while (outer.getEnclosingClass() != null) {
+				outer = outer.getEnclosingClass();
+			}
+			names.add(outer.getName());
+		}
+		return names;
+	}
+
+	/**
+	 * @return true if the named class belongs to WebElemental or the
+	 *         libraries it performs operations through, and is not one of the
+	 *         given test classes or nested in one
+	 */
+	private static boolean internal(String className, Set<String> testClasses) {
+		int inner = className.indexOf('$');
+		if (testClasses.contains(inner < 0 ? className : className.substring(0, inner))) {
+			return false;
+		}
+		for (String prefix : INTERNAL_PACKAGES) {
+			if (className.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs a budgeted test. Its frame marks the boundary of the code run by
+	 * the test when looking for the call site of an operation.
+	 */
+	private static final class BudgetedStatement extends Statement {
+		private final Statement base;
+		private final int max;
+		private final Class<?> testClass;
+
+		private BudgetedStatement(Statement base, int max, Class<?> testClass) {
+			this.base = base;
+			this.max = max;
+			this.testClass = testClass;
+		}
+
+		@Override
+		public void evaluate() throws Throwable {
+			ElementMetrics previous = Element.getMetrics();
+			Budget budget = new Budget(previous, testClass);
+			Element.setMetrics(budget);
+			try {
+				base.evaluate();
+			} finally {
+				Element.setMetrics(previous);
+			}
+			budget.verify(max);
+		}
+	}
+
+	/**
+	 * Counts the commands sent from each call site during a single test
+	 */
+	private static final class Budget implements ElementMetrics {
+		private final ElementMetrics delegate;
+		private final Class<?> testClass;
+		private final Map<String, CallSite> callSites = new LinkedHashMap<String, CallSite>();
+		private int commands;
+
+		private Budget(ElementMetrics delegate, Class<?> testClass) {
+			this.delegate = delegate;
+			this.testClass = testClass;
+		}
+
+		public void record(String operation, int selected, int commands, long nanos) {
+			if (delegate != null) {
+				delegate.record(operation, selected, commands, nanos);
+			}
+			if (commands == 0) {
+				return;
+			}
+			StackTraceElement[] origin = Metrics.origin();
+			StackTraceElement frame = callSite(origin == null ? new Throwable().getStackTrace() : origin, testClass);
+			String location = frame == null ? "unknown" : frame.toString();
+			synchronized (this) {
+				this.commands += commands;
+				CallSite callSite = callSites.get(location);
+				if (callSite == null) {
+					callSite = new CallSite(location);
+					callSites.put(location, callSite);
+				}
+				callSite.add(operation, commands);
+			}
+		}
+
+		private synchronized void verify(int max) {
+			if (commands <= max) {
+				return;
+			}
+			List<CallSite> sites = new ArrayList<CallSite>(callSites.values());
+			Collections.sort(sites, new Comparator<CallSite>() {
+				public int compare(CallSite a, CallSite b) {
+					return b.commands - a.commands;
+				}
+			});
+			StringBuilder message = new StringBuilder(String.format("Round trip budget of %s exceeded, %s commands were sent to the browser:", max, commands));
+			for (CallSite site : sites) {
+				message.append(String.format("%n\t%s at %s %s", site.commands, site.location, site.operations));
+			}
+			throw new AssertionError(message.toString());
+		}
+	}
+
+	private static final class CallSite {
+		private final String location;
+		private final Map<String, Integer> operations = new LinkedHashMap<String, Integer>();
+		private int commands;
+
+		private CallSite(String location) {
+			this.location = location;
+		}
+
+		private void add(String operation, int operationCommands) {
+			Integer previous = operations.get(operation);
+			operations.put(operation, previous == null ? operationCommands : previous + operationCommands);
+			commands += operationCommands;
+		}
+	}
+}
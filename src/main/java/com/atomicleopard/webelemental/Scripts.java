@@ -0,0 +1,457 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsDriver;
+
+/**
+ * Locates a {@link JavascriptExecutor} for a set of {@link WebElement}s and
+ * holds the scripts used to operate on a whole selection in a single round
+ * trip.
+ */
+final class Scripts {
+	/**
+	 * Functions reading the visibility, text and attributes of an element,
+	 * with the same meaning as the equivalent {@link WebElement} methods.
+	 * Attributes are normalised as Selenium's getAttribute does: the current
+	 * property is preferred to the attribute, boolean attributes are "true" or
+	 * null, and the href of a link and src of an image are resolved urls.
+	 */
+	private static final String PROPERTIES = ""
+			+ "function visible(e) {"
+			+ "  var style = window.getComputedStyle ? window.getComputedStyle(e, null) : e.currentStyle;"
+			+ "  return !!(e.offsetWidth || e.offsetHeight || (e.getClientRects && e.getClientRects().length))"
+			+ "    && !(style && (style.visibility == 'hidden' || style.display == 'none'));"
+			+ "}"
+			+ "function text(e) {"
+			+ "  return visible(e) ? (e.innerText || e.textContent || '').replace(/^\\s+|\\s+$/g, '') : '';"
+			+ "}"
+			+ "var BOOLEAN_ATTRIBUTES = ' async autofocus autoplay checked compact complete controls declare defaultchecked defaultselected defer disabled"
+			+ " draggable ended formnovalidate hidden indeterminate iscontenteditable ismap itemscope loop multiple muted nohref noresize noshade novalidate"
+			+ " nowrap open paused pubdate readonly required reversed scoped seamless seeking selected spellcheck truespeed willvalidate ';"
+			+ "function attr(e, name) {"
+			+ "  var lower = name.toLowerCase(), tag = e.tagName.toLowerCase(), value;"
+			+ "  if (lower == 'style') { return e.style ? e.style.cssText : e.getAttribute(name); }"
+			+ "  if ((lower == 'selected' || lower == 'checked') && (tag == 'option' || (tag == 'input' && /^(checkbox|radio)$/i.test(e.type)))) {"
+			+ "    return (tag == 'option' ? e.selected : e.checked) ? 'true' : null;"
+			+ "  }"
+			+ "  if ((tag == 'a' && lower == 'href') || (tag == 'img' && lower == 'src')) {"
+			+ "    value = e.getAttribute(name);"
+			+ "    return value ? String(e[lower]) : value;"
+			+ "  }"
+			+ "  var property = e[lower == 'class' ? 'className' : lower == 'readonly' ? 'readOnly' : name];"
+			+ "  if (BOOLEAN_ATTRIBUTES.indexOf(' ' + lower + ' ') >= 0) {"
+			+ "    return e.getAttribute(name) !== null || property ? 'true' : null;"
+			+ "  }"
+			+ "  value = property == null || typeof property == 'object' || typeof property == 'function' ? e.getAttribute(name) : property;"
+			+ "  return value == null ? null : String(value);"
+			+ "}";
+
+	/**
+	 * Collects the tag name, text, visibility and the named attributes of each
+	 * element in arguments[0]. Each element is returned as
+	 * [tagName, text, visible, [attribute values...]].
+	 */
+	static final String SNAPSHOT = PROPERTIES
+			+ "var elements = arguments[0], names = arguments[1], result = [];"
+			+ "for (var i = 0; i < elements.length; i++) {"
+			+ "  var e = elements[i], values = [];"
+			+ "  for (var j = 0; j < names.length; j++) { values.push(attr(e, names[j])); }"
+			+ "  result.push([e.tagName.toLowerCase(), text(e), visible(e), values]);"
+			+ "}"
+			+ "return result;";
+
+	/**
+	 * Collects the tag name and the named attributes of each element in
+	 * arguments[0], as [tagName, [attribute values...]].
+	 */
+	static final String DESCRIBE = PROPERTIES
+			+ "var elements = arguments[0], names = arguments[1], result = [];"
+			+ "for (var i = 0; i < elements.length; i++) {"
+			+ "  var e = elements[i], values = [];"
+			+ "  for (var j = 0; j < names.length; j++) { values.push(attr(e, names[j])); }"
+			+ "  result.push([e.tagName.toLowerCase(), values]);"
+			+ "}"
+			+ "return result;";
+
+	/**
+	 * Collects the text of the descendants of each element in arguments[0]
+	 * matching the CSS selector arguments[1], as a list of texts per element.
+	 */
+	static final String ROWS = PROPERTIES
+			+ "var rows = arguments[0], selector = arguments[1], result = [];"
+			+ "for (var i = 0; i < rows.length; i++) {"
+			+ "  var cells = rows[i].querySelectorAll(selector), texts = [];"
+			+ "  for (var j = 0; j < cells.length; j++) { texts.push(text(cells[j])); }"
+			+ "  result.push(texts);"
+			+ "}"
+			+ "return result;";
+
+	/**
+	 * Collects the cell texts of the rows of each table in arguments[0],
+	 * excluding nested tables. Rows within a thead, and a first row of only th
+	 * cells, are header rows. Returns [header, rows] where header is the texts
+	 * of the last header row of the first table which has one, or null.
+	 */
+	static final String TABLE = PROPERTIES
+			+ "var tables = arguments[0], header = null, rows = [];"
+			+ "function texts(row) {"
+			+ "  var result = [];"
+			+ "  for (var c = 0; c < row.cells.length; c++) { result.push(text(row.cells[c])); }"
+			+ "  return result;"
+			+ "}"
+			+ "function headings(row) {"
+			+ "  for (var c = 0; c < row.cells.length; c++) { if (row.cells[c].tagName.toLowerCase() != 'th') { return false; } }"
+			+ "  return row.cells.length > 0;"
+			+ "}"
+			+ "for (var t = 0; t < tables.length; t++) {"
+			+ "  var last = null;"
+			+ "  for (var r = 0; r < tables[t].rows.length; r++) {"
+			+ "    var row = tables[t].rows[r];"
+			+ "    if (row.parentNode.tagName.toLowerCase() == 'thead' || (r == 0 && headings(row))) { last = row; }"
+			+ "    else { rows.push(texts(row)); }"
+			+ "  }"
+			+ "  if (header == null && last != null) { header = texts(last); }"
+			+ "}"
+			+ "return [header, rows];";
+
+	/**
+	 * Returns the elements in arguments[0] for which the predicate in
+	 * arguments[1] evaluates to arguments[2]. Predicates are described by
+	 * {@link com.atomicleopard.webelemental.matchers.PropertyMatcher#predicate()}.
+	 */
+	static final String FILTER = PROPERTIES
+			+ "var elements = arguments[0], predicate = arguments[1], keep = arguments[2], result = [];"
+			+ "function test(e) {"
+			+ "  var type = predicate[0];"
+			+ "  if (type == 'attr') { return attr(e, predicate[1]) == predicate[2]; }"
+			+ "  if (type == 'text') { return text(e) == predicate[1]; }"
+			+ "  if (type == 'class') { return (' ' + (e.getAttribute('class') || '') + ' ').replace(/\\s+/g, ' ').indexOf(' ' + predicate[1] + ' ') >= 0; }"
+			+ "  if (type == 'visible') { return visible(e); }"
+			+ "  if (type == 'hidden') { return !visible(e); }"
+			+ "  return false;"
+			+ "}"
+			+ "for (var i = 0; i < elements.length; i++) {"
+			+ "  if (test(elements[i]) == keep) { result.push(elements[i]); }"
+			+ "}"
+			+ "return result;";
+
+	/**
+	 * Returns the outer html of a copy of each element in arguments[0]. Within
+	 * each copy, elements which are not visible are marked with the
+	 * {@link DetachedWebElement#HIDDEN} attribute, and the current values of
+	 * form fields are written to their attributes.
+	 */
+	static final String DETACH = PROPERTIES
+			+ "var elements = arguments[0], result = [];"
+			+ "function all(e) { return [e].concat(Array.prototype.slice.call(e.getElementsByTagName('*'))); }"
+			+ "for (var i = 0; i < elements.length; i++) {"
+			+ "  var copy = elements[i].cloneNode(true), originals = all(elements[i]), copies = all(copy);"
+			+ "  for (var j = 0; j < originals.length; j++) {"
+			+ "    var original = originals[j], target = copies[j], tag = original.tagName.toLowerCase();"
+			+ "    if (!visible(original)) { target.setAttribute('" + DetachedWebElement.HIDDEN + "', ''); }"
+			+ "    if (tag == 'input' || tag == 'select') { target.setAttribute('value', original.value); }"
+			+ "    if (tag == 'textarea') { target.textContent = original.value; }"
+			+ "    if ('checked' in original && tag == 'input') { original.checked ? target.setAttribute('checked', 'checked') : target.removeAttribute('checked'); }"
+			+ "    if (tag == 'option') { original.selected ? target.setAttribute('selected', 'selected') : target.removeAttribute('selected'); }"
+			+ "  }"
+			+ "  result.push(copy.outerHTML);"
+			+ "}"
+			+ "return result;";
+
+	/**
+	 * Sorts the given nodes into document order, dropping duplicates.
+	 */
+	private static final String UNIQUE = ""
+			+ "function unique(nodes) {"
+			+ "  nodes.sort(function(a, b) { return a === b ? 0 : (a.compareDocumentPosition(b) & 4 ? -1 : 1); });"
+			+ "  var result = [];"
+			+ "  for (var i = 0; i < nodes.length; i++) {"
+			+ "    if (i == 0 || nodes[i] !== nodes[i - 1]) { result.push(nodes[i]); }"
+			+ "  }"
+			+ "  return result;"
+			+ "}";
+
+	/**
+	 * A function applying each CSS selector in the given list in turn to the
+	 * descendants of the given roots, or of the document if roots is null.
+	 * Returns [elements, lookups] where lookups is the number of lookups an
+	 * element at a time would have required, or [count, lookups] when
+	 * countOnly is true.
+	 */
+	private static final String SELECT = UNIQUE
+			+ "function select(roots, selectors, countOnly) {"
+			+ "  var current = roots || [document], lookups = 0;"
+			+ "  for (var s = 0; s < selectors.length; s++) {"
+			+ "    var found = [];"
+			+ "    for (var i = 0; i < current.length; i++) {"
+			+ "      var matches = current[i].querySelectorAll(selectors[s]);"
+			+ "      lookups++;"
+			+ "      for (var j = 0; j < matches.length; j++) { found.push(matches[j]); }"
+			+ "    }"
+			+ "    current = unique(found);"
+			+ "  }"
+			+ "  return [countOnly ? current.length : current, lookups];"
+			+ "}";
+
+	/**
+	 * Applies each CSS selector in arguments[1] in turn to the descendants of
+	 * the elements in arguments[0], or of the document if arguments[0] is
+	 * null. Returns [elements, lookups] where lookups is the number of lookups
+	 * an element at a time would have required, or [count, lookups] when
+	 * arguments[2] is true.
+	 */
+	static final String FIND = SELECT
+			+ "return select(arguments[0], arguments[1], arguments[2]);";
+
+	/**
+	 * Evaluates a chain of selectors compiled by {@link SelectorPlan#program()},
+	 * which may use the jQuery pseudo-classes of {@link PseudoSelector}, from
+	 * the elements in arguments[0], or the document if arguments[0] is null.
+	 * arguments[1] holds a list of comma separated groups for each selector
+	 * in the chain, each group a list of [combinator, css, filters] steps.
+	 * Returns [elements, lookups], or [count, lookups] when arguments[2] is
+	 * true, as {@link #FIND} does.
+	 */
+	static final String QUERY = PROPERTIES + UNIQUE
+			+ "var lookups = 0;"
+			+ "function matches(e, selector) {"
+			+ "  var match = e.matches || e.matchesSelector || e.webkitMatchesSelector || e.mozMatchesSelector || e.msMatchesSelector;"
+			+ "  return match.call(e, selector);"
+			+ "}"
+			+ "function filter(elements, f) {"
+			+ "  var type = f[0], result = [];"
+			+ "  if (type == 'first') { return elements.slice(0, 1); }"
+			+ "  if (type == 'last') { return elements.slice(-1); }"
+			+ "  if (type == 'eq') {"
+			+ "    var index = f[1] < 0 ? elements.length + f[1] : f[1];"
+			+ "    return index >= 0 && index < elements.length ? [elements[index]] : [];"
+			+ "  }"
+			+ "  for (var i = 0; i < elements.length; i++) {"
+			+ "    var e = elements[i], keep = false;"
+			+ "    if (type == 'visible') { keep = visible(e); }"
+			+ "    else if (type == 'hidden') { keep = !visible(e); }"
+			+ "    else if (type == 'contains') { keep = (e.textContent || '').indexOf(f[1]) >= 0; }"
+			+ "    else if (type == 'has') { keep = query([e], f[1]).length > 0; }"
+			+ "    else if (type == 'is') { keep = matches(e, f[1]); }"
+			+ "    if (keep) { result.push(e); }"
+			+ "  }"
+			+ "  return result;"
+			+ "}"
+			+ "function step(current, s) {"
+			+ "  var combinator = s[0], css = s[1], found = [];"
+			+ "  for (var i = 0; i < current.length; i++) {"
+			+ "    if (combinator == '+' || combinator == '~') {"
+			+ "      for (var n = current[i].nextElementSibling; n; n = combinator == '+' ? null : n.nextElementSibling) {"
+			+ "        if (matches(n, css)) { found.push(n); }"
+			+ "      }"
+			+ "    } else {"
+			+ "      var matched = current[i].querySelectorAll(combinator == '>' ? ':scope > ' + css : css);"
+			+ "      for (var j = 0; j < matched.length; j++) { found.push(matched[j]); }"
+			+ "    }"
+			+ "    lookups++;"
+			+ "  }"
+			+ "  found = unique(found);"
+			+ "  for (var f = 0; f < s[2].length; f++) { found = filter(found, s[2][f]); }"
+			+ "  return found;"
+			+ "}"
+			+ "function query(roots, groups) {"
+			+ "  var found = [];"
+			+ "  for (var g = 0; g < groups.length; g++) {"
+			+ "    var current = roots;"
+			+ "    for (var s = 0; s < groups[g].length; s++) { current = step(current, groups[g][s]); }"
+			+ "    found = found.concat(current);"
+			+ "  }"
+			+ "  return groups.length > 1 ? unique(found) : found;"
+			+ "}"
+			+ "var selected = arguments[0] || [document], program = arguments[1];"
+			+ "for (var p = 0; p < program.length; p++) { selected = query(selected, program[p]); }"
+			+ "return [arguments[2] ? selected.length : selected, lookups];";
+
+	/**
+	 * A function returning the generation of the document, a string which
+	 * changes whenever the document is mutated or replaced. The document is
+	 * watched by a MutationObserver installed on first use. Returns null if
+	 * mutations cannot be observed.
+	 */
+	private static final String GENERATION = ""
+			+ "function generation() {"
+			+ "  var Observer = window.MutationObserver || window.WebKitMutationObserver;"
+			+ "  if (!Observer) { return null; }"
+			+ "  var watched = document.__webelementalGeneration;"
+			+ "  if (!watched) {"
+			+ "    watched = document.__webelementalGeneration = { id: Math.random().toString(36).substring(2), count: 0 };"
+			+ "    new Observer(function() { watched.count++; }).observe(document, { childList: true, subtree: true, attributes: true, characterData: true });"
+			+ "  }"
+			+ "  return watched.id + '.' + watched.count;"
+			+ "}";
+
+	/**
+	 * Returns [generation] if the generation of the document is arguments[2],
+	 * meaning the elements previously found are still current. Otherwise the
+	 * selectors are applied as {@link #FIND} does, returning [generation,
+	 * elements, lookups].
+	 */
+	static final String CACHED_FIND = SELECT + GENERATION
+			+ "var current = generation();"
+			+ "if (current != null && current === arguments[2]) { return [current]; }"
+			+ "var found = select(arguments[0], arguments[1], false);"
+			+ "return [current, found[0], found[1]];";
+
+	/**
+	 * Moves from each element in arguments[0] in the direction named by
+	 * arguments[1], one of 'parent', 'closest', 'siblings', 'next' or 'prev'.
+	 * arguments[2] is the CSS selector used by 'closest'.
+	 */
+	static final String TRAVERSE = UNIQUE
+			+ "var elements = arguments[0], direction = arguments[1], selector = arguments[2], found = [];"
+			+ "function matches(e) {"
+			+ "  var match = e.matches || e.matchesSelector || e.webkitMatchesSelector || e.mozMatchesSelector || e.msMatchesSelector;"
+			+ "  return match.call(e, selector);"
+			+ "}"
+			+ "function element(node, sibling) {"
+			+ "  while (node && node.nodeType != 1) { node = node[sibling]; }"
+			+ "  return node;"
+			+ "}"
+			+ "for (var i = 0; i < elements.length; i++) {"
+			+ "  var e = elements[i], related = null;"
+			+ "  if (direction == 'parent') {"
+			+ "    related = e.parentNode && e.parentNode.nodeType == 1 ? e.parentNode : null;"
+			+ "  } else if (direction == 'closest') {"
+			+ "    for (related = e; related && !(related.nodeType == 1 && matches(related)); related = related.parentNode) {}"
+			+ "    related = related && related.nodeType == 1 ? related : null;"
+			+ "  } else if (direction == 'siblings') {"
+			+ "    for (var s = e.parentNode ? element(e.parentNode.firstChild, 'nextSibling') : null; s; s = element(s.nextSibling, 'nextSibling')) {"
+			+ "      if (s !== e) { found.push(s); }"
+			+ "    }"
+			+ "  } else if (direction == 'next') {"
+			+ "    related = element(e.nextSibling, 'nextSibling');"
+			+ "  } else if (direction == 'prev') {"
+			+ "    related = element(e.previousSibling, 'previousSibling');"
+			+ "  }"
+			+ "  if (related) { found.push(related); }"
+			+ "}"
+			+ "return unique(found);";
+
+	/**
+	 * An asynchronous script which completes as soon as the document changes,
+	 * or after arguments[0] milliseconds have passed, returning the generation
+	 * of the document. If arguments[1] is a generation the document has
+	 * already moved on from, it completes immediately, so that changes made
+	 * since that generation was returned are not missed.
+	 */
+	static final String AWAIT_MUTATION = GENERATION
+			+ "var callback = arguments[arguments.length - 1], done = false, observer = null;"
+			+ "function finish() {"
+			+ "  if (!done) { done = true; if (observer) { observer.disconnect(); } callback(generation()); }"
+			+ "}"
+			+ "var current = generation();"
+			+ "if (arguments[1] != null && current !== arguments[1]) {"
+			+ "  finish();"
+			+ "} else {"
+			+ "  var Observer = window.MutationObserver || window.WebKitMutationObserver;"
+			+ "  if (Observer) {"
+			+ "    observer = new Observer(finish);"
+			+ "    observer.observe(document, { childList: true, subtree: true, attributes: true, characterData: true });"
+			+ "  }"
+			+ "  setTimeout(finish, arguments[0]);"
+			+ "}";
+
+	/**
+	 * Assigns values to the elements in arguments[0] and dispatches 'input'
+	 * and 'change' events to them. If arguments[1] is null the single value
+	 * in arguments[2] is assigned to each element, otherwise arguments[2][i]
+	 * is assigned to all descendants matching the CSS selector arguments[1][i].
+	 */
+	static final String FILL = ""
+			+ "var elements = arguments[0], selectors = arguments[1], values = arguments[2];"
+			+ "function fire(e, type) {"
+			+ "  var event = document.createEvent('HTMLEvents');"
+			+ "  event.initEvent(type, true, false);"
+			+ "  e.dispatchEvent(event);"
+			+ "}"
+			+ "function assign(e, value) {"
+			+ "  var prototype = Object.getPrototypeOf ? Object.getPrototypeOf(e) : null;"
+			+ "  var property = prototype && Object.getOwnPropertyDescriptor ? Object.getOwnPropertyDescriptor(prototype, 'value') : null;"
+			+ "  if (property && property.set) { property.set.call(e, value); }"
+			+ "  else if ('value' in e) { e.value = value; }"
+			+ "  else { e.textContent = value; }"
+			+ "  fire(e, 'input');"
+			+ "  fire(e, 'change');"
+			+ "}"
+			+ "for (var i = 0; i < elements.length; i++) {"
+			+ "  if (selectors == null) { assign(elements[i], values[0]); continue; }"
+			+ "  for (var s = 0; s < selectors.length; s++) {"
+			+ "    var fields = elements[i].querySelectorAll(selectors[s]);"
+			+ "    for (var f = 0; f < fields.length; f++) { assign(fields[f], values[s]); }"
+			+ "  }"
+			+ "}";
+
+	private Scripts() {
+	}
+
+	/**
+	 * @param result
+	 *            a list returned from a script execution
+	 * @return the given script result as a list of strings
+	 */
+	static List<String> strings(Object result) {
+		List<String> strings = new ArrayList<String>();
+		for (Object value : (List<?>) result) {
+			strings.add(value == null ? null : String.valueOf(value));
+		}
+		return strings;
+	}
+
+	/**
+	 * @param result
+	 *            a list of elements returned from a script execution
+	 * @return the given script result as a list of {@link WebElement}s
+	 */
+	@SuppressWarnings("unchecked")
+	static List<WebElement> webElements(Object result) {
+		return (List<WebElement>) result;
+	}
+
+	/**
+	 * @param elements
+	 * @return a {@link JavascriptExecutor} able to run scripts against the
+	 *         given elements, or null if the elements are not bound to a
+	 *         driver supporting javascript
+	 */
+	static JavascriptExecutor executor(List<WebElement> elements) {
+		for (WebElement element : elements) {
+			if (element instanceof WrapsDriver) {
+				WebDriver driver = ((WrapsDriver) element).getWrappedDriver();
+				if (driver instanceof JavascriptExecutor) {
+					return (JavascriptExecutor) driver;
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.openqa.selenium.WebElement;
+
+/**
+ * An immutable list of selected elements. Selections derived from another by
+ * {@link #slice(int, int)}, {@link #every(int, int)} or {@link #subList(int, int)}
+ * are views sharing the elements of the original rather than copies, so
+ * indexing into and slicing large selections takes constant time.
+ */
+final class Selection extends AbstractList<WebElement> implements RandomAccess {
+	static final Selection EMPTY = new Selection(new WebElement[0], 0, 1, 0);
+
+	private final WebElement[] elements;
+	private final int offset;
+	private final int stride;
+	private final int size;
+
+	private Selection(WebElement[] elements, int offset, int stride, int size) {
+		this.elements = elements;
+		this.offset = offset;
+		this.stride = stride;
+		this.size = size;
+	}
+
+	/**
+	 * @param elements
+	 *            the elements to select, may be null
+	 * @return the given elements if they are already a Selection, otherwise a
+	 *         Selection of a single copy of them
+	 */
+	static Selection of(Collection<? extends WebElement> elements) {
+		if (elements instanceof Selection) {
+			return (Selection) elements;
+		}
+		if (elements == null || elements.isEmpty()) {
+			return EMPTY;
+		}
+		WebElement[] copy = elements.toArray(new WebElement[elements.size()]);
+		return new Selection(copy, 0, 1, copy.length);
+	}
+
+	static Selection of(WebElement element) {
+		return element == null ? EMPTY : new Selection(new WebElement[] { element }, 0, 1, 1);
+	}
+
+	@Override
+	public WebElement get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(String.format("Index %s is outside the %s selected elements", index, size));
+		}
+		return elements[offset + index * stride];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the first selected element, or null if there are none
+	 */
+	WebElement first() {
+		return size == 0 ? null : elements[offset];
+	}
+
+	/**
+	 * Selects a range of elements, where negative indexes count back from the
+	 * end and indexes outside the selection are clamped to it.
+	 * 
+	 * @param from
+	 *            the index of the first element, inclusive
+	 * @param to
+	 *            the index of the last element, exclusive
+	 * @return a view of the elements in the range
+	 */
+	Selection slice(int from, int to) {
+		int start = clamp(from);
+		int end = clamp(to);
+		if (start >= end) {
+			return EMPTY;
+		}
+		if (start == 0 && end == size) {
+			return this;
+		}
+		return new Selection(elements, offset + start * stride, stride, end - start);
+	}
+
+	/**
+	 * @param start
+	 *            the index of the first element
+	 * @param step
+	 *            the distance between consecutive selected elements, at least
+	 *            1
+	 * @return a view of every step'th element from the given start
+	 */
+	Selection every(int start, int step) {
+		if (start >= size) {
+			return EMPTY;
+		}
+		return new Selection(elements, offset + start * stride, stride * step, (size - start + step - 1) / step);
+	}
+
+	@Override
+	public List<WebElement> subList(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException(String.format("Range [%s, %s) is outside the %s selected elements", fromIndex, toIndex, size));
+		}
+		return slice(fromIndex, toIndex);
+	}
+
+	private int clamp(int index) {
+		int position = index < 0 ? size + index : index;
+		return Math.max(0, Math.min(size, position));
+	}
+}
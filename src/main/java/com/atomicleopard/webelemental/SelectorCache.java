@@ -0,0 +1,155 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static com.atomicleopard.expressive.Expressive.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Remembers the elements found by chains of CSS selectors for each browser
+ * session and set of root elements, enabled with
+ * {@link Element#setSelectorCacheSize(int)}. A remembered lookup is reused
+ * only while the document has not changed since, which is checked by a
+ * script counting mutations of the document. The least recently used lookups
+ * are forgotten once the cache is full. This class is thread-safe.
+ */
+final class SelectorCache {
+	private final int capacity;
+	private final Map<Key, Lookup> lookups;
+	private int hits;
+	private int misses;
+
+	SelectorCache(final int capacity) {
+		this.capacity = capacity;
+		this.lookups = new LinkedHashMap<Key, Lookup>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Lookup> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Finds the elements matching the given selectors in a single script
+	 * execution, which only returns the elements when they may differ from
+	 * those remembered.
+	 * 
+	 * @param executor
+	 *            the browser session to find the elements in
+	 * @param roots
+	 *            the elements to find descendants of, or null to search the
+	 *            whole document
+	 * @param selectors
+	 *            the CSS selectors to apply in turn
+	 * @return [elements, lookups], as returned by {@link Scripts#FIND}
+	 */
+	List<?> find(JavascriptExecutor executor, List<WebElement> roots, List<String> selectors) {
+		Key key = new Key(executor, roots, selectors);
+		Lookup lookup;
+		synchronized (this) {
+			lookup = lookups.get(key);
+		}
+		List<?> result = (List<?>) executor.executeScript(Scripts.CACHED_FIND, roots, selectors, lookup == null ? null : lookup.generation);
+		if (lookup != null && result.size() == 1) {
+			synchronized (this) {
+				hits++;
+			}
+			return list(lookup.elements, lookup.lookups);
+		}
+		String generation = (String) result.get(0);
+		Selection elements = Selection.of(Scripts.webElements(result.get(1)));
+		int count = ((Number) result.get(2)).intValue();
+		synchronized (this) {
+			misses++;
+			if (generation == null) {
+				lookups.remove(key);
+			} else {
+				lookups.put(key, new Lookup(generation, elements, count));
+			}
+		}
+		return list(elements, count);
+	}
+
+	int capacity() {
+		return capacity;
+	}
+
+	synchronized int size() {
+		return lookups.size();
+	}
+
+	synchronized int hits() {
+		return hits;
+	}
+
+	synchronized int misses() {
+		return misses;
+	}
+
+	private static final class Key {
+		private final JavascriptExecutor executor;
+		private final List<WebElement> roots;
+		private final List<String> selectors;
+
+		Key(JavascriptExecutor executor, List<WebElement> roots, List<String> selectors) {
+			this.executor = executor;
+			this.roots = roots == null ? null : Selection.of(roots);
+			this.selectors = new ArrayList<String>(selectors);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return executor == other.executor && (roots == null ? other.roots == null : roots.equals(other.roots)) && selectors.equals(other.selectors);
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = System.identityHashCode(executor);
+			hash = 31 * hash + (roots == null ? 0 : roots.hashCode());
+			return 31 * hash + selectors.hashCode();
+		}
+	}
+
+	private static final class Lookup {
+		private final String generation;
+		private final Selection elements;
+		private final int lookups;
+
+		Lookup(String generation, Selection elements, int lookups) {
+			this.generation = generation;
+			this.elements = elements;
+			this.lookups = lookups;
+		}
+	}
+}
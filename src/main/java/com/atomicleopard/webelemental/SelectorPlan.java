@@ -0,0 +1,174 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static com.atomicleopard.expressive.Expressive.*;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.internal.FindsByClassName;
+import org.openqa.selenium.internal.FindsById;
+import org.openqa.selenium.internal.FindsByName;
+import org.openqa.selenium.internal.FindsByTagName;
+
+/**
+ * The locator used to find the elements matching a CSS selector. Selectors
+ * consisting of a single id, class, name attribute or tag name are found with
+ * the equivalent native locator when the search context supports it, as many
+ * drivers find those faster than an arbitrary CSS selector. Selectors using
+ * jQuery pseudo-classes are compiled into a {@link PseudoSelector}. Plans are
+ * remembered for the most recently used selectors, so a selector is only
+ * parsed once.
+ */
+final class SelectorPlan {
+	static final int CACHE_SIZE = 256;
+
+	/**
+	 * How the elements matching a selector are found
+	 */
+	enum Strategy {
+		ID, CLASS_NAME, NAME, TAG_NAME, CSS, PSEUDO
+	}
+
+	private static final String IDENTIFIER = "-?[_a-zA-Z][_a-zA-Z0-9-]*";
+	private static final Pattern ID = Pattern.compile("#(" + IDENTIFIER + ")");
+	private static final Pattern CLASS_NAME = Pattern.compile("\\.(" + IDENTIFIER + ")");
+	private static final Pattern TAG_NAME = Pattern.compile("[a-zA-Z][a-zA-Z0-9]*");
+	private static final Pattern NAME = Pattern.compile("\\[\\s*name\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|(" + IDENTIFIER + "))\\s*\\]");
+
+	private static final Map<String, SelectorPlan> PLANS = new LinkedHashMap<String, SelectorPlan>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, SelectorPlan> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private final String selector;
+	private final Strategy strategy;
+	private final String value;
+	private final PseudoSelector pseudo;
+
+	private SelectorPlan(String selector, Strategy strategy, String value) {
+		this(selector, strategy, value, null);
+	}
+
+	private SelectorPlan(String selector, Strategy strategy, String value, PseudoSelector pseudo) {
+		this.selector = selector;
+		this.strategy = strategy;
+		this.value = value;
+		this.pseudo = pseudo;
+	}
+
+	/**
+	 * @param selector
+	 *            a CSS selector
+	 * @return the plan for finding the elements matching the given selector
+	 */
+	static SelectorPlan of(String selector) {
+		synchronized (PLANS) {
+			SelectorPlan plan = PLANS.get(selector);
+			if (plan == null) {
+				plan = parse(selector);
+				PLANS.put(selector, plan);
+			}
+			return plan;
+		}
+	}
+
+	private static SelectorPlan parse(String selector) {
+		PseudoSelector pseudo = PseudoSelector.compile(selector);
+		if (pseudo != null) {
+			return new SelectorPlan(selector, Strategy.PSEUDO, selector, pseudo);
+		}
+		String trimmed = selector.trim();
+		Matcher matcher = ID.matcher(trimmed);
+		if (matcher.matches()) {
+			return new SelectorPlan(selector, Strategy.ID, matcher.group(1));
+		}
+		matcher = CLASS_NAME.matcher(trimmed);
+		if (matcher.matches()) {
+			return new SelectorPlan(selector, Strategy.CLASS_NAME, matcher.group(1));
+		}
+		matcher = TAG_NAME.matcher(trimmed);
+		if (matcher.matches()) {
+			return new SelectorPlan(selector, Strategy.TAG_NAME, trimmed);
+		}
+		matcher = NAME.matcher(trimmed);
+		if (matcher.matches()) {
+			String name = matcher.group(1) != null ? matcher.group(1) : matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+			return new SelectorPlan(selector, Strategy.NAME, name);
+		}
+		return new SelectorPlan(selector, Strategy.CSS, selector);
+	}
+
+	Strategy strategy() {
+		return strategy;
+	}
+
+	/**
+	 * @return the compiled selector if it uses jQuery pseudo-classes,
+	 *         otherwise null
+	 */
+	PseudoSelector pseudo() {
+		return pseudo;
+	}
+
+	/**
+	 * @return the selector in the form taken by {@link Scripts#QUERY}
+	 */
+	List<Object> program() {
+		if (pseudo != null) {
+			return pseudo.program();
+		}
+		List<Object> step = list("", selector, Collections.emptyList());
+		return list((Object) list((Object) step));
+	}
+
+	/**
+	 * @param context
+	 *            the search context the elements will be found from, may be
+	 *            null
+	 * @return the native locator for this selector if the given context
+	 *         supports it, otherwise a CSS selector locator
+	 */
+	By locator(Object context) {
+		switch (strategy) {
+		case ID:
+			return context instanceof FindsById ? By.id(value) : By.cssSelector(selector);
+		case CLASS_NAME:
+			return context instanceof FindsByClassName ? By.className(value) : By.cssSelector(selector);
+		case NAME:
+			return context instanceof FindsByName ? By.name(value) : By.cssSelector(selector);
+		case TAG_NAME:
+			return context instanceof FindsByTagName ? By.tagName(value) : By.cssSelector(selector);
+		default:
+			return By.cssSelector(selector);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * <p>
+ * Waits for the page to change between attempts of an assertion made by an
+ * {@link ElementMatcher}. Changes are observed in the browser when possible,
+ * otherwise the wait falls back to polling with a gradually increasing delay.
+ * </p>
+ * <p>
+ * Each observed wait returns the generation of the document, which the next
+ * wait passes back so that it completes immediately if the page changed while
+ * the assertion was being tried. As the first wait has no generation to
+ * compare with, it lasts at most {@link #MIN_POLL_MILLIS}. Every wait lasts
+ * at most {@link #MAX_AWAIT_MILLIS}, so that it fits within the script
+ * timeout of the driver. A wait returning no generation means the browser
+ * cannot observe mutations, and the waits that follow poll instead.
+ * </p>
+ */
+final class Waiter {
+	static final long MIN_POLL_MILLIS = 50;
+	static final long MAX_POLL_MILLIS = 1000;
+	static final long MAX_AWAIT_MILLIS = 1000;
+
+	private final JavascriptExecutor executor;
+	private boolean observe;
+	private long poll = MIN_POLL_MILLIS;
+	private Object generation;
+
+	Waiter(JavascriptExecutor executor) {
+		this.executor = executor;
+		this.observe = executor != null;
+	}
+
+	/**
+	 * Blocks until the page changes, or at most the given time passes.
+	 * 
+	 * @param maxMillis
+	 *            the longest time to wait, in milliseconds
+	 */
+	void await(long maxMillis) {
+		if (observe) {
+			try {
+				Metrics.command();
+				long millis = Math.min(maxMillis, generation == null ? MIN_POLL_MILLIS : MAX_AWAIT_MILLIS);
+				generation = executor.executeAsyncScript(Scripts.AWAIT_MUTATION, millis, generation);
+				if (generation == null) {
+					// the page cannot be observed, so the script only slept, poll instead
+					observe = false;
+					poll = Math.min(millis * 2, MAX_POLL_MILLIS);
+				}
+				return;
+			} catch (WebDriverException e) {
+				// async scripts are unsupported or the script timeout is too short, poll instead
+				observe = false;
+			}
+		}
+		sleep(Math.min(poll, maxMillis));
+		poll = Math.min(poll * 2, MAX_POLL_MILLIS);
+	}
+
+	boolean isObserving() {
+		return observe;
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new WebDriverException("Interrupted while waiting for the page to change", e);
+		}
+	}
+}
@@ -20,20 +20,34 @@
  */
 package com.atomicleopard.webelemental.matchers;
 
+import static org.hamcrest.Matchers.*;
+
+import java.util.Arrays;
+import java.util.List;
+
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 
 import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
 
-public class HasAttributeMatcher extends BaseMatcher<Element> {
+public class HasAttributeMatcher extends BaseMatcher<Element> implements PropertyMatcher {
 
 	private final Matcher<String> matcher;
 	private String attribute;
+	private final List<Object> predicate;
 
 	public HasAttributeMatcher(String attribute, Matcher<String> matcher) {
 		this.attribute = attribute;
 		this.matcher = matcher;
+		this.predicate = null;
+	}
+
+	public HasAttributeMatcher(String attribute, String value) {
+		this.attribute = attribute;
+		this.matcher = is(value);
+		this.predicate = Arrays.<Object> asList("attr", attribute, value);
 	}
 
 	public boolean matches(Object o) {
@@ -45,4 +59,19 @@ public class HasAttributeMatcher extends BaseMatcher<Element> {
 		matcher.describeTo(description);
 	}
 
+	public List<String> attributes() {
+		return Arrays.asList(attribute);
+	}
+
+	public boolean matches(ElementSnapshot snapshot, int index) {
+		return matcher.matches(snapshot.attr(index, attribute));
+	}
+
+	public Object actual(ElementSnapshot snapshot, int index) {
+		return snapshot.attr(index, attribute);
+	}
+
+	public List<Object> predicate() {
+		return predicate;
+	}
 }
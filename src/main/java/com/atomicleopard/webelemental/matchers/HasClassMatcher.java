@@ -20,20 +20,31 @@
  */
 package com.atomicleopard.webelemental.matchers;
 
-import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.*;
+
+import java.util.Arrays;
+import java.util.List;
 
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 
 import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
 
-public class HasClassMatcher extends BaseMatcher<Element> {
+public class HasClassMatcher extends BaseMatcher<Element> implements PropertyMatcher {
 
 	private final Matcher<Iterable<String>> matcher;
+	private final List<Object> predicate;
 
 	public HasClassMatcher(Matcher<String> matcher) {
 		this.matcher = hasItem(matcher);
+		this.predicate = null;
+	}
+
+	public HasClassMatcher(String cssClass) {
+		this.matcher = hasItem(is(cssClass));
+		this.predicate = Arrays.<Object> asList("class", cssClass);
 	}
 
 	public boolean matches(Object o) {
@@ -45,4 +56,19 @@ public class HasClassMatcher extends BaseMatcher<Element> {
 		matcher.describeTo(description);
 	}
 
+	public List<String> attributes() {
+		return Arrays.asList("class");
+	}
+
+	public boolean matches(ElementSnapshot snapshot, int index) {
+		return matcher.matches(snapshot.classes(index));
+	}
+
+	public Object actual(ElementSnapshot snapshot, int index) {
+		return snapshot.classes(index);
+	}
+
+	public List<Object> predicate() {
+		return predicate;
+	}
 }
@@ -20,18 +20,31 @@
  */
 package com.atomicleopard.webelemental.matchers;
 
+import static org.hamcrest.Matchers.*;
+
+import java.util.Arrays;
+import java.util.List;
+
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 
 import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
 
-public class HasIdMatcher extends BaseMatcher<Element> {
+public class HasIdMatcher extends BaseMatcher<Element> implements PropertyMatcher {
 
 	private final Matcher<String> matcher;
+	private final List<Object> predicate;
 
 	public HasIdMatcher(Matcher<String> matcher) {
 		this.matcher = matcher;
+		this.predicate = null;
+	}
+
+	public HasIdMatcher(String id) {
+		this.matcher = is(id);
+		this.predicate = Arrays.<Object> asList("attr", "id", id);
 	}
 
 	public boolean matches(Object o) {
@@ -43,4 +56,19 @@ public class HasIdMatcher extends BaseMatcher<Element> {
 		matcher.describeTo(description);
 	}
 
+	public List<String> attributes() {
+		return Arrays.asList("id");
+	}
+
+	public boolean matches(ElementSnapshot snapshot, int index) {
+		return matcher.matches(snapshot.attr(index, "id"));
+	}
+
+	public Object actual(ElementSnapshot snapshot, int index) {
+		return snapshot.attr(index, "id");
+	}
+
+	public List<Object> predicate() {
+		return predicate;
+	}
 }
@@ -20,18 +20,32 @@
  */
 package com.atomicleopard.webelemental.matchers;
 
+import static org.hamcrest.Matchers.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 
 import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
 
-public class HasTextMatcher extends BaseMatcher<Element> {
+public class HasTextMatcher extends BaseMatcher<Element> implements PropertyMatcher {
 
 	private final Matcher<String> matcher;
+	private final List<Object> predicate;
 
 	public HasTextMatcher(Matcher<String> matcher) {
 		this.matcher = matcher;
+		this.predicate = null;
+	}
+
+	public HasTextMatcher(String text) {
+		this.matcher = is(text);
+		this.predicate = Arrays.<Object> asList("text", text);
 	}
 
 	public boolean matches(Object o) {
@@ -43,4 +57,19 @@ public class HasTextMatcher extends BaseMatcher<Element> {
 		matcher.describeTo(description);
 	}
 
+	public List<String> attributes() {
+		return Collections.emptyList();
+	}
+
+	public boolean matches(ElementSnapshot snapshot, int index) {
+		return matcher.matches(snapshot.text(index));
+	}
+
+	public Object actual(ElementSnapshot snapshot, int index) {
+		return snapshot.text(index);
+	}
+
+	public List<Object> predicate() {
+		return predicate;
+	}
 }
@@ -20,18 +20,31 @@
  */
 package com.atomicleopard.webelemental.matchers;
 
+import static org.hamcrest.Matchers.*;
+
+import java.util.Arrays;
+import java.util.List;
+
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 
 import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
 
-public class HasValueMatcher extends BaseMatcher<Element> {
+public class HasValueMatcher extends BaseMatcher<Element> implements PropertyMatcher {
 
 	private final Matcher<String> matcher;
+	private final List<Object> predicate;
 
 	public HasValueMatcher(Matcher<String> matcher) {
 		this.matcher = matcher;
+		this.predicate = null;
+	}
+
+	public HasValueMatcher(String value) {
+		this.matcher = is(value);
+		this.predicate = Arrays.<Object> asList("attr", "value", value);
 	}
 
 	public boolean matches(Object o) {
@@ -43,4 +56,19 @@ public class HasValueMatcher extends BaseMatcher<Element> {
 		matcher.describeTo(description);
 	}
 
+	public List<String> attributes() {
+		return Arrays.asList("value");
+	}
+
+	public boolean matches(ElementSnapshot snapshot, int index) {
+		return matcher.matches(snapshot.attr(index, "value"));
+	}
+
+	public Object actual(ElementSnapshot snapshot, int index) {
+		return snapshot.attr(index, "value");
+	}
+
+	public List<Object> predicate() {
+		return predicate;
+	}
 }
@@ -20,18 +20,54 @@
  */
 package com.atomicleopard.webelemental.matchers;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 
 import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
+
+public class IsVisibleMatcher extends BaseMatcher<Element> implements PropertyMatcher {
 
-public class IsVisibleMatcher extends BaseMatcher<Element> {
+	private final boolean visible;
+
+	public IsVisibleMatcher() {
+		this(true);
+	}
+
+	/**
+	 * @param visible
+	 *            true to match visible elements, false to match elements which
+	 *            are not visible
+	 */
+	public IsVisibleMatcher(boolean visible) {
+		this.visible = visible;
+	}
 
 	public boolean matches(Object o) {
-		return ((Element) o).isVisible();
+		return ((Element) o).isVisible() == visible;
 	}
 
 	public void describeTo(Description description) {
-		description.appendText("element to be visible");
+		description.appendText(visible ? "element to be visible" : "not element to be visible");
+	}
+
+	public List<String> attributes() {
+		return Collections.emptyList();
+	}
+
+	public boolean matches(ElementSnapshot snapshot, int index) {
+		return snapshot.isVisible(index) == visible;
+	}
+
+	public Object actual(ElementSnapshot snapshot, int index) {
+		return snapshot.isVisible(index);
+	}
+
+	public List<Object> predicate() {
+		return Arrays.<Object> asList(visible ? "visible" : "hidden");
 	}
 }
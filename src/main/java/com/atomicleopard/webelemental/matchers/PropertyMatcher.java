@@ -0,0 +1,73 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.matchers;
+
+import java.util.List;
+
+import org.hamcrest.Matcher;
+
+import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
+
+/**
+ * <p>
+ * Implemented by {@link Matcher}s which verify a single property of an
+ * {@link Element}. This allows the matcher to be evaluated for many selected
+ * elements at once, either against an {@link ElementSnapshot} or, where the
+ * matcher has an equivalent browser side predicate, by script.
+ * </p>
+ * 
+ * @see Element#filter(Matcher)
+ */
+public interface PropertyMatcher {
+	/**
+	 * @return the names of the attributes an {@link ElementSnapshot} must
+	 *         capture for {@link #matches(ElementSnapshot, int)}
+	 */
+	List<String> attributes();
+
+	/**
+	 * @param snapshot
+	 *            a snapshot capturing at least {@link #attributes()}
+	 * @param index
+	 *            the index of the captured element to verify
+	 * @return true if the captured element at the given index matches
+	 */
+	boolean matches(ElementSnapshot snapshot, int index);
+
+	/**
+	 * @param snapshot
+	 *            a snapshot capturing at least {@link #attributes()}
+	 * @param index
+	 *            the index of the captured element
+	 * @return the value of the verified property of the captured element at
+	 *         the given index, reported when the matcher does not match
+	 */
+	Object actual(ElementSnapshot snapshot, int index);
+
+	/**
+	 * @return a predicate which can be evaluated in the browser with the same
+	 *         result as this matcher, as [type, arguments...], or null if this
+	 *         matcher can only be evaluated locally. Attributes are compared
+	 *         as {@link Element#attr(String)} returns them.
+	 */
+	List<Object> predicate();
+}
@@ -0,0 +1,199 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.matchers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+
+import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
+
+/**
+ * <p>
+ * Applies a {@link Matcher} to every selected element of an {@link Element},
+ * rather than to the first selected element, and requires it to match every
+ * element, at least one element or no element.
+ * </p>
+ * <p>
+ * When the given matcher is a {@link PropertyMatcher}, the properties of all
+ * selected elements are read at once with {@link Element#snapshot(String...)}.
+ * Otherwise the matcher is applied to each selected element in turn.
+ * </p>
+ * <p>
+ * The indexes of the elements which fail the matcher are found by
+ * {@link #failures(Element)}, so that a failed assertion can report them.
+ * The matcher itself holds no state from an evaluation and can be shared.
+ * </p>
+ */
+public class QuantifiedMatcher extends BaseMatcher<Element> {
+	public enum Quantifier {
+		/**
+		 * Every selected element must match, which holds when none are
+		 * selected
+		 */
+		EVERY("every element"),
+		/**
+		 * At least one selected element must match
+		 */
+		ANY("any element"),
+		/**
+		 * No selected element may match, which holds when none are selected
+		 */
+		NO("no element");
+
+		private final String description;
+
+		private Quantifier(String description) {
+			this.description = description;
+		}
+	}
+
+	private final Quantifier quantifier;
+	private final Matcher<Element> matcher;
+
+	public QuantifiedMatcher(Quantifier quantifier, Matcher<Element> matcher) {
+		this.quantifier = quantifier;
+		this.matcher = matcher;
+	}
+
+	public boolean matches(Object o) {
+		return matches(results((Element) o));
+	}
+
+	/**
+	 * @param snapshot
+	 *            a snapshot of all selected elements, capturing at least
+	 *            {@link #attributes()}
+	 * @return true if the captured elements satisfy this matcher
+	 * @throws IllegalStateException
+	 *             if the quantified matcher is not a {@link PropertyMatcher}
+	 */
+	public boolean matches(ElementSnapshot snapshot) {
+		return matches(results(snapshot));
+	}
+
+	/**
+	 * @param snapshot
+	 *            a snapshot of all selected elements, capturing at least
+	 *            {@link #attributes()}
+	 * @return the value of the verified property of each captured element,
+	 *         reported when this matcher does not match
+	 * @throws IllegalStateException
+	 *             if the quantified matcher is not a {@link PropertyMatcher}
+	 */
+	public List<Object> actual(ElementSnapshot snapshot) {
+		if (!(matcher instanceof PropertyMatcher)) {
+			throw new IllegalStateException(String.format("Only property matchers can be evaluated against a snapshot, not %s", matcher));
+		}
+		List<Object> actual = new ArrayList<Object>(snapshot.size());
+		for (int i = 0; i < snapshot.size(); i++) {
+			actual.add(((PropertyMatcher) matcher).actual(snapshot, i));
+		}
+		return actual;
+	}
+
+	/**
+	 * @return the names of the attributes a snapshot must capture for
+	 *         {@link #matches(ElementSnapshot)}, or null if the quantified
+	 *         matcher is not a {@link PropertyMatcher}
+	 */
+	public List<String> attributes() {
+		return matcher instanceof PropertyMatcher ? ((PropertyMatcher) matcher).attributes() : null;
+	}
+
+	/**
+	 * Evaluates this matcher against the given Element again, to find the
+	 * elements which caused it to fail.
+	 * 
+	 * @param element
+	 *            the Element the matcher failed for
+	 * @return the indexes of the selected elements which cause this matcher to
+	 *         fail, or an empty list if it matches
+	 */
+	public List<Integer> failures(Element element) {
+		return failures(results(element));
+	}
+
+	/**
+	 * @param snapshot
+	 *            a snapshot of all selected elements, capturing at least
+	 *            {@link #attributes()}
+	 * @return the indexes of the captured elements which cause this matcher to
+	 *         fail, or an empty list if it matches
+	 * @throws IllegalStateException
+	 *             if the quantified matcher is not a {@link PropertyMatcher}
+	 */
+	public List<Integer> failures(ElementSnapshot snapshot) {
+		return failures(results(snapshot));
+	}
+
+	public void describeTo(Description description) {
+		description.appendText(quantifier.description).appendText(" ");
+		matcher.describeTo(description);
+	}
+
+	private List<Boolean> results(Element element) {
+		if (matcher instanceof PropertyMatcher) {
+			List<String> attributes = attributes();
+			return results(element.snapshot(attributes.toArray(new String[attributes.size()])));
+		}
+		List<Boolean> results = new ArrayList<Boolean>();
+		for (Element selected : element) {
+			results.add(matcher.matches(selected));
+		}
+		return results;
+	}
+
+	private List<Boolean> results(ElementSnapshot snapshot) {
+		if (!(matcher instanceof PropertyMatcher)) {
+			throw new IllegalStateException(String.format("Only property matchers can be evaluated against a snapshot, not %s", matcher));
+		}
+		List<Boolean> results = new ArrayList<Boolean>(snapshot.size());
+		for (int i = 0; i < snapshot.size(); i++) {
+			results.add(((PropertyMatcher) matcher).matches(snapshot, i));
+		}
+		return results;
+	}
+
+	private boolean matches(List<Boolean> results) {
+		return failures(results).isEmpty() && !(quantifier == Quantifier.ANY && !results.contains(true));
+	}
+
+	private List<Integer> failures(List<Boolean> results) {
+		List<Integer> matched = new ArrayList<Integer>();
+		List<Integer> unmatched = new ArrayList<Integer>();
+		for (int i = 0; i < results.size(); i++) {
+			(results.get(i) ? matched : unmatched).add(i);
+		}
+		if (quantifier == Quantifier.EVERY) {
+			return unmatched;
+		}
+		if (quantifier == Quantifier.NO) {
+			return matched;
+		}
+		return matched.isEmpty() ? unmatched : Collections.<Integer> emptyList();
+	}
+}
@@ -17,14 +17,15 @@
  * In this class you can add:
  * <pre><code>
  * protected Element find(By selector) {
- *     List&lt;WebElement&gt; findElements = getDriver().findElements(selector);
- *     return new Element(findElements);
+ *     return new Element(getDriver(), selector);
  * }
  * 
  * protected Element find(String selector) {
- *     return find(By.cssSelector(selector));
+ *     return new Element(getDriver(), selector);
  * }
  * </code></pre>
+ * Elements created this way are lazy, they only select elements from the page when first used, so page objects
+ * can declare their Elements as fields up front without paying for lookups they never use.
  * Once you have obtained an {@link com.atomicleopard.webelemental.Element}, you can interact with it in the following way:
  * <pre><code>
  * find("#firstName").val("Anthony");
@@ -0,0 +1,300 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static com.atomicleopard.expressive.Expressive.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openqa.selenium.By;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsDriver;
+
+public class AsyncElementTest {
+	private ExecutorService pool;
+
+	@After
+	public void after() {
+		AsyncElement.setExecutor(null);
+		if (pool != null) {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void shouldReturnResultsThroughFutures() throws Exception {
+		WebElement webElement = mock(WebElement.class);
+		when(webElement.getText()).thenReturn("Text");
+		when(webElement.getAttribute("href")).thenReturn("/home");
+		Element element = new Element(webElement);
+
+		assertThat(element.async().element(), is(sameInstance(element)));
+		assertThat(element.async().text().get(), is("Text"));
+		assertThat(element.async().attr("href").get(), is("/home"));
+		assertThat(element.async().matches(ElementMatchers.attr("href", "/home")).get(), is(true));
+		assertThat(element.async().matches(ElementMatchers.attr("href", "/away")).get(), is(false));
+		assertThat(element.async().click().get(), is(sameInstance(element)));
+		verify(webElement).click();
+	}
+
+	@Test
+	public void shouldSelectFoundElementsBeforeCompleting() throws Exception {
+		SearchContext context = mock(SearchContext.class);
+		WebElement webElement = mock(WebElement.class);
+		List<WebElement> found = list(webElement);
+		List<WebElement> children = list(mock(WebElement.class), mock(WebElement.class));
+		when(context.findElements(By.cssSelector("ul"))).thenReturn(found);
+		when(webElement.findElements(By.cssSelector("li"))).thenReturn(children);
+		Element element = new Element(context, By.cssSelector("ul"));
+
+		Element result = element.async().find(By.cssSelector("li")).get();
+		verify(webElement).findElements(By.cssSelector("li"));
+		assertThat(result.selected(), is(2));
+	}
+
+	@Test
+	public void shouldPerformOperationsOfOneSessionInOrder() throws Exception {
+		pool = Executors.newFixedThreadPool(4);
+		AsyncElement.setExecutor(pool);
+		WebDriver driver = mock(WebDriver.class);
+		WebElement first = mock(WebElement.class, withSettings().extraInterfaces(WrapsDriver.class));
+		WebElement second = mock(WebElement.class, withSettings().extraInterfaces(WrapsDriver.class));
+		when(((WrapsDriver) first).getWrappedDriver()).thenReturn(driver);
+		when(((WrapsDriver) second).getWrappedDriver()).thenReturn(driver);
+
+		Future<Element> last = null;
+		for (int i = 0; i < 20; i++) {
+			last = new Element(i % 2 == 0 ? first : second).async().val(String.valueOf(i));
+		}
+		last.get(5, TimeUnit.SECONDS);
+
+		InOrder inOrder = inOrder(first, second);
+		for (int i = 0; i < 20; i++) {
+			inOrder.verify(i % 2 == 0 ? first : second).sendKeys(String.valueOf(i));
+		}
+	}
+
+	@Test
+	public void shouldPerformOperationsOfElementsWithAnUnknownDriverInOrder() throws Exception {
+		pool = Executors.newFixedThreadPool(4);
+		AsyncElement.setExecutor(pool);
+		final List<String> performed = new CopyOnWriteArrayList<String>();
+		WebElement slow = mock(WebElement.class);
+		WebElement fast = mock(WebElement.class);
+		doAnswer(new Answer<Void>() {
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				Thread.sleep(100);
+				performed.add("slow");
+				return null;
+			}
+		}).when(slow).click();
+		doAnswer(new Answer<Void>() {
+			public Void answer(InvocationOnMock invocation) {
+				performed.add("fast");
+				return null;
+			}
+		}).when(fast).click();
+
+		new Element(slow).async().click();
+		new Element(fast).async().click().get(5, TimeUnit.SECONDS);
+		assertThat(performed, is(Arrays.asList("slow", "fast")));
+	}
+
+	@Test
+	public void shouldKeyTheSessionOnTheDriverWhenItIsKnown() {
+		WebDriver driver = mock(WebDriver.class);
+		WebElement plain = mock(WebElement.class);
+		WebElement wrapping = mock(WebElement.class, withSettings().extraInterfaces(WrapsDriver.class));
+		when(((WrapsDriver) wrapping).getWrappedDriver()).thenReturn(driver);
+		List<WebElement> found = list(wrapping);
+		when(plain.findElements(By.cssSelector("li"))).thenReturn(found);
+		SearchContext context = mock(SearchContext.class);
+
+		assertThat(new Element(driver, By.cssSelector("ul")).find("li").session(), is((Object) driver));
+		assertThat(new Element(wrapping).session(), is((Object) driver));
+		assertThat(new Element(plain).find(By.cssSelector("li")).select().session(), is((Object) driver));
+		assertThat(new Element(context, By.cssSelector("ul")).session(), is((Object) context));
+		assertThat(new Element(plain).session(), is(sameInstance(Element.UNKNOWN_SESSION)));
+		assertThat(new Element(plain, By.cssSelector("li")).session(), is(sameInstance(Element.UNKNOWN_SESSION)));
+	}
+
+	@Test
+	public void shouldPerformOperationsOfDifferentSessionsInParallel() throws Exception {
+		pool = Executors.newCachedThreadPool();
+		AsyncElement.setExecutor(pool);
+		final CountDownLatch latch = new CountDownLatch(1);
+		SearchContext buyer = mock(SearchContext.class);
+		SearchContext seller = mock(SearchContext.class);
+		WebElement waiting = mock(WebElement.class);
+		WebElement releasing = mock(WebElement.class);
+		List<WebElement> buyerElements = list(waiting);
+		List<WebElement> sellerElements = list(releasing);
+		when(buyer.findElements(By.id("buy"))).thenReturn(buyerElements);
+		when(seller.findElements(By.id("sell"))).thenReturn(sellerElements);
+		when(waiting.getText()).thenAnswer(new Answer<String>() {
+			public String answer(InvocationOnMock invocation) throws Throwable {
+				return latch.await(5, TimeUnit.SECONDS) ? "Released" : "Timed out";
+			}
+		});
+		doAnswer(new Answer<Void>() {
+			public Void answer(InvocationOnMock invocation) {
+				latch.countDown();
+				return null;
+			}
+		}).when(releasing).click();
+
+		Future<String> text = new Element(buyer, By.id("buy")).async().text();
+		new Element(seller, By.id("sell")).async().click();
+
+		assertThat(text.get(10, TimeUnit.SECONDS), is("Released"));
+	}
+
+	@Test
+	public void shouldFailFutureWhenVerificationFails() throws Exception {
+		WebElement webElement = mock(WebElement.class);
+		when(webElement.getAttribute("id")).thenReturn("actual");
+		Element element = new Element(webElement);
+
+		assertThat(element.async().verify(ElementMatchers.id("actual")).get(), is(sameInstance(element)));
+		try {
+			element.async().verify(ElementMatchers.id("expected")).get();
+			fail("Expected ExecutionException");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause(), is(instanceOf(AssertionError.class)));
+		}
+	}
+
+	@Test
+	public void shouldUseTheConfiguredExecutor() throws Exception {
+		Executor direct = new Executor() {
+			public void execute(Runnable command) {
+				command.run();
+			}
+		};
+		AsyncElement.setExecutor(direct);
+		assertThat(AsyncElement.getExecutor(), is(sameInstance(direct)));
+
+		WebElement webElement = mock(WebElement.class);
+		Future<Element> click = new Element(webElement).async().click();
+		assertThat(click.isDone(), is(true));
+		verify(webElement).click();
+
+		AsyncElement.setExecutor(null);
+		assertThat(AsyncElement.getExecutor(), is(not(sameInstance(direct))));
+	}
+
+	@Test
+	public void shouldWaitForVerificationWithinTheGivenTimeout() throws Exception {
+		WebElement webElement = mock(WebElement.class);
+		when(webElement.getText()).thenReturn("Listed", "Listed", "Sold");
+		Element element = new Element(webElement);
+
+		assertThat(element.async().verify(ElementMatchers.text("Sold"), 5, TimeUnit.SECONDS).get(), is(sameInstance(element)));
+	}
+
+	@Test
+	public void shouldFailOperationsRejectedByTheExecutor() throws Exception {
+		final List<Runnable> accepted = new ArrayList<Runnable>();
+		AsyncElement.setExecutor(new Executor() {
+			public void execute(Runnable command) {
+				accepted.add(command);
+			}
+		});
+		WebElement webElement = ElementTest.scriptedWebElement(mock(WebDriver.class));
+		Element element = new Element(webElement);
+		Future<Element> first = element.async().click();
+		Future<Element> second = element.async().click();
+		Future<String> third = element.async().text();
+
+		AsyncElement.setExecutor(new Executor() {
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException("shut down");
+			}
+		});
+		accepted.get(0).run();
+		assertThat(first.get(), is(sameInstance(element)));
+		assertRejected(second);
+		assertRejected(third);
+		assertRejected(element.async().click());
+
+		AsyncElement.setExecutor(null);
+		assertThat(element.async().click().get(5, TimeUnit.SECONDS), is(sameInstance(element)));
+		verify(webElement, times(2)).click();
+	}
+
+	@Test
+	public void shouldRunALongQueueWithACallerRunsExecutorWithoutRecursing() throws Exception {
+		final List<Runnable> accepted = new ArrayList<Runnable>();
+		AsyncElement.setExecutor(new Executor() {
+			public void execute(Runnable command) {
+				accepted.add(command);
+			}
+		});
+		WebElement webElement = ElementTest.scriptedWebElement(mock(WebDriver.class));
+		Element element = new Element(webElement);
+		List<Future<Element>> clicks = new ArrayList<Future<Element>>();
+		for (int i = 0; i < 20000; i++) {
+			clicks.add(element.async().click());
+		}
+		AsyncElement.setExecutor(new Executor() {
+			public void execute(Runnable command) {
+				command.run();
+			}
+		});
+		accepted.get(0).run();
+		assertThat(accepted.size(), is(1));
+		for (Future<Element> click : clicks) {
+			assertThat(click.get(), is(sameInstance(element)));
+		}
+		verify(webElement, times(20000)).click();
+	}
+
+	private static void assertRejected(Future<?> future) throws InterruptedException {
+		assertThat(future.isDone(), is(true));
+		try {
+			future.get();
+			fail("Expected the operation to be rejected");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause(), is(instanceOf(RejectedExecutionException.class)));
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.atomicleopard.webelemental.DefaultElementMetrics.OperationMetrics;
+
+public class DefaultElementMetricsTest {
+	private DefaultElementMetrics metrics = new DefaultElementMetrics();
+
+	@Test
+	public void shouldAccumulateMetricsForEachOperation() {
+		metrics.record("text", 1, 1, 1500);
+		metrics.record("text", 3, 2, 500);
+		metrics.record("click", 5, 5, 10000);
+
+		OperationMetrics text = metrics.operations().get("text");
+		assertThat(text.count(), is(2L));
+		assertThat(text.commands(), is(3L));
+		assertThat(text.selected(), is(4L));
+		assertThat(text.maxSelected(), is(3L));
+		assertThat(text.nanos(), is(2000L));
+		assertThat(text.maxNanos(), is(1500L));
+		assertThat(new ArrayList<String>(metrics.operations().keySet()), is(Arrays.asList("click", "text")));
+		assertThat(metrics.commands(), is(8L));
+
+		metrics.reset();
+		assertThat(metrics.operations().isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldCountLatenciesInPowerOfTwoMicrosecondBuckets() {
+		assertThat(OperationMetrics.bucket(0), is(0));
+		assertThat(OperationMetrics.bucket(999), is(0));
+		assertThat(OperationMetrics.bucket(1000), is(1));
+		assertThat(OperationMetrics.bucket(3999), is(2));
+		assertThat(OperationMetrics.bucket(4000), is(3));
+		assertThat(OperationMetrics.bucket(Long.MAX_VALUE), is(DefaultElementMetrics.BUCKETS - 1));
+
+		metrics.record("attr", 1, 1, 1500);
+		metrics.record("attr", 1, 1, 1200);
+		assertThat(metrics.operations().get("attr").histogram(1), is(2L));
+		assertThat(metrics.operations().get("attr").histogram(0), is(0L));
+	}
+
+	@Test
+	public void shouldExportToJson() throws Exception {
+		metrics.record("find", 2, 1, 3000);
+		metrics.record("text", 1, 1, 500);
+		String expected = "{\"commands\":2,\"operations\":{"
+				+ "\"find\":{\"count\":1,\"commands\":1,\"selected\":2,\"maxSelected\":2,\"nanos\":3000,\"meanNanos\":3000,\"maxNanos\":3000,\"histogramMicros\":{\"4\":1}},"
+				+ "\"text\":{\"count\":1,\"commands\":1,\"selected\":1,\"maxSelected\":1,\"nanos\":500,\"meanNanos\":500,\"maxNanos\":500,\"histogramMicros\":{\"1\":1}}}}";
+		assertThat(metrics.toJson(), is(expected));
+
+		StringWriter writer = new StringWriter();
+		metrics.writeJson(writer);
+		assertThat(writer.toString(), is(expected));
+	}
+
+	@Test
+	public void shouldRecordFromManyThreadsAtOnce() throws Exception {
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						metrics.record("text", 1, 1, j);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertThat(metrics.operations().get("text").count(), is(8000L));
+		assertThat(metrics.operations().get("text").commands(), is(8000L));
+		assertThat(metrics.operations().get("text").maxNanos(), is(999L));
+	}
+}
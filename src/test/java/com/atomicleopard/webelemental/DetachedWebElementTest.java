@@ -0,0 +1,144 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebElement;
+
+public class DetachedWebElementTest {
+	private DetachedWebElement table = DetachedWebElement.parse("<table id='results'><tbody>"
+			+ "<tr class='row odd'><td name='name'>Anthony</td><td>Smith <span data-webelemental-hidden=''>(hidden)</span></td></tr>"
+			+ "<tr class='row'><td name='name'>Bob</td><td><input name='age' value='21' disabled></td></tr>"
+			+ "</tbody></table>", true);
+
+	@Test
+	public void shouldParseAnElementAndItsDescendants() {
+		assertThat(table.getTagName(), is("table"));
+		assertThat(table.getAttribute("id"), is("results"));
+		assertThat(table.getAttribute("class"), is(nullValue()));
+		assertThat(table.isDisplayed(), is(true));
+		assertThat(table.getAttribute("outerHTML"), containsString("<td name=\"name\">Anthony</td>"));
+	}
+
+	@Test
+	public void shouldParseElementsOnlyValidWithinOtherElements() {
+		DetachedWebElement row = DetachedWebElement.parse("<tr><td>1</td><td>2</td></tr>", true);
+		assertThat(row.getTagName(), is("tr"));
+		assertThat(row.findElements(By.tagName("td")).size(), is(2));
+
+		DetachedWebElement option = DetachedWebElement.parse("<option selected>One</option>", true);
+		assertThat(option.getTagName(), is("option"));
+		assertThat(option.getAttribute("value"), is("One"));
+		assertThat(option.isSelected(), is(true));
+	}
+
+	@Test
+	public void shouldFindDescendantsExcludingItself() {
+		assertThat(table.findElements(By.cssSelector("tr.row")).size(), is(2));
+		assertThat(table.findElements(By.cssSelector("table")).size(), is(0));
+		assertThat(table.findElements(By.className("odd")).size(), is(1));
+		assertThat(table.findElements(By.tagName("td")).size(), is(4));
+		assertThat(table.findElements(By.name("name")).size(), is(2));
+		assertThat(table.findElements(By.id("results")).size(), is(0));
+		assertThat(table.findElement(By.cssSelector("input")).getAttribute("value"), is("21"));
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void shouldFailToFindAMissingElement() {
+		table.findElement(By.cssSelector("div"));
+	}
+
+	@Test
+	public void shouldMoveBetweenRelatedElementsWithTheXPathsUsedByElement() {
+		WebElement cell = table.findElements(By.cssSelector("td")).get(1);
+		assertThat(cell.findElements(By.xpath("..")).get(0).getAttribute("class"), is("row odd"));
+		assertThat(cell.findElements(By.xpath("parent::*")).get(0).getAttribute("class"), is("row odd"));
+		assertThat(cell.findElements(By.xpath("/*")).get(0), is((WebElement) table));
+		assertThat(cell.findElements(By.xpath("ancestor-or-self::*")).size(), is(4));
+		assertThat(cell.findElements(By.xpath("preceding-sibling::*[1]")).get(0).getText(), is("Anthony"));
+		assertThat(cell.findElements(By.xpath("following-sibling::*[1]")).isEmpty(), is(true));
+		assertThat(cell.findElements(By.xpath("preceding-sibling::* | following-sibling::*")).size(), is(1));
+		assertThat(table.findElements(By.xpath("..")).isEmpty(), is(true));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void shouldNotSupportOtherXPaths() {
+		table.findElements(By.xpath("//td"));
+	}
+
+	@Test
+	public void shouldReturnTheTextOfDisplayedElements() {
+		List<WebElement> cells = table.findElements(By.cssSelector("td"));
+		assertThat(cells.get(1).getText(), is("Smith"));
+		assertThat(table.findElement(By.cssSelector("span")).isDisplayed(), is(false));
+		assertThat(table.findElement(By.cssSelector("span")).getText(), is(""));
+		assertThat(table.findElement(By.cssSelector("span")).getAttribute(DetachedWebElement.HIDDEN), is(nullValue()));
+		assertThat(table.getText(), is("Anthony Smith\nBob"));
+		assertThat(DetachedWebElement.parse("<div>hidden</div>", false).getText(), is(""));
+	}
+
+	@Test
+	public void shouldReturnTheTextContentOfAllDescendants() {
+		assertThat(table.findElements(By.cssSelector("td")).get(1).getAttribute("textContent"), is("Smith (hidden)"));
+		assertThat(table.findElement(By.cssSelector("span")).getAttribute("textContent"), is("(hidden)"));
+	}
+
+	@Test
+	public void shouldReturnBooleanAttributesAsTrueOrNull() {
+		WebElement input = table.findElement(By.cssSelector("input"));
+		assertThat(input.getAttribute("disabled"), is("true"));
+		assertThat(input.getAttribute("checked"), is(nullValue()));
+		assertThat(input.isEnabled(), is(false));
+		assertThat(input.isSelected(), is(false));
+	}
+
+	@Test
+	public void shouldEqualOtherCopiesOfTheSameElement() {
+		WebElement cell1 = table.findElement(By.cssSelector("td"));
+		WebElement cell2 = table.findElements(By.tagName("td")).get(0);
+		assertThat(cell1, is(cell2));
+		assertThat(cell1.hashCode(), is(cell2.hashCode()));
+		assertThat(cell1, is(not(table.findElements(By.tagName("td")).get(1))));
+	}
+
+	@Test
+	public void shouldNotSupportActions() {
+		try {
+			table.click();
+			fail("Expected detached elements to be read-only");
+		} catch (UnsupportedOperationException e) {
+			assertThat(e.getMessage(), containsString("read-only snapshot"));
+		}
+		try {
+			table.sendKeys("text");
+			fail("Expected detached elements to be read-only");
+		} catch (UnsupportedOperationException e) {
+			assertThat(e.getMessage(), containsString("sendKeys()"));
+		}
+	}
+}
@@ -23,17 +23,27 @@ package com.atomicleopard.webelemental;
 import static com.atomicleopard.expressive.Expressive.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import org.hamcrest.Matchers;
+import org.hamcrest.StringDescription;
 import org.junit.Test;
+import org.mockito.Mockito;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 
 import com.atomicleopard.expressive.Expressive;
 import com.atomicleopard.webelemental.Element;
 import com.atomicleopard.webelemental.ElementMatcher;
+import com.atomicleopard.webelemental.matchers.HasIdMatcher;
+import com.atomicleopard.webelemental.matchers.QuantifiedMatcher;
+import com.atomicleopard.webelemental.matchers.QuantifiedMatcher.Quantifier;
 
 /**
  * This test class has a series of pretty strange looking tests for two reasons:
@@ -227,6 +237,222 @@ public class ElementMatcherTest {
 		});
 	}
 
+	@Test
+	public void shouldWaitForAssertionsToHoldWithin() {
+		when(element1.isDisplayed()).thenReturn(false, false, true);
+		when(element1.getText()).thenReturn("loading", "loaded");
+		assertThat(elementMatcher.within(2, TimeUnit.SECONDS), is(sameInstance(elementMatcher)));
+		elementMatcher.isVisible().hasText("loaded");
+		verify(element1, times(3)).isDisplayed();
+	}
+
+	@Test
+	public void shouldFailWhenAssertionsDoNotHoldWithin() {
+		elementMatcher.within(100, TimeUnit.MILLISECONDS);
+		long start = System.currentTimeMillis();
+		expectAssertionFailure(new Runnable() {
+			public void run() {
+				elementMatcher.isVisible();
+			}
+		});
+		assertThat(System.currentTimeMillis() - start >= 100, is(true));
+	}
+
+	@Test
+	public void shouldWaitForALazyElementToBePresentByWatchingThePageForChanges() {
+		WebDriver driver = ElementTest.scriptingDriver();
+		when(((JavascriptExecutor) driver).executeAsyncScript(eq(Scripts.AWAIT_MUTATION), anyVararg())).thenReturn("a.1");
+		when(driver.findElements(By.xpath("//div"))).thenReturn(Collections.<WebElement> emptyList(), Collections.<WebElement> emptyList(), list(element1));
+		Element lazy = new Element(driver, By.xpath("//div"));
+		lazy.verify().eventually().isPresent().hasId("value1");
+		verify((JavascriptExecutor) driver, times(2)).executeAsyncScript(eq(Scripts.AWAIT_MUTATION), anyVararg());
+	}
+
+	@Test
+	public void shouldSelectTheParentsOfAChildElementAgainWhileWaiting() {
+		WebDriver driver = mock(WebDriver.class);
+		WebElement results = mock(WebElement.class);
+		when(driver.findElements(By.xpath("//ul"))).thenReturn(Collections.<WebElement> emptyList(), list(results));
+		when(results.findElements(By.xpath("li"))).thenReturn(list(element1));
+		new Element(driver, By.xpath("//ul")).find(By.xpath("li")).verify().within(1, TimeUnit.SECONDS).isPresent();
+		verify(driver, times(2)).findElements(By.xpath("//ul"));
+	}
+
+	@Test
+	public void shouldSelectTheParentOfAnIndexedElementAgainWhileWaiting() {
+		WebDriver driver = mock(WebDriver.class);
+		when(driver.findElements(By.xpath("//div"))).thenReturn(Collections.<WebElement> emptyList(), list(element1, element2));
+		new Element(driver, By.xpath("//div")).first().verify().eventually().hasId("value1");
+		verify(driver, times(2)).findElements(By.xpath("//div"));
+	}
+
+	@Test
+	public void shouldWaitForALazyElementToBeRemoved() {
+		WebDriver driver = mock(WebDriver.class);
+		when(driver.findElements(By.xpath("//div"))).thenReturn(list(element1), Collections.<WebElement> emptyList());
+		new Element(driver, By.xpath("//div")).verify().within(1, TimeUnit.SECONDS).isNotPresent();
+		verify(driver, times(2)).findElements(By.xpath("//div"));
+	}
+
+	@Test
+	public void shouldReportTheActualTextAndVisibilityOfAFailedAssertion() {
+		try {
+			elementMatcher.hasText("text 2");
+			fail("Expected the text assertion to fail");
+		} catch (AssertionError e) {
+			assertThat(e.getMessage(), is("\nExpected: has text is \"text 2\"\n     got: \"text 1\"\n"));
+		}
+		try {
+			elementMatcher.isVisible();
+			fail("Expected the visibility assertion to fail");
+		} catch (AssertionError e) {
+			assertThat(e.getMessage(), is("\nExpected: element to be visible\n     got: <false>\n"));
+		}
+	}
+
+	@Test
+	public void shouldReportTheActualValueOfEachFailedAssertionInABatch() {
+		try {
+			elementMatcher.batch().hasText("text 2").hasId("value1").hasAttribute("data-attr", "data2").assertAll();
+			fail("Expected the batched assertions to fail");
+		} catch (AssertionError e) {
+			assertThat(e.getMessage(), is("2 of 3 assertions failed\nExpected: has text is \"text 2\"\n     got: \"text 1\"\nExpected: has attribute \"data-attr\" is \"data2\"\n     got: \"data1\""));
+		}
+	}
+
+	@Test
+	public void shouldCollectAssertionsInABatchAndReportAllFailures() {
+		assertThat(elementMatcher.batch(), is(sameInstance(elementMatcher)));
+		elementMatcher.hasId("value2").hasText("text 1").hasSize(3).isVisible();
+		try {
+			elementMatcher.assertAll();
+			fail("Expected the batched assertions to fail");
+		} catch (AssertionError e) {
+			assertThat(e.getMessage(), containsString("3 of 4 assertions failed"));
+			assertThat(e.getMessage(), containsString("has id is \"value2\""));
+			assertThat(e.getMessage(), containsString("has size is <3>"));
+			assertThat(e.getMessage(), containsString("element to be visible"));
+			assertThat(e.getMessage(), not(containsString("has text")));
+		}
+
+		expectAssertionFailure(new Runnable() {
+			public void run() {
+				elementMatcher.hasId("value2");
+			}
+		});
+	}
+
+	@Test
+	public void shouldPassABatchWhenAllAssertionsHold() {
+		elementMatcher.batch().isPresent().hasSize(2).hasId("value1").hasAttribute("data-attr", "data1").hasValue("1").hasText(containsString("text")).isNotVisible();
+		assertThat(elementMatcher.assertAll(), is(sameInstance(elementMatcher)));
+	}
+
+	@Test
+	public void shouldEvaluateBatchedPropertyAssertionsAgainstOneSnapshotWhenAScriptExecutorIsAvailable() {
+		WebDriver driver = ElementTest.scriptingDriver();
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+		WebElement webElement = ElementTest.scriptedWebElement(driver);
+		when(driver.findElements(By.xpath("//input"))).thenReturn(list(webElement));
+		when(executor.executeScript(Scripts.SNAPSHOT, list(webElement), list("id", "value"))).thenReturn(Collections.singletonList(list("input", "some text", true, list("x", "y"))));
+
+		new Element(driver, By.xpath("//input")).verify().batch().isPresent().hasId("x").hasValue("y").hasText(containsString("text")).isVisible().assertAll();
+
+		verify(executor, times(1)).executeScript(anyString(), anyVararg());
+		verify(driver, times(1)).findElements(By.xpath("//input"));
+		verify(webElement, never()).getAttribute(anyString());
+		verify(webElement, never()).getText();
+		verify(webElement, never()).isDisplayed();
+	}
+
+	@Test
+	public void shouldMakeAssertionsAgainstEverySelectedElementAfterAll() {
+		assertThat(elementMatcher.all(), is(sameInstance(elementMatcher)));
+		elementMatcher.hasText(Matchers.startsWith("text")).hasSize(2).isNotVisible();
+		try {
+			elementMatcher.hasId("value1");
+			fail("Expected the assertion to fail for the second element");
+		} catch (AssertionError e) {
+			assertThat(e.getMessage(), containsString("every element has id is \"value1\", failed for the elements at [1]"));
+		}
+	}
+
+	@Test
+	public void shouldReportTheFailingElementsOfEachAssertionMadeWithASharedMatcher() {
+		QuantifiedMatcher every = new QuantifiedMatcher(Quantifier.EVERY, new HasIdMatcher("value1"));
+		try {
+			new Element(list(element1, element2)).verify().using(every);
+			fail("Expected the assertion to fail for the second element");
+		} catch (AssertionError e) {
+			assertThat(e.getMessage(), containsString("failed for the elements at [1]"));
+		}
+		try {
+			new Element(list(element2, element1)).verify().using(every);
+			fail("Expected the assertion to fail for the first element");
+		} catch (AssertionError e) {
+			assertThat(e.getMessage(), containsString("failed for the elements at [0]"));
+		}
+		assertThat(StringDescription.toString(every), is("every element has id is \"value1\""));
+	}
+
+	@Test
+	public void shouldMakeAssertionsAgainstAnySelectedElementAfterAny() {
+		assertThat(elementMatcher.any(), is(sameInstance(elementMatcher)));
+		elementMatcher.hasId("value2").hasAttribute("data-attr", "data1");
+		expectAssertionFailure(new Runnable() {
+			public void run() {
+				elementMatcher.hasId("value3");
+			}
+		});
+	}
+
+	@Test
+	public void shouldEvaluateBatchedQuantifiedAssertionsAgainstOneSnapshotOfAllElements() {
+		WebDriver driver = ElementTest.scriptingDriver();
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+		WebElement row1 = ElementTest.scriptedWebElement(driver);
+		WebElement row2 = ElementTest.scriptedWebElement(driver);
+		when(executor.executeScript(Scripts.SNAPSHOT, list(row1, row2), list("id", "class"))).thenReturn(
+				list(list("tr", "Anthony", true, list("anthony", "row")), list("tr", "", false, list("bob", "row"))));
+		when(executor.executeScript(Scripts.DESCRIBE, list(row1, row2), list("id", "class"))).thenReturn(list(list("tr", list("anthony", "row")), list("tr", list("bob", "row"))));
+
+		try {
+			new Element(list(row1, row2)).verify().batch().hasId("anthony").all().hasAttribute("class", "row").isVisible().assertAll();
+			fail("Expected the second row to fail the visibility assertion");
+		} catch (AssertionError e) {
+			assertThat(e.getMessage(), is("1 of 3 assertions failed\nExpected: every element element to be visible, failed for the elements at [1]\n     got: [<true>, <false>]"));
+		}
+		verify(executor, times(1)).executeScript(eq(Scripts.SNAPSHOT), Mockito.anyVararg());
+	}
+
+	@Test
+	public void shouldWaitForAllBatchedAssertionsToHold() {
+		when(element1.isDisplayed()).thenReturn(false, true);
+		when(element1.getText()).thenReturn("loading", "loaded");
+		elementMatcher.within(2, TimeUnit.SECONDS).batch().isVisible().hasText("loaded").assertAll();
+		verify(element1, times(2)).isDisplayed();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldNotAssertAllWithoutABatch() {
+		elementMatcher.assertAll();
+	}
+
+	@Test
+	public void shouldReportVerificationsToTheInstalledMetrics() {
+		DefaultElementMetrics metrics = new DefaultElementMetrics();
+		Element.setMetrics(metrics);
+		try {
+			elementMatcher.hasText("text 1").batch().hasId("value1").isPresent().assertAll();
+			assertThat(metrics.operations().get("verify").count(), is(2L));
+			assertThat(metrics.operations().get("verify").selected(), is(4L));
+			assertThat(metrics.operations().get("text").commands(), is(1L));
+			assertThat(metrics.operations().get("attr").commands(), is(1L));
+		} finally {
+			Element.setMetrics(null);
+		}
+	}
+
 	@Test
 	public void shouldTrimStringsToNull() {
 		assertThat(elementMatcher.trimToNull(null), is(nullValue()));
@@ -0,0 +1,43 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ElementScriptTest {
+	@Test
+	public void shouldExposeTheSourceOfEachScript() {
+		assertThat(ElementScript.SNAPSHOT.source(), is(Scripts.SNAPSHOT));
+		assertThat(ElementScript.AWAIT_MUTATION.source(), is(Scripts.AWAIT_MUTATION));
+		assertThat(ElementScript.HIDDEN_ATTRIBUTE, is(DetachedWebElement.HIDDEN));
+	}
+
+	@Test
+	public void shouldFindAScriptByItsSource() {
+		for (ElementScript script : ElementScript.values()) {
+			assertThat(ElementScript.of(script.source()), is(script));
+		}
+		assertThat(ElementScript.of("return 1;"), is(nullValue()));
+	}
+}
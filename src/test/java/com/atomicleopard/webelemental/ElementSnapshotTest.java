@@ -0,0 +1,94 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static com.atomicleopard.expressive.Expressive.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class ElementSnapshotTest {
+	private ElementSnapshot snapshot = snapshot();
+
+	@Test
+	public void shouldReturnCapturedPropertiesByIndex() {
+		assertThat(snapshot.size(), is(2));
+		assertThat(snapshot.isEmpty(), is(false));
+		assertThat(snapshot.tagName(0), is("h1"));
+		assertThat(snapshot.text(1), is("paragraph"));
+		assertThat(snapshot.isVisible(0), is(true));
+		assertThat(snapshot.isVisible(1), is(false));
+		assertThat(snapshot.attr(1, "class"), is("myClass"));
+	}
+
+	@Test
+	public void shouldReturnNullOrFalseForIndexesOutOfRange() {
+		assertThat(snapshot.tagName(2), is(nullValue()));
+		assertThat(snapshot.text(-1), is(nullValue()));
+		assertThat(snapshot.isVisible(2), is(false));
+		assertThat(snapshot.attr(5, "id"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldReturnPropertiesOfFirstElement() {
+		assertThat(snapshot.id(), is("h1"));
+		assertThat(snapshot.text(), is("Heading"));
+		assertThat(snapshot.isVisible(), is(true));
+		assertThat(snapshot.classes(), is(list("myClass", "otherClass")));
+	}
+
+	@Test
+	public void shouldReturnPropertiesOfAllElements() {
+		assertThat(snapshot.attrs("id"), is(list("h1", "p")));
+		assertThat(snapshot.texts(), is(list("Heading", "paragraph")));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldFailForAttributesWhichWereNotCaptured() {
+		snapshot.val();
+	}
+
+	@Test
+	public void shouldBeImmutable() {
+		try {
+			snapshot.attributes().add("value");
+			fail("Expected snapshot attributes to be immutable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void shouldHaveASensibleToString() {
+		assertThat(new ElementSnapshot(Collections.<String> emptyList()).toString(), is("None"));
+		assertThat(snapshot.toString(), is("<h1 id='h1' class='myClass otherClass'/>, <p id='p' class='myClass'/>"));
+	}
+
+	private static ElementSnapshot snapshot() {
+		ElementSnapshot snapshot = new ElementSnapshot(list("id", "class"));
+		snapshot.add("h1", "Heading", true, list("h1", "myClass otherClass"));
+		snapshot.add("p", "paragraph", false, list("p", "myClass"));
+		return snapshot;
+	}
+}
@@ -26,10 +26,13 @@ import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -37,7 +40,13 @@ import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.FindsByClassName;
+import org.openqa.selenium.internal.FindsById;
+import org.openqa.selenium.internal.WrapsDriver;
 
 import com.atomicleopard.expressive.Cast;
 import com.atomicleopard.expressive.EList;
@@ -197,6 +206,53 @@ public class ElementTest {
 		verify(element4).sendKeys("New Value");
 	}
 
+	@Test
+	public void shouldFillAllWebElementsInASingleScriptWhenAScriptExecutorIsAvailable() {
+		WebDriver driver = scriptingDriver();
+		WebElement field1 = scriptedWebElement(driver);
+		WebElement field2 = scriptedWebElement(driver);
+		Element element = new Element(list(field1, field2));
+		assertThat(element.fill("New Value"), is(sameInstance(element)));
+
+		verify((JavascriptExecutor) driver, times(1)).executeScript(Scripts.FILL, list(field1, field2), null, list("New Value"));
+		verify(field1, never()).sendKeys(Mockito.<CharSequence> anyVararg());
+		verify(field2, never()).clear();
+	}
+
+	@Test
+	public void shouldFillBySendingKeysWhenNoScriptExecutorIsAvailable() {
+		Element element = new Element(list(element1, element2));
+		assertThat(element.fill("New Value"), is(sameInstance(element)));
+		verify(element1).clear();
+		verify(element1).sendKeys("New Value");
+		verify(element2).clear();
+		verify(element2).sendKeys("New Value");
+	}
+
+	@Test
+	public void shouldFillManyFieldsBySelectorInASingleScriptWhenAScriptExecutorIsAvailable() {
+		WebDriver driver = scriptingDriver();
+		WebElement form = scriptedWebElement(driver);
+		Element element = new Element(form);
+		Map<String, CharSequence> values = Expressive.<String, CharSequence> map("#firstName", "Anthony", "#lastName", new StringBuilder("Smith"));
+		assertThat(element.fill(values), is(sameInstance(element)));
+
+		verify((JavascriptExecutor) driver, times(1)).executeScript(Scripts.FILL, list(form), list("#firstName", "#lastName"), list("Anthony", "Smith"));
+		verify(form, never()).findElements(Mockito.any(By.class));
+	}
+
+	@Test
+	public void shouldFillManyFieldsBySelectorBySendingKeysWhenNoScriptExecutorIsAvailable() {
+		when(element1.findElements(By.cssSelector("#firstName"))).thenReturn(list(element2));
+		when(element1.findElements(By.cssSelector("#lastName"))).thenReturn(list(element3));
+
+		new Element(element1).fill(Expressive.<String, CharSequence> map("#firstName", "Anthony", "#lastName", "Smith"));
+		verify(element2).clear();
+		verify(element2).sendKeys("Anthony");
+		verify(element3).clear();
+		verify(element3).sendKeys("Smith");
+	}
+
 	@Test
 	public void shouldReturnSizeOfContainedWebElements() {
 		assertThat(new Element(elements).size(), is(4));
@@ -233,10 +289,70 @@ public class ElementTest {
 		when(element4.findElements(Mockito.any(By.class))).thenReturn(list(parent3));
 
 		Element parentElement = new Element(elements).parent();
+		assertThat(parentElement.size(), is(3));
 		assertThat(parentElement.get(0).id(), is("div"));
-		assertThat(parentElement.get(1).id(), is("div"));
-		assertThat(parentElement.get(2).id(), is("p"));
-		assertThat(parentElement.get(3).id(), is("li"));
+		assertThat(parentElement.get(1).id(), is("p"));
+		assertThat(parentElement.get(2).id(), is("li"));
+		verify(element1).findElements(By.xpath(".."));
+	}
+
+	@Test
+	public void shouldTraverseAllSelectedElementsInASingleScriptWhenAScriptExecutorIsAvailable() {
+		WebDriver driver = scriptingDriver();
+		WebElement child1 = scriptedWebElement(driver);
+		WebElement child2 = scriptedWebElement(driver);
+		WebElement parent = scriptedWebElement(driver);
+		List<WebElement> children = list(child1, child2);
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+		when(executor.executeScript(Scripts.TRAVERSE, children, "parent", null)).thenReturn(list(parent));
+		when(executor.executeScript(Scripts.TRAVERSE, children, "closest", "table")).thenReturn(list(parent));
+		when(executor.executeScript(Scripts.TRAVERSE, children, "siblings", null)).thenReturn(list(child1, child2));
+		when(executor.executeScript(Scripts.TRAVERSE, children, "next", null)).thenReturn(list(child2));
+		when(executor.executeScript(Scripts.TRAVERSE, children, "prev", null)).thenReturn(list(child1));
+
+		Element element = new Element(children);
+		assertThat(element.parent().size(), is(1));
+		assertThat(element.closest("table").size(), is(1));
+		assertThat(element.siblings().size(), is(2));
+		assertThat(element.next().size(), is(1));
+		assertThat(element.prev().size(), is(1));
+
+		verify(executor, times(5)).executeScript(anyString(), anyVararg());
+		verify(child1, never()).findElements(Mockito.any(By.class));
+		verify(child2, never()).findElements(Mockito.any(By.class));
+	}
+
+	@Test
+	public void shouldTraverseToSiblingsOfEachWebElementWhenNoScriptExecutorIsAvailable() {
+		when(element1.findElements(By.xpath("preceding-sibling::* | following-sibling::*"))).thenReturn(list(element2, element3));
+		when(element2.findElements(By.xpath("preceding-sibling::* | following-sibling::*"))).thenReturn(list(element1, element3));
+		when(element1.findElements(By.xpath("following-sibling::*[1]"))).thenReturn(list(element2));
+		when(element2.findElements(By.xpath("following-sibling::*[1]"))).thenReturn(list(element3));
+		when(element2.findElements(By.xpath("preceding-sibling::*[1]"))).thenReturn(list(element1));
+
+		Element element = new Element(list(element1, element2));
+		assertThat(element.siblings().size(), is(3));
+		assertThat(element.siblings().get(0).id(), is("p"));
+		assertThat(element.next().get(0).id(), is("p"));
+		assertThat(element.next().get(1).id(), is("list"));
+		assertThat(element.prev().size(), is(1));
+		assertThat(element.prev().id(), is("h1"));
+	}
+
+	@Test
+	public void shouldFindClosestMatchingAncestorOfEachWebElementWhenNoScriptExecutorIsAvailable() {
+		WebElement html = webElement("html", null, Expressive.<String, String> map());
+		when(element1.findElements(By.xpath("/*"))).thenReturn(list(html));
+		when(html.findElements(By.cssSelector("ul, p"))).thenReturn(list(element2, element4));
+		when(element1.findElements(By.xpath("ancestor-or-self::*"))).thenReturn(list(html, element4, element2, element1));
+		when(element3.findElements(By.xpath("ancestor-or-self::*"))).thenReturn(list(html, element4, element3));
+		when(element4.findElements(By.xpath("ancestor-or-self::*"))).thenReturn(list(html, element4));
+
+		Element closest = new Element(list(element1, element3, element4)).closest("ul, p");
+		assertThat(closest.size(), is(2));
+		assertThat(closest.get(0).id(), is("p"));
+		assertThat(closest.get(1).id(), is("div"));
+		assertThat(emptyElement.closest("ul").isEmpty(), is(true));
 	}
 
 	@Test
@@ -245,12 +361,12 @@ public class ElementTest {
 		WebElement child2 = webElement("p", null, Expressive.<String, String> map("id", "p"));
 
 		when(element2.findElements(Mockito.any(By.class))).thenReturn(list(child1, child2));
-		Element element = spy(new Element(element2));
+		Element element = new Element(element2);
 		Element result = element.find(".selector");
 		assertThat(result.get(0).id(), is("div"));
 		assertThat(result.get(1).id(), is("p"));
 
-		verify(element, times(1)).find(By.cssSelector(".selector"));
+		verify(element2, times(1)).findElements(By.cssSelector(".selector"));
 	}
 
 	@Test
@@ -264,6 +380,293 @@ public class ElementTest {
 		assertThat(result.get(1).isEmpty(), is(true));
 	}
 
+	@Test
+	public void shouldDeferFindUntilTheResultIsUsed() {
+		WebElement child = webElement("div", null, Expressive.<String, String> map("id", "div"));
+		when(element2.findElements(Mockito.any(By.class))).thenReturn(list(child));
+
+		Element result = new Element(element2).find(".selector");
+		verify(element2, never()).findElements(Mockito.any(By.class));
+		assertThat(result.id(), is("div"));
+		assertThat(result.size(), is(1));
+		verify(element2, times(1)).findElements(By.cssSelector(".selector"));
+	}
+
+	@Test
+	public void shouldFindEachStepOfAChainWithoutDuplicatesWhenNoScriptExecutorIsAvailable() {
+		WebElement child1 = webElement("tr", null, Expressive.<String, String> map("id", "tr1"));
+		WebElement child2 = webElement("tr", null, Expressive.<String, String> map("id", "tr2"));
+		WebElement cell = webElement("td", null, Expressive.<String, String> map("id", "td"));
+		when(element1.findElements(By.cssSelector("tr"))).thenReturn(list(child1, child2));
+		when(element2.findElements(By.cssSelector("tr"))).thenReturn(list(child2));
+		when(child1.findElements(By.cssSelector("td"))).thenReturn(list(cell));
+		when(child2.findElements(By.cssSelector("td"))).thenReturn(list(cell));
+
+		Element rows = new Element(list(element1, element2)).find("tr");
+		Element cells = rows.find("td");
+		assertThat(cells.size(), is(1));
+		assertThat(cells.id(), is("td"));
+		assertThat(rows.size(), is(2));
+		assertThat(cells.roundTripsSaved(), is(0));
+	}
+
+	@Test
+	public void shouldFuseAChainOfCssSelectorsIntoASingleScriptWhenAScriptExecutorIsAvailable() {
+		WebDriver driver = scriptingDriver();
+		WebElement root1 = scriptedWebElement(driver);
+		WebElement root2 = scriptedWebElement(driver);
+		WebElement cell1 = scriptedWebElement(driver);
+		WebElement cell2 = scriptedWebElement(driver);
+		List<WebElement> roots = list(root1, root2);
+		when(((JavascriptExecutor) driver).executeScript(Scripts.FIND, roots, list("table", "tbody tr", "td"), false)).thenReturn(list(list(cell1, cell2), 7L));
+
+		Element cells = new Element(roots).find("table").find("tbody tr").find("td");
+		assertThat(cells.get(0).size(), is(1));
+		assertThat(cells.size(), is(2));
+		assertThat(cells.roundTripsSaved(), is(6));
+
+		verify((JavascriptExecutor) driver, times(1)).executeScript(anyString(), anyVararg());
+		verify(root1, never()).findElements(Mockito.any(By.class));
+		verify(root2, never()).findElements(Mockito.any(By.class));
+	}
+
+	@Test
+	public void shouldFindNativelyWhenFusingWouldNotSaveARoundTrip() {
+		WebDriver driver = scriptingDriver();
+		WebElement root = scriptedWebElement(driver);
+		WebElement child = scriptedWebElement(driver);
+		when(root.findElements(By.cssSelector("td"))).thenReturn(list(child));
+
+		Element cells = new Element(root).find("td");
+		assertThat(cells.get(0).isEmpty(), is(false));
+		assertThat(cells.size(), is(1));
+		assertThat(cells.roundTripsSaved(), is(0));
+		verify((JavascriptExecutor) driver, never()).executeScript(anyString(), anyVararg());
+	}
+
+	@Test
+	public void shouldResolveALazyElementOnFirstUseAndRememberTheSelection() {
+		WebDriver driver = mock(WebDriver.class);
+		when(driver.findElements(By.id("h1"))).thenReturn(list(element1));
+
+		Element element = new Element(driver, By.id("h1"));
+		verify(driver, never()).findElements(Mockito.any(By.class));
+		assertThat(element.text(), is("Heading"));
+		assertThat(element.size(), is(1));
+		assertThat(element.id(), is("h1"));
+		verify(driver, times(1)).findElements(By.id("h1"));
+	}
+
+	@Test
+	public void shouldResolveALazyElementAgainAfterAnAction() {
+		WebDriver driver = mock(WebDriver.class);
+		when(driver.findElements(By.cssSelector("h1"))).thenReturn(list(element1));
+
+		Element element = new Element(driver, "h1");
+		element.click();
+		verify(driver, times(1)).findElements(By.cssSelector("h1"));
+		element.val("value");
+		verify(driver, times(2)).findElements(By.cssSelector("h1"));
+		element.text("text");
+		verify(driver, times(3)).findElements(By.cssSelector("h1"));
+		assertThat(element.id(), is("h1"));
+		verify(driver, times(4)).findElements(By.cssSelector("h1"));
+		verify(element1).click();
+		verify(element1).sendKeys("value");
+		verify(element1).sendKeys("text");
+	}
+
+	@Test
+	public void shouldNotReselectAWrappedListOfWebElementsAfterAnAction() {
+		Element element = new Element(elements);
+		element.click();
+		assertThat(element.size(), is(4));
+		assertThat(element.id(), is("h1"));
+	}
+
+	@Test
+	public void shouldDeferFindByUntilTheResultIsUsed() {
+		WebDriver driver = mock(WebDriver.class);
+		when(driver.findElements(By.id("p"))).thenReturn(list(element2));
+		when(element2.findElements(By.tagName("li"))).thenReturn(list(element3));
+
+		Element element = new Element(driver, By.id("p")).find(By.tagName("li"));
+		verify(driver, never()).findElements(Mockito.any(By.class));
+		assertThat(element.id(), is("list"));
+	}
+
+	@Test
+	public void shouldFuseAChainOfCssSelectorsFromALazyElementOverTheWholeDocument() {
+		WebDriver driver = scriptingDriver();
+		WebElement cell = scriptedWebElement(driver);
+		when(((JavascriptExecutor) driver).executeScript(Scripts.FIND, null, list("table", "td"), false)).thenReturn(list(list(cell), 3L));
+
+		Element cells = new Element(driver, "table").find("td");
+		assertThat(cells.get(0).isEmpty(), is(false));
+		assertThat(cells.size(), is(1));
+		assertThat(cells.roundTripsSaved(), is(2));
+		verify(driver, never()).findElements(Mockito.any(By.class));
+	}
+
+	@Test
+	public void shouldEvaluateJQueryPseudoClassesInASingleScript() {
+		WebDriver driver = scriptingDriver();
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+		WebElement row = scriptedWebElement(driver);
+		List<Object> table = SelectorPlan.of("table").program();
+		List<Object> rows = SelectorPlan.of("tr:visible:first").program();
+		when(executor.executeScript(Scripts.QUERY, null, list(table, rows), false)).thenReturn(list(list(row), 2L));
+
+		Element element = new Element(driver, "table").find("tr:visible:first");
+		assertThat(element.get(0).isEmpty(), is(false));
+		assertThat(element.roundTripsSaved(), is(1));
+		verify(executor, times(1)).executeScript(anyString(), anyVararg());
+		verify(driver, never()).findElements(Mockito.any(By.class));
+	}
+
+	@Test
+	public void shouldFindSimpleSelectorsWithTheNativeLocatorsOfTheDriver() {
+		WebDriver driver = mock(WebDriver.class, withSettings().extraInterfaces(FindsById.class, FindsByClassName.class));
+		WebElement form = mock(WebElement.class, withSettings().extraInterfaces(FindsByClassName.class));
+		when(driver.findElements(By.id("login"))).thenReturn(list(form));
+		when(form.findElements(By.className("field"))).thenReturn(list(element1, element2));
+		when(form.findElements(By.cssSelector("input"))).thenReturn(list(element3));
+
+		Element login = new Element(driver, "#login");
+		assertThat(login.find(".field").size(), is(2));
+		assertThat(login.find("input").size(), is(1));
+		verify(driver, never()).findElements(By.cssSelector("#login"));
+	}
+
+	@Test
+	public void shouldReuseElementsFoundBySelectorWhileTheDocumentIsUnchanged() {
+		Element.setSelectorCacheSize(8);
+		try {
+			WebDriver driver = scriptingDriver();
+			JavascriptExecutor executor = (JavascriptExecutor) driver;
+			WebElement heading = scriptedWebElement(driver);
+			when(heading.getText()).thenReturn("Title");
+			when(executor.executeScript(Scripts.CACHED_FIND, null, list("h1"), null)).thenReturn(list("a.0", list(heading), 1L));
+			when(executor.executeScript(Scripts.CACHED_FIND, null, list("h1"), "a.0")).thenReturn(list("a.0"));
+
+			assertThat(new Element(driver, "h1").text(), is("Title"));
+			assertThat(new Element(driver, "h1").text(), is("Title"));
+			assertThat(Element.selectorCache().hits(), is(1));
+			verify(executor, times(2)).executeScript(Mockito.startsWith(Scripts.CACHED_FIND), anyVararg());
+			verify(driver, never()).findElements(Mockito.any(By.class));
+		} finally {
+			Element.setSelectorCacheSize(0);
+		}
+		assertThat(Element.getSelectorCacheSize(), is(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotAcceptANegativeSelectorCacheSize() {
+		Element.setSelectorCacheSize(-1);
+	}
+
+	@Test
+	public void shouldCountUnselectedElementsByScriptWithoutSelectingThem() {
+		WebDriver driver = scriptingDriver();
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+		WebElement root = scriptedWebElement(driver);
+		when(executor.executeScript(Scripts.FIND, list(root), list("td"), true)).thenReturn(list(20000L, 1L));
+		when(executor.executeScript(Scripts.FIND, null, list(".missing"), true)).thenReturn(list(0L, 1L));
+
+		Element cells = new Element(root).find("td");
+		assertThat(cells.size(), is(20000));
+		assertThat(cells.isEmpty(), is(false));
+		assertThat(new Element(driver, ".missing").isEmpty(), is(true));
+		cells.verify().isPresent().hasSize(20000);
+
+		verify(executor, times(2)).executeScript(anyString(), anyVararg());
+		verify(root, never()).findElements(Mockito.any(By.class));
+	}
+
+	@Test
+	public void shouldCountSelectedElementsOnceTheyHaveBeenSelected() {
+		WebDriver driver = scriptingDriver();
+		WebElement root = scriptedWebElement(driver);
+		when(root.findElements(By.cssSelector("td"))).thenReturn(list(element1, element2));
+
+		Element cells = new Element(root).find("td");
+		assertThat(cells.id(), is("h1"));
+		assertThat(cells.size(), is(2));
+		verify((JavascriptExecutor) driver, never()).executeScript(anyString(), anyVararg());
+	}
+
+	@Test
+	public void shouldCountElementsFoundWithoutCssSelectorsBySelectingThem() {
+		WebDriver driver = scriptingDriver();
+		when(driver.findElements(By.xpath("//td"))).thenReturn(list(element1, element2));
+
+		assertThat(new Element(driver, By.xpath("//td")).size(), is(2));
+		verify((JavascriptExecutor) driver, never()).executeScript(anyString(), anyVararg());
+	}
+
+	@Test
+	public void shouldFilterByEvaluatingExactMatchersInTheBrowserWhenAScriptExecutorIsAvailable() {
+		WebDriver driver = scriptingDriver();
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+		WebElement row1 = scriptedWebElement(driver);
+		WebElement row2 = scriptedWebElement(driver);
+		List<WebElement> rows = list(row1, row2);
+		when(executor.executeScript(Scripts.FILTER, rows, list("class", "active"), true)).thenReturn(list(row2));
+		when(executor.executeScript(Scripts.FILTER, rows, list("visible"), false)).thenReturn(list(row1));
+
+		Element element = new Element(rows);
+		assertThat(element.filter(ElementMatchers.cssClass("active")).size(), is(1));
+		assertThat(element.not(ElementMatchers.visible()).size(), is(1));
+		verify(executor, times(2)).executeScript(anyString(), anyVararg());
+		verify(row1, never()).getAttribute(anyString());
+		verify(row2, never()).isDisplayed();
+	}
+
+	@Test
+	public void shouldFilterByEvaluatingOtherPropertyMatchersAgainstASnapshotWhenAScriptExecutorIsAvailable() {
+		WebDriver driver = scriptingDriver();
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+		WebElement row1 = scriptedWebElement(driver);
+		WebElement row2 = scriptedWebElement(driver);
+		List<WebElement> rows = list(row1, row2);
+		when(executor.executeScript(Scripts.SNAPSHOT, rows, list("id"))).thenReturn(list(list("tr", "", true, list("row-1")), list("tr", "", true, list("other"))));
+
+		Element filtered = new Element(rows).filter(ElementMatchers.id(containsString("row-")));
+		assertThat(filtered.size(), is(1));
+		filtered.click();
+		verify(row1).click();
+		verify(row2, never()).click();
+		verify(executor, times(1)).executeScript(anyString(), anyVararg());
+	}
+
+	@Test
+	public void shouldFilterLazilyAndHealThroughTheFilter() {
+		WebDriver driver = mock(WebDriver.class);
+		WebElement staleRow = webElement("tr", "", Expressive.<String, String> map("class", "active"));
+		WebElement freshRow = webElement("tr", "", Expressive.<String, String> map("class", "active"));
+		WebElement otherRow = webElement("tr", "", Expressive.<String, String> map("class", "other"));
+		doThrow(new StaleElementReferenceException("stale")).when(staleRow).click();
+		when(driver.findElements(By.tagName("tr"))).thenReturn(list(staleRow, otherRow), list(freshRow, otherRow));
+
+		Element active = new Element(driver, By.tagName("tr")).filter(ElementMatchers.cssClass("active"));
+		verify(driver, never()).findElements(Mockito.any(By.class));
+		active.click();
+		verify(freshRow).click();
+		verify(otherRow, never()).click();
+		assertThat(active.heals(), is(1));
+	}
+
+	@Test
+	public void shouldFilterEachWebElementWhenNoScriptExecutorIsAvailable() {
+		Element element = new Element(elements);
+		assertThat(element.filter(ElementMatchers.id("p")).id(), is("p"));
+		assertThat(element.filter(ElementMatchers.text(containsString("d"))).size(), is(2));
+		assertThat(element.not(ElementMatchers.cssClass("otherClass")).size(), is(3));
+		assertThat(element.not(ElementMatchers.cssClass("otherClass")).id(), is("p"));
+		assertThat(element.filter(not(ElementMatchers.id("p"))).size(), is(3));
+		assertThat(emptyElement.filter(ElementMatchers.id("p")).isEmpty(), is(true));
+	}
+
 	@Test
 	public void shouldImplementIterableIteratingOverContainedElements() {
 		Element element = new Element(elements);
@@ -301,6 +704,132 @@ public class ElementTest {
 		assertThat(emptyElement.any().isEmpty(), is(true));
 	}
 
+	@Test
+	public void shouldReadEachPropertyFromTheBrowserOnceWhenCached() {
+		Element element = new Element(elements).cache();
+		assertThat(element.id(), is("h1"));
+		assertThat(element.first().id(), is("h1"));
+		assertThat(element.classes(), hasItem("otherClass"));
+		assertThat(element.attr("class"), is("myClass otherClass"));
+		assertThat(element.text(), is("Heading"));
+		assertThat(element.text(), is("Heading"));
+		assertThat(element.isVisible(), is(false));
+		assertThat(element.isVisible(), is(false));
+		assertThat(element.get(1).id(), is("p"));
+
+		verify(element1, times(1)).getAttribute("id");
+		verify(element1, times(1)).getAttribute("class");
+		verify(element1, times(1)).getText();
+		verify(element1, times(1)).isDisplayed();
+		assertThat(element.cacheHits(), is(4));
+		assertThat(element.cacheMisses(), is(5));
+	}
+
+	@Test
+	public void shouldNotCachePropertiesByDefault() {
+		Element element = new Element(elements);
+		element.id();
+		element.id();
+		verify(element1, times(2)).getAttribute("id");
+		assertThat(element.cacheHits(), is(0));
+		assertThat(element.cacheMisses(), is(0));
+	}
+
+	@Test
+	public void shouldForgetCachedPropertiesAfterAnActionOrRefresh() {
+		Element element = new Element(elements).cache();
+		element.id();
+		element.click();
+		element.id();
+		element.first().text("value");
+		element.id();
+		element.refresh();
+		element.id();
+		element.id();
+		verify(element1, times(4)).getAttribute("id");
+		assertThat(element.cacheHits(), is(1));
+	}
+
+	@Test
+	public void shouldRememberPropertiesReadBySnapshot() {
+		Element element = new Element(elements).cache();
+		element.snapshot("id");
+		assertThat(element.last().id(), is("div"));
+		assertThat(element.last().text(), is("just a div"));
+		verify(element4, times(1)).getAttribute("id");
+		verify(element4, times(1)).getText();
+		assertThat(element.cacheHits(), is(2));
+		assertThat(element.cacheMisses(), is(0));
+	}
+
+	@Test
+	public void shouldChooseTheSameElementForTheSameSeed() {
+		Element element = new Element(elements);
+		String chosen = element.any(new Random(42)).id();
+		assertThat(element.any(new Random(42)).id(), is(chosen));
+		assertThat(emptyElement.any(new Random(42)).isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldSampleElementsInTheOrderTheyWereSelected() {
+		Element element = new Element(elements);
+		List<String> sample = ids(element.sample(2, new Random(7)));
+		assertThat(sample.size(), is(2));
+		assertThat(list("h1", "p", "list", "div").indexOf(sample.get(0)) < list("h1", "p", "list", "div").indexOf(sample.get(1)), is(true));
+		assertThat(ids(element.sample(2, new Random(7))), is(sample));
+
+		assertThat(ids(element.sample(10)), is((List<String>) list("h1", "p", "list", "div")));
+		assertThat(element.sample(0).isEmpty(), is(true));
+		assertThat(emptyElement.sample(2).isEmpty(), is(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldNotSampleANegativeNumberOfElements() {
+		new Element(elements).sample(-1);
+	}
+
+	@Test
+	public void shouldSliceTheSelectedElements() {
+		Element element = new Element(elements);
+		assertThat(ids(element.slice(1, 3)), is((List<String>) list("p", "list")));
+		assertThat(ids(element.slice(-2)), is((List<String>) list("list", "div")));
+		assertThat(ids(element.slice(1, -1)), is((List<String>) list("p", "list")));
+		assertThat(ids(element.slice(0, 10)), is((List<String>) list("h1", "p", "list", "div")));
+		assertThat(element.slice(3, 1).isEmpty(), is(true));
+		assertThat(emptyElement.slice(0, 2).isEmpty(), is(true));
+
+		assertThat(ids(element.slice(1).slice(1, 2)), is((List<String>) list("list")));
+		assertThat(element.slice(1, 3).last().id(), is("list"));
+	}
+
+	@Test
+	public void shouldSelectElementsAtEvenAndOddIndexes() {
+		Element element = new Element(elements);
+		assertThat(ids(element.even()), is((List<String>) list("h1", "list")));
+		assertThat(ids(element.odd()), is((List<String>) list("p", "div")));
+		assertThat(ids(element.odd().odd()), is((List<String>) list("div")));
+		assertThat(ids(element.slice(1).even()), is((List<String>) list("p", "div")));
+		assertThat(emptyElement.odd().isEmpty(), is(true));
+		assertThat(element.first().odd().isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldSelectTheElementAtAnIndexWithEq() {
+		Element element = new Element(elements);
+		assertThat(element.eq(1).id(), is("p"));
+		assertThat(element.eq(-1).id(), is("div"));
+		assertThat(element.eq(4).isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldNotBeAffectedByChangesToTheWrappedList() {
+		List<WebElement> wrapped = new ArrayList<WebElement>(elements);
+		Element element = new Element(wrapped);
+		wrapped.clear();
+		assertThat(element.size(), is(4));
+		assertThat(element.last().id(), is("div"));
+	}
+
 	@Test
 	public void shouldTransformEachElementUsingThegivenTransformer() {
 		Element element = new Element(elements);
@@ -312,6 +841,27 @@ public class ElementTest {
 		assertThat(results, is(list("h1", "p", "list", "div")));
 	}
 
+	@Test(expected = UnsupportedOperationException.class)
+	public void shouldNotSupportRemovalThroughIterator() {
+		Iterator<Element> iterator = new Element(elements).iterator();
+		iterator.next();
+		iterator.remove();
+	}
+
+	@Test
+	public void shouldApplyTheGivenTransformerToEachElementAndReturnSelfReference() {
+		Element element = new Element(elements);
+		final List<String> ids = list();
+		Element result = element.apply(new ETransformer<Element, Void>() {
+			public Void to(Element from) {
+				ids.add(from.id());
+				return null;
+			}
+		});
+		assertThat(result, is(sameInstance(element)));
+		assertThat(ids, is((List<String>) list("h1", "p", "list", "div")));
+	}
+
 	@Test
 	public void shouldReturnAnElementMatcherWhenVerifyIsCalled() {
 		Element element = new Element(elements);
@@ -324,8 +874,423 @@ public class ElementTest {
 	public void shouldHaveASensibleToString() {
 		assertThat(emptyElement.toString(), is("None"));
 		assertThat(new Element(element1).toString(), is("<h1 id='h1' class='myClass otherClass'/>"));
-		assertThat(new Element(list(element1, element2)).toString(), is("<h1 id='h1' class='myClass otherClass'/>, <p id='p' class='myClass'/>, "));
+		assertThat(new Element(list(element1, element2)).toString(), is("<h1 id='h1' class='myClass otherClass'/>, <p id='p' class='myClass'/>"));
+
+	}
+
+	@Test
+	public void shouldDescribeOnlyTheFirstElementsUpToTheDescriptionLimit() {
+		assertThat(Element.getDescriptionLimit(), is(Element.DEFAULT_DESCRIPTION_LIMIT));
+		Element.setDescriptionLimit(2);
+		try {
+			assertThat(new Element(elements).toString(), is("<h1 id='h1' class='myClass otherClass'/>, <p id='p' class='myClass'/>, ... (first 2 of 4)"));
+			verify(element3, never()).getTagName();
+			verify(element4, never()).getAttribute(anyString());
+		} finally {
+			Element.setDescriptionLimit(Element.DEFAULT_DESCRIPTION_LIMIT);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRequireADescriptionLimitOfAtLeastOne() {
+		Element.setDescriptionLimit(0);
+	}
+
+	@Test
+	public void shouldReadTheCellsOfAllRowsInASingleScriptWhenAScriptExecutorIsAvailable() {
+		WebDriver driver = scriptingDriver();
+		WebElement row1 = scriptedWebElement(driver);
+		WebElement row2 = scriptedWebElement(driver);
+		when(((JavascriptExecutor) driver).executeScript(Scripts.ROWS, list(row1, row2), "td")).thenReturn(list(list("Anthony", "31"), list("Bob", "25")));
+
+		List<List<String>> rows = new Element(list(row1, row2)).rows("td");
+		assertThat(rows, is(Arrays.<List<String>> asList(list("Anthony", "31"), list("Bob", "25"))));
+		verify((JavascriptExecutor) driver, times(1)).executeScript(Mockito.anyString(), Mockito.anyVararg());
+		verify(row1, never()).findElements(Mockito.any(By.class));
+	}
+
+	@Test
+	public void shouldReadTheCellsOfEachRowWhenNoScriptExecutorIsAvailable() {
+		WebElement row1 = webElement("tr", null, Collections.<String, String> emptyMap());
+		WebElement row2 = webElement("tr", null, Collections.<String, String> emptyMap());
+		List<WebElement> cells = list(webElement("td", "Anthony", null), webElement("td", "31", null));
+		when(row1.findElements(By.cssSelector("td"))).thenReturn(cells);
+		when(row2.findElements(By.cssSelector("td"))).thenReturn(Collections.<WebElement> emptyList());
+
+		assertThat(new Element(list(row1, row2)).rows("td"), is(Arrays.<List<String>> asList(list("Anthony", "31"), Collections.<String> emptyList())));
+		assertThat(emptyElement.rows("td").isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldReadRowsInChunksAsTheyAreIteratedOver() {
+		WebDriver driver = scriptingDriver();
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+		WebElement row1 = scriptedWebElement(driver);
+		WebElement row2 = scriptedWebElement(driver);
+		WebElement row3 = scriptedWebElement(driver);
+		when(executor.executeScript(Scripts.ROWS, list(row1, row2), "td")).thenReturn(list(list("1"), list("2")));
+		when(executor.executeScript(Scripts.ROWS, list(row3), "td")).thenReturn(Collections.singletonList(list("3")));
+
+		Iterator<List<String>> rows = new Element(list(row1, row2, row3)).rows("td", 2).iterator();
+		verify(executor, never()).executeScript(Mockito.anyString(), Mockito.anyVararg());
+		assertThat(rows.next(), is((List<String>) list("1")));
+		assertThat(rows.next(), is((List<String>) list("2")));
+		verify(executor, times(1)).executeScript(Mockito.anyString(), Mockito.anyVararg());
+		assertThat(rows.next(), is((List<String>) list("3")));
+		assertThat(rows.hasNext(), is(false));
+		verify(executor, times(2)).executeScript(Mockito.anyString(), Mockito.anyVararg());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRequireAChunkOfAtLeastOneRow() {
+		emptyElement.rows("td", 0);
+	}
+
+	@Test
+	public void shouldReadTablesInASingleScriptWhenAScriptExecutorIsAvailable() {
+		WebDriver driver = scriptingDriver();
+		WebElement table = scriptedWebElement(driver);
+		when(((JavascriptExecutor) driver).executeScript(Scripts.TABLE, list(table))).thenReturn(
+				list(list("Name", "Age"), list(list("Anthony", "31"), list("Bob", "25", "extra"))));
+
+		Element element = new Element(table);
+		assertThat(element.table(), is(Arrays.<List<String>> asList(list("Anthony", "31"), list("Bob", "25", "extra"))));
+		List<Map<String, String>> keyed = element.tableByHeader();
+		assertThat(keyed.get(0), is((Map<String, String>) Expressive.<String, String> map("Name", "Anthony", "Age", "31")));
+		assertThat(new ArrayList<String>(keyed.get(1).keySet()), is((List<String>) list("Name", "Age", "2")));
+		verify((JavascriptExecutor) driver, times(2)).executeScript(Mockito.anyString(), Mockito.anyVararg());
+	}
+
+	@Test
+	public void shouldReadTablesRowByRowWhenNoScriptExecutorIsAvailable() {
+		Element tables = new Element(list((WebElement) DetachedWebElement.parse("<table><thead><tr><td>Ignored</td></tr><tr><th>Name</th><th>Age</th></tr></thead>"
+				+ "<tbody><tr><td>Anthony</td><td>31 <table><tr><td>nested</td></tr></table></td></tr></tbody></table>", true), DetachedWebElement.parse(
+				"<table><tr><th>Other</th></tr><tr><td>Bob</td></tr></table>", true)));
 
+		assertThat(tables.table(), is(Arrays.<List<String>> asList(list("Anthony", "31\nnested"), list("Bob"))));
+		assertThat(tables.tableByHeader().get(0), is((Map<String, String>) Expressive.<String, String> map("Name", "Anthony", "Age", "31\nnested")));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRequireAHeaderRowToKeyRowsByHeader() {
+		new Element(DetachedWebElement.parse("<table><tr><td>Anthony</td></tr></table>", true)).tableByHeader();
+	}
+
+	@Test
+	public void shouldDescribeAllElementsInASingleScriptWhenAScriptExecutorIsAvailable() {
+		WebDriver driver = scriptingDriver();
+		WebElement item1 = scriptedWebElement(driver);
+		WebElement item2 = scriptedWebElement(driver);
+		when(((JavascriptExecutor) driver).executeScript(Scripts.DESCRIBE, list(item1, item2), list("id", "class"))).thenReturn(
+				list(list("li", list("first", "item")), list("li", list(null, "item last"))));
+
+		assertThat(new Element(list(item1, item2)).toString(), is("<li id='first' class='item'/>, <li id='null' class='item last'/>"));
+		verify((JavascriptExecutor) driver, times(1)).executeScript(Mockito.anyString(), Mockito.anyVararg());
+		verify(item1, never()).getTagName();
+		verify(item2, never()).getAttribute(anyString());
+	}
+
+	@Test
+	public void shouldSnapshotEachWebElementWhenNoScriptExecutorIsAvailable() {
+		when(element1.isDisplayed()).thenReturn(true);
+		ElementSnapshot snapshot = new Element(elements).snapshot("id", "class");
+		assertThat(snapshot.size(), is(4));
+		assertThat(snapshot.tagName(0), is("h1"));
+		assertThat(snapshot.text(1), is("paragraph"));
+		assertThat(snapshot.isVisible(0), is(true));
+		assertThat(snapshot.isVisible(1), is(false));
+		assertThat(snapshot.attr(2, "id"), is("list"));
+		assertThat(snapshot.classes(), is(list("myClass", "otherClass")));
+		assertThat(snapshot.attrs("id"), is(list("h1", "p", "list", "div")));
+	}
+
+	@Test
+	public void shouldSnapshotAllWebElementsInASingleScriptWhenAScriptExecutorIsAvailable() {
+		WebDriver driver = scriptingDriver();
+		WebElement scripted1 = scriptedWebElement(driver);
+		WebElement scripted2 = scriptedWebElement(driver);
+		List<WebElement> scriptedElements = list(scripted1, scripted2);
+		when(((JavascriptExecutor) driver).executeScript(Scripts.SNAPSHOT, scriptedElements, list("id"))).thenReturn(
+				list(list("h1", "Heading", true, list("h1")), list("p", "paragraph", false, Collections.singletonList(null))));
+
+		ElementSnapshot snapshot = new Element(scriptedElements).snapshot("id");
+		assertThat(snapshot.size(), is(2));
+		assertThat(snapshot.id(), is("h1"));
+		assertThat(snapshot.text(), is("Heading"));
+		assertThat(snapshot.isVisible(), is(true));
+		assertThat(snapshot.tagName(1), is("p"));
+		assertThat(snapshot.attr(1, "id"), is(nullValue()));
+		assertThat(snapshot.isVisible(1), is(false));
+
+		verify((JavascriptExecutor) driver, times(1)).executeScript(anyString(), anyVararg());
+		verify(scripted1, never()).getAttribute(anyString());
+		verify(scripted1, never()).getText();
+		verify(scripted2, never()).isDisplayed();
+	}
+
+	@Test
+	public void shouldSnapshotNothingWithoutRoundTripWhenNoWebElements() {
+		ElementSnapshot snapshot = emptyElement.snapshot("id");
+		assertThat(snapshot.isEmpty(), is(true));
+		assertThat(snapshot.id(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldDetachAllSelectedElementsInOneScriptAndQueryThemLocally() {
+		WebDriver driver = scriptingDriver();
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+		WebElement list1 = scriptedWebElement(driver);
+		WebElement list2 = scriptedWebElement(driver);
+		List<WebElement> lists = list(list1, list2);
+		when(executor.executeScript(Scripts.DETACH, lists)).thenReturn(list("<ul id='a'><li class='item'>One</li><li class='item' data-webelemental-hidden=''>Two</li></ul>", "<ul id='b'><li>Three</li></ul>"));
+
+		Element detached = new Element(lists).detach();
+		assertThat(detached.size(), is(2));
+		assertThat(detached.id(), is("a"));
+		assertThat(detached.find("li").size(), is(3));
+		assertThat(detached.find("li.item").last().isVisible(), is(false));
+		assertThat(detached.find("li").last().parent().id(), is("b"));
+		EList<String> texts = detached.find("li").each(new ETransformer<Element, String>() {
+			public String to(Element from) {
+				return from.text();
+			}
+		});
+		assertThat(texts, is(list("One", "", "Three")));
+		detached.find("li").verify().hasSize(3).hasText("One").isVisible();
+		assertThat(detached.find("li").toString(), containsString("<li id='null' class='item'/>, <li id='null' class='item'/>, <li id='null' class='null'/>"));
+
+		verify(executor, times(1)).executeScript(anyString(), anyVararg());
+		verify(list1, never()).findElements(Mockito.any(By.class));
+		verify(list2, never()).findElements(Mockito.any(By.class));
+	}
+
+	@Test
+	public void shouldDetachEachSelectedElementWhenNoScriptExecutorIsAvailable() {
+		WebElement hidden = webElement("div", "", Expressive.<String, String> map("outerHTML", "<div><p>Text</p></div>"));
+		WebElement shown = webElement("p", "", Expressive.<String, String> map("outerHTML", "<p id='shown'>Shown</p>"));
+		when(shown.isDisplayed()).thenReturn(true);
+
+		Element detached = new Element(list(hidden, shown)).detach();
+		assertThat(detached.isVisible(), is(false));
+		assertThat(detached.find("p").size(), is(1));
+		assertThat(detached.last().text(), is("Shown"));
+		assertThat(detached.last().id(), is("shown"));
+	}
+
+	@Test
+	public void shouldMatchContainsAgainstTheTextContentOfDetachedElements() {
+		WebElement list = webElement("ul", "", Expressive.<String, String> map("outerHTML", "<ul><li>apple</li><li data-webelemental-hidden=''>banana</li></ul>"));
+		Element detached = new Element(list).detach();
+		assertThat(detached.find("li:contains(banana)").size(), is(1));
+		assertThat(detached.find("li:contains(banana)").isVisible(), is(false));
+		assertThat(detached.find("li:contains(cherry)").size(), is(0));
+	}
+
+	@Test
+	public void shouldApplySelectorsFollowingAPseudoClassToDetachedElements() {
+		WebElement list = webElement("ul", "", Expressive.<String, String> map("outerHTML", "<ul><li class='a'>One</li><li>Two</li><li class='a'>Three</li></ul>"));
+		Element detached = new Element(list).detach();
+		assertThat(detached.find("li:first.a").text(), is("One"));
+		assertThat(detached.find("li:last.a").text(), is("Three"));
+		assertThat(detached.find("li:eq(1).a").size(), is(0));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void shouldNotAllowActionsOnDetachedElements() {
+		WebElement webElement = webElement("input", "", Expressive.<String, String> map("outerHTML", "<input name='q'>"));
+		new Element(webElement).detach().val("text");
+	}
+
+	@Test
+	public void shouldSelectALazyElementAgainWhenItGoesStale() {
+		WebDriver driver = mock(WebDriver.class);
+		WebElement stale = webElement("div", "old", Expressive.<String, String> map());
+		WebElement fresh = webElement("div", "new", Expressive.<String, String> map());
+		when(stale.getText()).thenThrow(new StaleElementReferenceException("stale"));
+		when(driver.findElements(By.id("content"))).thenReturn(list(stale), list(fresh));
+
+		Element element = new Element(driver, By.id("content"));
+		assertThat(element.text(), is("new"));
+		assertThat(element.heals(), is(1));
+		verify(driver, times(2)).findElements(By.id("content"));
+	}
+
+	@Test
+	public void shouldHealThroughTheLineageOfDerivedElements() {
+		WebDriver driver = mock(WebDriver.class);
+		WebElement staleList = webElement("ul", "", Expressive.<String, String> map());
+		WebElement freshList = webElement("ul", "", Expressive.<String, String> map());
+		WebElement freshItem1 = webElement("li", "one", Expressive.<String, String> map());
+		WebElement freshItem2 = webElement("li", "two", Expressive.<String, String> map());
+		when(staleList.findElements(By.tagName("li"))).thenThrow(new StaleElementReferenceException("stale"));
+		when(freshList.findElements(By.tagName("li"))).thenReturn(list(freshItem1, freshItem2));
+		when(driver.findElements(By.id("list"))).thenReturn(list(staleList), list(freshList));
+
+		Element last = new Element(driver, By.id("list")).find(By.tagName("li")).last();
+		assertThat(last.text(), is("two"));
+		assertThat(last.heals(), is(1));
+	}
+
+	@Test
+	public void shouldHealElementsReachedByIteration() {
+		WebElement list = webElement("ul", "", Expressive.<String, String> map());
+		WebElement staleItem = webElement("li", "", Expressive.<String, String> map());
+		WebElement freshItem = webElement("li", "", Expressive.<String, String> map());
+		doThrow(new StaleElementReferenceException("stale")).when(staleItem).click();
+		when(list.findElements(By.tagName("li"))).thenReturn(list(staleItem), list(freshItem));
+
+		new Element(list).find(By.tagName("li")).apply(new ETransformer<Element, Void>() {
+			public Void to(Element from) {
+				from.click();
+				return null;
+			}
+		});
+		verify(freshItem).click();
+	}
+
+	@Test
+	public void shouldRetryStaleOperationsWithinTheConfiguredBudget() {
+		WebDriver driver = mock(WebDriver.class);
+		WebElement stale1 = webElement("div", "", Expressive.<String, String> map());
+		WebElement stale2 = webElement("div", "", Expressive.<String, String> map());
+		WebElement fresh = webElement("div", "", Expressive.<String, String> map());
+		when(stale1.isDisplayed()).thenThrow(new StaleElementReferenceException("stale"));
+		when(stale2.isDisplayed()).thenThrow(new StaleElementReferenceException("stale"));
+		when(fresh.isDisplayed()).thenReturn(true);
+		when(driver.findElements(By.id("content"))).thenReturn(list(stale1), list(stale2), list(fresh));
+
+		Element element = new Element(driver, By.id("content"));
+		try {
+			element.isVisible();
+			fail("Expected the default budget to allow a single retry");
+		} catch (StaleElementReferenceException e) {
+			assertThat(element.heals(), is(1));
+		}
+
+		when(driver.findElements(By.id("content"))).thenReturn(list(stale1), list(stale2), list(fresh));
+		element = new Element(driver, By.id("content")).retryStale(2);
+		assertThat(element.isVisible(), is(true));
+		assertThat(element.heals(), is(2));
+	}
+
+	@Test(expected = StaleElementReferenceException.class)
+	public void shouldNotRetryStaleOperationsWhenDisabled() {
+		WebDriver driver = mock(WebDriver.class);
+		WebElement stale = webElement("div", "", Expressive.<String, String> map());
+		when(stale.getAttribute("id")).thenThrow(new StaleElementReferenceException("stale"));
+		when(driver.findElements(By.id("content"))).thenReturn(list(stale));
+		new Element(driver, By.id("content")).retryStale(0).id();
+	}
+
+	@Test
+	public void shouldNotRetryStaleOperationsWithoutALineage() {
+		WebElement stale = webElement("div", "", Expressive.<String, String> map());
+		when(stale.getText()).thenThrow(new StaleElementReferenceException("stale"));
+		Element element = new Element(stale);
+		try {
+			element.text();
+			fail("Expected an Element created from a WebElement to be unable to heal");
+		} catch (StaleElementReferenceException e) {
+			assertThat(element.heals(), is(0));
+		}
+		verify(stale, times(1)).getText();
+	}
+
+	@Test
+	public void shouldNotCountAHealForElementsDerivedWithoutALookup() {
+		WebElement stale = webElement("li", "", Expressive.<String, String> map());
+		WebElement other = webElement("li", "", Expressive.<String, String> map());
+		when(stale.getText()).thenThrow(new StaleElementReferenceException("stale"));
+		Element first = new Element(list(stale, other)).first();
+		try {
+			first.text();
+			fail("Expected an Element derived from WebElements by index to be unable to heal");
+		} catch (StaleElementReferenceException e) {
+			assertThat(first.heals(), is(0));
+		}
+		verify(stale, times(1)).getText();
+	}
+
+	@Test
+	public void shouldResumeActionsFromTheElementWhichWentStale() {
+		WebDriver driver = mock(WebDriver.class);
+		WebElement first = webElement("input", "", Expressive.<String, String> map());
+		WebElement stale = webElement("input", "", Expressive.<String, String> map());
+		WebElement freshFirst = webElement("input", "", Expressive.<String, String> map());
+		WebElement fresh = webElement("input", "", Expressive.<String, String> map());
+		doThrow(new StaleElementReferenceException("stale")).when(stale).click();
+		doThrow(new StaleElementReferenceException("stale")).when(stale).sendKeys("x");
+		when(driver.findElements(By.name("agree"))).thenReturn(list(first, stale), list(freshFirst, fresh));
+
+		Element element = new Element(driver, By.name("agree")).click();
+		verify(first, times(1)).click();
+		verify(freshFirst, never()).click();
+		verify(fresh, times(1)).click();
+		assertThat(element.heals(), is(1));
+
+		when(driver.findElements(By.name("field"))).thenReturn(list(first, stale), list(freshFirst, fresh));
+		new Element(driver, By.name("field")).val("x");
+		verify(first, times(1)).sendKeys("x");
+		verify(freshFirst, never()).sendKeys("x");
+		verify(fresh, times(1)).sendKeys("x");
+	}
+
+	@Test
+	public void shouldReportEachOperationAndItsCommandsToTheInstalledMetrics() {
+		DefaultElementMetrics metrics = new DefaultElementMetrics();
+		Element.setMetrics(metrics);
+		try {
+			assertThat(Element.getMetrics(), is((ElementMetrics) metrics));
+			WebDriver driver = mock(WebDriver.class);
+			WebElement webElement1 = webElement("li", "one", Expressive.<String, String> map());
+			WebElement webElement2 = webElement("li", "two", Expressive.<String, String> map());
+			when(driver.findElements(By.tagName("li"))).thenReturn(list(webElement1, webElement2));
+
+			Element element = new Element(driver, By.tagName("li"));
+			element.text();
+			element.click();
+			element.attr("id");
+
+			assertThat(new ArrayList<String>(metrics.operations().keySet()), is((List<String>) list("attr", "click", "find", "text")));
+			assertThat(metrics.operations().get("find").commands(), is(2L));
+			assertThat(metrics.operations().get("find").count(), is(2L));
+			assertThat(metrics.operations().get("text").commands(), is(1L));
+			assertThat(metrics.operations().get("text").selected(), is(2L));
+			assertThat(metrics.operations().get("click").commands(), is(2L));
+			assertThat(metrics.operations().get("attr").commands(), is(1L));
+			assertThat(metrics.commands(), is(6L));
+		} finally {
+			Element.setMetrics(null);
+		}
+	}
+
+	@Test
+	public void shouldFindFromTheSelectedParentsAsASingleOperation() {
+		DefaultElementMetrics metrics = new DefaultElementMetrics();
+		Element.setMetrics(metrics);
+		try {
+			WebElement list1 = webElement("ul", "", Expressive.<String, String> map());
+			WebElement list2 = webElement("ul", "", Expressive.<String, String> map());
+			WebElement item = webElement("li", "one", Expressive.<String, String> map());
+			when(list1.findElements(By.cssSelector("li"))).thenReturn(list(item));
+			when(list2.findElements(By.cssSelector("li"))).thenReturn(Collections.<WebElement> emptyList());
+
+			assertThat(new Element(list(list1, list2)).find("li").size(), is(1));
+			assertThat(metrics.operations().get("find").count(), is(1L));
+			assertThat(metrics.operations().get("find").commands(), is(2L));
+
+			assertThat(new Element(Collections.<WebElement> emptyList()).find("li").isEmpty(), is(true));
+		} finally {
+			Element.setMetrics(null);
+		}
+	}
+
+	private static List<String> ids(Element element) {
+		return element.each(new ETransformer<Element, String>() {
+			public String to(Element from) {
+				return from.id();
+			}
+		});
 	}
 
 	public static WebElement webElement(String element, String text, final Map<String, String> attributes) {
@@ -341,4 +1306,14 @@ public class ElementTest {
 
 		return webElement;
 	}
+
+	public static WebDriver scriptingDriver() {
+		return mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+	}
+
+	public static WebElement scriptedWebElement(WebDriver driver) {
+		WebElement webElement = mock(WebElement.class, withSettings().extraInterfaces(WrapsDriver.class));
+		when(((WrapsDriver) webElement).getWrappedDriver()).thenReturn(driver);
+		return webElement;
+	}
 }
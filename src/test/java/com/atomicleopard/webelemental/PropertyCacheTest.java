@@ -0,0 +1,79 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Test;
+import org.openqa.selenium.WebElement;
+
+public class PropertyCacheTest {
+	@Test
+	public void shouldReadThroughToTheElementOnAMiss() {
+		WebElement element = mock(WebElement.class);
+		when(element.getAttribute("id")).thenReturn("a");
+		PropertyCache cache = new PropertyCache();
+		assertThat(cache.attribute(element, "id"), is("a"));
+		assertThat(cache.attribute(element, "id"), is("a"));
+		assertThat(cache.attribute(element, "name"), is(nullValue()));
+		assertThat(cache.attribute(element, "name"), is(nullValue()));
+		verify(element, times(1)).getAttribute("id");
+		verify(element, times(1)).getAttribute("name");
+		assertThat(cache.hits(), is(2));
+		assertThat(cache.misses(), is(2));
+	}
+
+	@Test
+	public void shouldKeepThePropertiesOfEachElementApart() {
+		WebElement first = mock(WebElement.class);
+		WebElement second = mock(WebElement.class);
+		when(first.getText()).thenReturn("first");
+		when(second.getText()).thenReturn("second");
+		when(second.isDisplayed()).thenReturn(true);
+		PropertyCache cache = new PropertyCache();
+		assertThat(cache.text(first), is("first"));
+		assertThat(cache.text(second), is("second"));
+		assertThat(cache.displayed(first), is(false));
+		assertThat(cache.displayed(second), is(true));
+		assertThat(cache.misses(), is(4));
+	}
+
+	@Test
+	public void shouldUseRememberedPropertiesUntilCleared() {
+		WebElement element = mock(WebElement.class);
+		when(element.getText()).thenReturn("read");
+		PropertyCache cache = new PropertyCache();
+		cache.rememberText(element, "remembered");
+		cache.rememberAttribute(element, "id", "a");
+		cache.rememberDisplayed(element, true);
+		assertThat(cache.text(element), is("remembered"));
+		assertThat(cache.attribute(element, "id"), is("a"));
+		assertThat(cache.displayed(element), is(true));
+		assertThat(cache.hits(), is(3));
+		verifyZeroInteractions(element);
+
+		cache.clear();
+		assertThat(cache.text(element), is("read"));
+		assertThat(cache.misses(), is(1));
+	}
+}
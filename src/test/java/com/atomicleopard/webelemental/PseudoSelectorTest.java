@@ -0,0 +1,133 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static com.atomicleopard.expressive.Expressive.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.InvalidSelectorException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+public class PseudoSelectorTest {
+	private static final List<Object> NONE = Collections.emptyList();
+
+	@Test
+	public void shouldNotCompileSelectorsWithoutJQueryPseudoClasses() {
+		assertThat(PseudoSelector.compile("ul > li:first-child"), is(nullValue()));
+		assertThat(PseudoSelector.compile("input:checked, a::before"), is(nullValue()));
+		assertThat(PseudoSelector.compile("[title=':visible']"), is(nullValue()));
+		assertThat(PseudoSelector.compile("li:not(.first)"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldSplitTheNativeCssFromThePseudoClasses() {
+		assertThat(program("tr:visible"), is(groups(steps(step("", "tr", filter("visible", null))))));
+		assertThat(program("table > tr.row:hidden td"), is(groups(steps(step("", "table > tr.row", filter("hidden", null)), step(" ", "td")))));
+		assertThat(program("li:eq(-2) > a:first"), is(groups(steps(step("", "li", filter("eq", -2)), step(">", "a", filter("first", null))))));
+		assertThat(program(":last"), is(groups(steps(step("", "*", filter("last", null))))));
+		assertThat(program("li:visible.active:last + li"), is(groups(steps(step("", "li", filter("visible", null), filter("is", ".active"), filter("last", null)), step("+", "li")))));
+	}
+
+	@Test
+	public void shouldCompileTheArgumentsOfPseudoClasses() {
+		assertThat(program("td:contains('a, b')"), is(groups(steps(step("", "td", filter("contains", "a, b"))))));
+		assertThat(program("td:contains(Bob)"), is(groups(steps(step("", "td", filter("contains", "Bob"))))));
+		assertThat(program("tr:has(td:first)"), is(groups(steps(step("", "tr", filter("has", groups(steps(step("", "td", filter("first", null))))))))));
+		assertThat(program("tr:has(> td)"), is(groups(steps(step("", "tr", filter("has", groups(steps(step(">", "td")))))))));
+	}
+
+	@Test
+	public void shouldCompileEachGroupSeparately() {
+		assertThat(program("h1, li:first"), is(groups(steps(step("", "h1")), steps(step("", "li", filter("first", null))))));
+		assertThat(program("a[title='x,y']:first"), is(groups(steps(step("", "a[title='x,y']", filter("first", null))))));
+	}
+
+	@Test(expected = InvalidSelectorException.class)
+	public void shouldRequireAnIndexForEq() {
+		PseudoSelector.compile("li:eq(first)");
+	}
+
+	@Test(expected = InvalidSelectorException.class)
+	public void shouldRequireTextForContains() {
+		PseudoSelector.compile("li:contains()");
+	}
+
+	@Test(expected = InvalidSelectorException.class)
+	public void shouldNotAcceptArgumentsForVisible() {
+		PseudoSelector.compile("li:visible(1)");
+	}
+
+	@Test
+	public void shouldSelectByLookingUpTheNativeCssAndReadingProperties() {
+		WebDriver driver = mock(WebDriver.class);
+		WebElement first = mock(WebElement.class);
+		WebElement second = mock(WebElement.class);
+		WebElement third = mock(WebElement.class);
+		WebElement cell = mock(WebElement.class);
+		when(driver.findElements(By.cssSelector("tr"))).thenReturn(list(first, second, third));
+		when(first.isDisplayed()).thenReturn(true);
+		when(third.isDisplayed()).thenReturn(true);
+		when(third.findElements(By.cssSelector("td"))).thenReturn(list(cell));
+		when(cell.getAttribute("textContent")).thenReturn("Bob");
+
+		assertThat(PseudoSelector.compile("tr:visible:last").select(list(driver)), is((List<WebElement>) list(third)));
+		assertThat(PseudoSelector.compile("tr:hidden").select(list(driver)), is((List<WebElement>) list(second)));
+		assertThat(PseudoSelector.compile("tr:eq(1), tr:first").select(list(driver)), is((List<WebElement>) list(second, first)));
+		assertThat(PseudoSelector.compile("tr:has(td:contains(Bob))").select(list(driver)), is((List<WebElement>) list(third)));
+		assertThat(PseudoSelector.compile("tr:first td").select(list(driver)).isEmpty(), is(true));
+	}
+
+	@Test(expected = InvalidSelectorException.class)
+	public void shouldNotSelectSiblingsAfterAPseudoClassWithoutJavascript() {
+		WebDriver driver = mock(WebDriver.class);
+		WebElement item = mock(WebElement.class);
+		when(driver.findElements(By.cssSelector("li"))).thenReturn(list(item));
+		PseudoSelector.compile("li:first + li").select(list(driver));
+	}
+
+	private static List<Object> program(String selector) {
+		return PseudoSelector.compile(selector).program();
+	}
+
+	private static List<Object> groups(List<?>... groups) {
+		return list((Object[]) groups);
+	}
+
+	private static List<Object> steps(List<?>... steps) {
+		return list((Object[]) steps);
+	}
+
+	private static List<Object> step(String combinator, String css, List<?>... filters) {
+		return list(combinator, css, filters.length == 0 ? NONE : list((Object[]) filters));
+	}
+
+	private static List<Object> filter(String type, Object argument) {
+		return list(type, argument);
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static com.atomicleopard.expressive.Expressive.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+import org.openqa.selenium.WebElement;
+
+public class RoundTripBudgetRuleTest {
+	private RoundTripBudgetRule rule = new RoundTripBudgetRule();
+	private Element cells = new Element(list(cell("Anthony"), cell("Bob"), cell("Carl")));
+
+	@Test
+	public void shouldPassATestWithinItsBudget() throws Throwable {
+		rule.apply(readCells(), method("withinBudget"), new Unbudgeted()).evaluate();
+	}
+
+	@Test
+	public void shouldFailATestExceedingItsBudgetWithTheCommandsSentFromEachCallSite() throws Throwable {
+		try {
+			rule.apply(readCells(), method("overBudget"), new Unbudgeted()).evaluate();
+			fail("Expected the budget to be exceeded");
+		} catch (AssertionError e) {
+			assertThat(e.getMessage(), startsWith("Round trip budget of 2 exceeded, 4 commands were sent to the browser:"));
+			assertThat(e.getMessage(), containsString("3 at com.atomicleopard.webelemental.RoundTripBudgetRuleTest$1.evaluate(RoundTripBudgetRuleTest.java:"));
+			assertThat(e.getMessage(), containsString("{text=3}"));
+			assertThat(e.getMessage(), containsString("1 at com.atomicleopard.webelemental.RoundTripBudgetRuleTest$1.evaluate(RoundTripBudgetRuleTest.java:"));
+			assertThat(e.getMessage(), containsString("{attr=1}"));
+		}
+	}
+
+	@Test
+	public void shouldApplyTheBudgetOfTheTestClassUnlessTheMethodHasItsOwn() throws Throwable {
+		try {
+			rule.apply(readCells(), method("unannotated"), new Budgeted()).evaluate();
+			fail("Expected the budget of the class to be exceeded");
+		} catch (AssertionError e) {
+			assertThat(e.getMessage(), startsWith("Round trip budget of 1 exceeded"));
+		}
+		rule.apply(readCells(), method("withinBudget"), new Budgeted()).evaluate();
+	}
+
+	@Test
+	public void shouldRunTestsWithoutABudgetUnchanged() {
+		Statement statement = readCells();
+		assertThat(rule.apply(statement, method("unannotated"), new Unbudgeted()), is(sameInstance(statement)));
+	}
+
+	@Test
+	public void shouldForwardOperationsToAndRestoreThePreviouslyInstalledMetrics() throws Throwable {
+		DefaultElementMetrics metrics = new DefaultElementMetrics();
+		Element.setMetrics(metrics);
+		try {
+			rule.apply(readCells(), method("withinBudget"), new Unbudgeted()).evaluate();
+			assertThat(Element.getMetrics(), is((ElementMetrics) metrics));
+			assertThat(metrics.commands(), is(4L));
+		} finally {
+			Element.setMetrics(null);
+		}
+	}
+
+	@Test
+	public void shouldReportTheFirstFrameOutsideOfWebElementalAsTheCallSite() {
+		StackTraceElement[] stack = { new StackTraceElement(Element.class.getName() + "$4", "run", "Element.java", 1), new StackTraceElement("org.hamcrest.Matcher", "matches", "Matcher.java", 2),
+				new StackTraceElement("com.example.PeoplePage", "names", "PeoplePage.java", 3) };
+		assertThat(RoundTripBudgetRule.callSite(stack, Unbudgeted.class).getClassName(), is("com.example.PeoplePage"));
+		assertThat(RoundTripBudgetRule.callSite(new StackTraceElement[0], Unbudgeted.class), is(nullValue()));
+	}
+
+	@Test
+	public void shouldSkipFramesOfAnyWebElementalClassButTheTestClass() {
+		StackTraceElement[] stack = { new StackTraceElement(PseudoSelector.class.getName(), "select", "PseudoSelector.java", 1),
+				new StackTraceElement(AsyncElement.class.getName() + "$1", "call", "AsyncElement.java", 2),
+				new StackTraceElement("com.atomicleopard.webelemental.ABTest", "run", "ABTest.java", 3), new StackTraceElement(getClass().getName() + "$1", "evaluate", "RoundTripBudgetRuleTest.java", 4) };
+		assertThat(RoundTripBudgetRule.callSite(stack, Unbudgeted.class).getClassName(), is(getClass().getName() + "$1"));
+		assertThat(RoundTripBudgetRule.callSite(stack, ElementTest.class), is(nullValue()));
+	}
+
+	@Test
+	public void shouldOnlyLookForTheCallSiteWithinTheCodeRunByTheTest() {
+		StackTraceElement[] stack = { new StackTraceElement(Element.class.getName(), "text", "Element.java", 1),
+				new StackTraceElement(ElementTest.class.getName(), "helper", "ElementTest.java", 2),
+				new StackTraceElement(RoundTripBudgetRule.class.getName() + "$BudgetedStatement", "evaluate", "RoundTripBudgetRule.java", 3),
+				new StackTraceElement("com.example.Runner", "run", "Runner.java", 4) };
+		assertThat(RoundTripBudgetRule.callSite(stack, ElementTest.class).getClassName(), is(ElementTest.class.getName()));
+		assertThat(RoundTripBudgetRule.callSite(stack, Unbudgeted.class), is(nullValue()));
+	}
+
+	private Statement readCells() {
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				for (Element cell : cells) {
+					cell.text();
+				}
+				cells.attr("class");
+			}
+		};
+	}
+
+	@Test
+	public void shouldReportAsynchronousOperationsAtTheLineWhichRequestedThem() throws Throwable {
+		try {
+			rule.apply(new Statement() {
+				@Override
+				public void evaluate() throws Throwable {
+					cells.async().text().get();
+					cells.async().attr("class").get();
+					cells.async().click().get();
+				}
+			}, method("overBudget"), new Unbudgeted()).evaluate();
+			fail("Expected the budget to be exceeded");
+		} catch (AssertionError e) {
+			assertThat(e.getMessage(), containsString("3 at com.atomicleopard.webelemental.RoundTripBudgetRuleTest$2.evaluate(RoundTripBudgetRuleTest.java:"));
+			assertThat(e.getMessage(), containsString("{click=3}"));
+			assertThat(e.getMessage(), not(containsString("unknown")));
+			assertThat(e.getMessage(), not(containsString("java.util.concurrent")));
+		}
+	}
+
+	private static FrameworkMethod method(String name) {
+		try {
+			return new FrameworkMethod(Budgets.class.getMethod(name));
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	private static WebElement cell(String text) {
+		return ElementTest.webElement("td", text, Collections.<String, String> emptyMap());
+	}
+
+	public static class Budgets {
+		@RoundTripBudget(max = 10)
+		public void withinBudget() {
+		}
+
+		@RoundTripBudget(max = 2)
+		public void overBudget() {
+		}
+
+		public void unannotated() {
+		}
+	}
+
+	public static class Unbudgeted {
+	}
+
+	@RoundTripBudget(max = 1)
+	public static class Budgeted {
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static com.atomicleopard.expressive.Expressive.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.WebElement;
+
+public class SelectionTest {
+	private WebElement a;
+	private WebElement b;
+	private WebElement c;
+	private WebElement d;
+	private WebElement e;
+	private Selection selection;
+
+	@Before
+	public void before() {
+		a = mock(WebElement.class);
+		b = mock(WebElement.class);
+		c = mock(WebElement.class);
+		d = mock(WebElement.class);
+		e = mock(WebElement.class);
+		selection = Selection.of(list(a, b, c, d, e));
+	}
+
+	@Test
+	public void shouldShareAnExistingSelection() {
+		assertThat(Selection.of(selection), is(sameInstance(selection)));
+		assertThat(Selection.of((List<WebElement>) null), is(sameInstance(Selection.EMPTY)));
+		assertThat(Selection.of((WebElement) null).isEmpty(), is(true));
+		assertThat(Selection.of(a), is((List<WebElement>) list(a)));
+	}
+
+	@Test
+	public void shouldSliceWithoutCopying() {
+		assertThat(selection.slice(1, 3), is((List<WebElement>) list(b, c)));
+		assertThat(selection.slice(-2, Integer.MAX_VALUE), is((List<WebElement>) list(d, e)));
+		assertThat(selection.slice(-10, 1), is((List<WebElement>) list(a)));
+		assertThat(selection.slice(3, 2).isEmpty(), is(true));
+		assertThat(selection.slice(0, 5), is(sameInstance(selection)));
+		assertThat(selection.slice(1, 4).slice(1, 3), is((List<WebElement>) list(c, d)));
+		assertThat(selection.subList(2, 4), is((List<WebElement>) list(c, d)));
+		assertThat(selection.slice(2, 4).first(), is(c));
+		assertThat(Selection.EMPTY.first(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldSelectEveryNthElement() {
+		assertThat(selection.every(0, 2), is((List<WebElement>) list(a, c, e)));
+		assertThat(selection.every(1, 2), is((List<WebElement>) list(b, d)));
+		assertThat(selection.every(0, 2).every(1, 2), is((List<WebElement>) list(c)));
+		assertThat(selection.every(1, 2).slice(1, 2), is((List<WebElement>) list(d)));
+		assertThat(selection.slice(1, 5).every(0, 3), is((List<WebElement>) list(b, e)));
+		assertThat(selection.every(5, 2).isEmpty(), is(true));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void shouldNotGetElementsOutsideTheView() {
+		selection.slice(1, 3).get(2);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void shouldBeImmutable() {
+		selection.add(a);
+	}
+}
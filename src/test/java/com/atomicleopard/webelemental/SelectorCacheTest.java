@@ -0,0 +1,116 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static com.atomicleopard.expressive.Expressive.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebElement;
+
+public class SelectorCacheTest {
+	private JavascriptExecutor executor;
+	private WebElement root;
+	private WebElement first;
+	private WebElement second;
+
+	@Before
+	public void before() {
+		executor = mock(JavascriptExecutor.class);
+		root = mock(WebElement.class);
+		first = mock(WebElement.class);
+		second = mock(WebElement.class);
+	}
+
+	@Test
+	public void shouldReuseTheElementsFoundWhileTheGenerationIsUnchanged() {
+		SelectorCache cache = new SelectorCache(4);
+		when(executor.executeScript(Scripts.CACHED_FIND, list(root), list("li"), null)).thenReturn(list("a.0", list(first), 1L));
+		when(executor.executeScript(Scripts.CACHED_FIND, list(root), list("li"), "a.0")).thenReturn(list("a.0"));
+
+		assertThat((Object) cache.find(executor, list(root), list("li")), is((Object) list(list(first), 1)));
+		assertThat((Object) cache.find(executor, list(root), list("li")), is((Object) list(list(first), 1)));
+		assertThat(cache.hits(), is(1));
+		assertThat(cache.misses(), is(1));
+	}
+
+	@Test
+	public void shouldFindTheElementsAgainOnceTheGenerationChanges() {
+		SelectorCache cache = new SelectorCache(4);
+		when(executor.executeScript(Scripts.CACHED_FIND, null, list("li"), null)).thenReturn(list("a.0", list(first), 1L));
+		when(executor.executeScript(Scripts.CACHED_FIND, null, list("li"), "a.0")).thenReturn(list("b.0", list(second), 1L));
+		when(executor.executeScript(Scripts.CACHED_FIND, null, list("li"), "b.0")).thenReturn(list("b.0"));
+
+		cache.find(executor, null, list("li"));
+		assertThat(cache.find(executor, null, list("li")).get(0), is((Object) list(second)));
+		assertThat(cache.find(executor, null, list("li")).get(0), is((Object) list(second)));
+		assertThat(cache.hits(), is(1));
+		assertThat(cache.misses(), is(2));
+	}
+
+	@Test
+	public void shouldForgetTheLeastRecentlyUsedLookupOnceFull() {
+		SelectorCache cache = new SelectorCache(2);
+		when(executor.executeScript(eq(Scripts.CACHED_FIND), anyVararg())).thenReturn(list("a.0", list(first), 1L));
+
+		cache.find(executor, null, list("h1"));
+		cache.find(executor, null, list("h2"));
+		cache.find(executor, null, list("h1"));
+		cache.find(executor, null, list("h3"));
+		assertThat(cache.size(), is(2));
+
+		cache.find(executor, null, list("h1"));
+		cache.find(executor, null, list("h2"));
+		verify(executor, times(2)).executeScript(Scripts.CACHED_FIND, null, list("h1"), "a.0");
+		verify(executor, times(2)).executeScript(Scripts.CACHED_FIND, null, list("h2"), null);
+	}
+
+	@Test
+	public void shouldKeepLookupsFromDifferentRootsAndSessionsApart() {
+		SelectorCache cache = new SelectorCache(4);
+		JavascriptExecutor other = mock(JavascriptExecutor.class);
+		when(executor.executeScript(eq(Scripts.CACHED_FIND), anyVararg())).thenReturn(list("a.0", list(first), 1L));
+		when(other.executeScript(eq(Scripts.CACHED_FIND), anyVararg())).thenReturn(list("a.0", list(second), 1L));
+
+		cache.find(executor, null, list("li"));
+		cache.find(executor, list(root), list("li"));
+		cache.find(other, null, list("li"));
+		assertThat(cache.size(), is(3));
+		assertThat(cache.hits(), is(0));
+	}
+
+	@Test
+	public void shouldNotRememberLookupsWhenChangesCannotBeObserved() {
+		SelectorCache cache = new SelectorCache(4);
+		when(executor.executeScript(eq(Scripts.CACHED_FIND), anyVararg())).thenReturn(list(null, list(first), 1L));
+
+		cache.find(executor, null, list("li"));
+		cache.find(executor, null, list("li"));
+		assertThat(cache.size(), is(0));
+		verify(executor, times(2)).executeScript(Scripts.CACHED_FIND, null, list("li"), null);
+	}
+}
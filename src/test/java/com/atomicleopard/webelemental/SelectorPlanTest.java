@@ -0,0 +1,87 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.internal.FindsByClassName;
+import org.openqa.selenium.internal.FindsById;
+import org.openqa.selenium.internal.FindsByName;
+import org.openqa.selenium.internal.FindsByTagName;
+
+import com.atomicleopard.webelemental.SelectorPlan.Strategy;
+
+public class SelectorPlanTest {
+	private WebDriver nativeDriver = mock(WebDriver.class, withSettings().extraInterfaces(FindsById.class, FindsByClassName.class, FindsByName.class, FindsByTagName.class));
+	private WebDriver cssDriver = mock(WebDriver.class);
+
+	@Test
+	public void shouldClassifySimpleSelectors() {
+		assertThat(SelectorPlan.of("#login").strategy(), is(Strategy.ID));
+		assertThat(SelectorPlan.of(" .row ").strategy(), is(Strategy.CLASS_NAME));
+		assertThat(SelectorPlan.of("[name=q]").strategy(), is(Strategy.NAME));
+		assertThat(SelectorPlan.of("[name='first name']").strategy(), is(Strategy.NAME));
+		assertThat(SelectorPlan.of("td").strategy(), is(Strategy.TAG_NAME));
+	}
+
+	@Test
+	public void shouldLeaveOtherSelectorsAsCss() {
+		assertThat(SelectorPlan.of("input[name=q]").strategy(), is(Strategy.CSS));
+		assertThat(SelectorPlan.of("#login .row").strategy(), is(Strategy.CSS));
+		assertThat(SelectorPlan.of("tr.row").strategy(), is(Strategy.CSS));
+		assertThat(SelectorPlan.of("ul, p").strategy(), is(Strategy.CSS));
+		assertThat(SelectorPlan.of("#1").strategy(), is(Strategy.CSS));
+		assertThat(SelectorPlan.of("*").strategy(), is(Strategy.CSS));
+		assertThat(SelectorPlan.of("li:first-child").strategy(), is(Strategy.CSS));
+	}
+
+	@Test
+	public void shouldUseNativeLocatorsSupportedByTheContext() {
+		assertThat(SelectorPlan.of("#login").locator(nativeDriver), is(By.id("login")));
+		assertThat(SelectorPlan.of(".row").locator(nativeDriver), is(By.className("row")));
+		assertThat(SelectorPlan.of("[name=\"q\"]").locator(nativeDriver), is(By.name("q")));
+		assertThat(SelectorPlan.of("td").locator(nativeDriver), is(By.tagName("td")));
+		assertThat(SelectorPlan.of("tr td").locator(nativeDriver), is(By.cssSelector("tr td")));
+	}
+
+	@Test
+	public void shouldUseCssSelectorsWhenTheContextHasNoNativeLocator() {
+		assertThat(SelectorPlan.of("#login").locator(cssDriver), is(By.cssSelector("#login")));
+		assertThat(SelectorPlan.of("td").locator(null), is(By.cssSelector("td")));
+		WebDriver idDriver = mock(WebDriver.class, withSettings().extraInterfaces(FindsById.class));
+		assertThat(SelectorPlan.of("#login").locator(idDriver), is(By.id("login")));
+		assertThat(SelectorPlan.of(".row").locator(idDriver), is(By.cssSelector(".row")));
+	}
+
+	@Test
+	public void shouldRememberThePlanForEachSelector() {
+		assertThat(SelectorPlan.of("#remembered"), is(sameInstance(SelectorPlan.of("#remembered"))));
+		for (int i = 0; i <= SelectorPlan.CACHE_SIZE; i++) {
+			SelectorPlan.of("#plan" + i);
+		}
+		assertThat(SelectorPlan.of("#plan" + SelectorPlan.CACHE_SIZE), is(sameInstance(SelectorPlan.of("#plan" + SelectorPlan.CACHE_SIZE))));
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+public class WaiterTest {
+	@Test
+	public void shouldWaitForThePageToChangeInASingleAsynchronousScript() {
+		WebDriver driver = ElementTest.scriptingDriver();
+		when(((JavascriptExecutor) driver).executeAsyncScript(Scripts.AWAIT_MUTATION, Waiter.MIN_POLL_MILLIS, null)).thenReturn("a.1");
+		Waiter waiter = new Waiter((JavascriptExecutor) driver);
+		waiter.await(5000);
+		verify((JavascriptExecutor) driver).executeAsyncScript(Scripts.AWAIT_MUTATION, Waiter.MIN_POLL_MILLIS, null);
+		assertThat(waiter.isObserving(), is(true));
+	}
+
+	@Test
+	public void shouldPollWithIncreasingDelayWhenThePageCannotBeObserved() {
+		WebDriver driver = ElementTest.scriptingDriver();
+		Waiter waiter = new Waiter((JavascriptExecutor) driver);
+		waiter.await(5000);
+		assertThat(waiter.isObserving(), is(false));
+		long start = System.currentTimeMillis();
+		waiter.await(5000);
+		waiter.await(5000);
+		long elapsed = System.currentTimeMillis() - start;
+		verify((JavascriptExecutor) driver, times(1)).executeAsyncScript(anyString(), anyVararg());
+		assertThat(elapsed >= Waiter.MIN_POLL_MILLIS * 6, is(true));
+	}
+
+	@Test
+	public void shouldPassTheLastGenerationSoThatChangesBetweenWaitsAreNotMissed() {
+		WebDriver driver = ElementTest.scriptingDriver();
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+		when(executor.executeAsyncScript(Scripts.AWAIT_MUTATION, Waiter.MIN_POLL_MILLIS, null)).thenReturn("a.1");
+		when(executor.executeAsyncScript(Scripts.AWAIT_MUTATION, Waiter.MAX_AWAIT_MILLIS, "a.1")).thenReturn("a.2");
+		Waiter waiter = new Waiter(executor);
+		waiter.await(5000);
+		waiter.await(5000);
+		waiter.await(300);
+		verify(executor).executeAsyncScript(Scripts.AWAIT_MUTATION, Waiter.MAX_AWAIT_MILLIS, "a.1");
+		verify(executor).executeAsyncScript(Scripts.AWAIT_MUTATION, 300L, "a.2");
+	}
+
+	@Test
+	public void shouldPollWhenAsynchronousScriptsFail() {
+		WebDriver driver = ElementTest.scriptingDriver();
+		when(((JavascriptExecutor) driver).executeAsyncScript(anyString(), anyVararg())).thenThrow(new WebDriverException("timeout"));
+		Waiter waiter = new Waiter((JavascriptExecutor) driver);
+		waiter.await(10);
+		waiter.await(10);
+		assertThat(waiter.isObserving(), is(false));
+		verify((JavascriptExecutor) driver, times(1)).executeAsyncScript(anyString(), anyVararg());
+	}
+
+	@Test
+	public void shouldPollWithIncreasingDelayWithoutAScriptExecutor() {
+		Waiter waiter = new Waiter(null);
+		assertThat(waiter.isObserving(), is(false));
+		long start = System.currentTimeMillis();
+		waiter.await(1000);
+		waiter.await(1000);
+		long elapsed = System.currentTimeMillis() - start;
+		assertThat(elapsed >= Waiter.MIN_POLL_MILLIS * 3, is(true));
+		assertThat(elapsed < 1000, is(true));
+	}
+
+	@Test
+	public void shouldNotPollForLongerThanTheGivenTime() {
+		Waiter waiter = new Waiter(null);
+		long start = System.currentTimeMillis();
+		waiter.await(1);
+		assertThat(System.currentTimeMillis() - start < Waiter.MIN_POLL_MILLIS, is(true));
+	}
+}
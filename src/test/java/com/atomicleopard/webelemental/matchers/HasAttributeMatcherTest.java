@@ -23,6 +23,8 @@ package com.atomicleopard.webelemental.matchers;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 import static com.atomicleopard.expressive.Expressive.*;
+import java.util.List;
+
 import org.hamcrest.Description;
 import org.hamcrest.StringDescription;
 import org.junit.Test;
@@ -30,6 +32,7 @@ import org.openqa.selenium.WebElement;
 
 import com.atomicleopard.expressive.Expressive;
 import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
 import com.atomicleopard.webelemental.ElementTest;
 import com.atomicleopard.webelemental.matchers.HasAttributeMatcher;
 
@@ -46,6 +49,20 @@ public class HasAttributeMatcherTest {
 		assertThat(new HasAttributeMatcher("id", containsString("2")).matches(element), is(false));
 	}
 
+	@Test
+	public void shouldMatchSnapshotsAndProvideAPredicateForExactValues() {
+		WebElement webElement1 = ElementTest.webElement("div", null, Expressive.<String, String> map("data-attr", "value1"));
+		WebElement webElement2 = ElementTest.webElement("div", null, Expressive.<String, String> map("data-attr", "value2"));
+		ElementSnapshot snapshot = new Element(list(webElement1, webElement2)).snapshot("data-attr");
+		assertThat(new HasAttributeMatcher("data-attr", "value2").matches(snapshot, 0), is(false));
+		assertThat(new HasAttributeMatcher("data-attr", "value2").matches(snapshot, 1), is(true));
+		assertThat(new HasAttributeMatcher("data-attr", containsString("value")).matches(snapshot, 0), is(true));
+
+		assertThat(new HasAttributeMatcher("data-attr", "value1").attributes(), is((List<String>) list("data-attr")));
+		assertThat(new HasAttributeMatcher("data-attr", "value1").predicate(), is((List<Object>) Expressive.<Object> list("attr", "data-attr", "value1")));
+		assertThat(new HasAttributeMatcher("data-attr", is("value1")).predicate(), is(nullValue()));
+	}
+
 	@Test
 	public void shouldDescribeTo() {
 		Description description = new StringDescription();
@@ -24,6 +24,8 @@ import static com.atomicleopard.expressive.Expressive.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.util.List;
+
 import org.hamcrest.Description;
 import org.hamcrest.StringDescription;
 import org.junit.Test;
@@ -31,6 +33,7 @@ import org.openqa.selenium.WebElement;
 
 import com.atomicleopard.expressive.Expressive;
 import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
 import com.atomicleopard.webelemental.ElementTest;
 import com.atomicleopard.webelemental.matchers.HasClassMatcher;
 
@@ -47,6 +50,20 @@ public class HasClassMatcherTest {
 		assertThat(new HasClassMatcher(containsString("notClass")).matches(element), is(false));
 	}
 
+	@Test
+	public void shouldMatchSnapshotsAndProvideAPredicateForExactClasses() {
+		WebElement element1 = ElementTest.webElement("div", null, Expressive.<String, String> map("class", "myClass yourClass"));
+		WebElement element2 = ElementTest.webElement("div", null, Expressive.<String, String> map("class", "otherClass"));
+		ElementSnapshot snapshot = new Element(list(element1, element2)).snapshot("class");
+		assertThat(new HasClassMatcher("otherClass").matches(snapshot, 0), is(false));
+		assertThat(new HasClassMatcher("otherClass").matches(snapshot, 1), is(true));
+		assertThat(new HasClassMatcher(containsString("your")).matches(snapshot, 0), is(true));
+
+		assertThat(new HasClassMatcher("myClass").attributes(), is((List<String>) list("class")));
+		assertThat(new HasClassMatcher("myClass").predicate(), is((List<Object>) Expressive.<Object> list("class", "myClass")));
+		assertThat(new HasClassMatcher(is("myClass")).predicate(), is(nullValue()));
+	}
+
 	@Test
 	public void shouldDescribeTo() {
 		Description description = new StringDescription();
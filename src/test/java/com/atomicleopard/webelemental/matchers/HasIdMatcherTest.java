@@ -24,6 +24,8 @@ import static com.atomicleopard.expressive.Expressive.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.util.List;
+
 import org.hamcrest.Description;
 import org.hamcrest.StringDescription;
 import org.junit.Test;
@@ -31,6 +33,7 @@ import org.openqa.selenium.WebElement;
 
 import com.atomicleopard.expressive.Expressive;
 import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
 import com.atomicleopard.webelemental.ElementTest;
 import com.atomicleopard.webelemental.matchers.HasIdMatcher;
 
@@ -47,6 +50,20 @@ public class HasIdMatcherTest {
 		assertThat(new HasIdMatcher(containsString("id")).matches(element), is(false));
 	}
 
+	@Test
+	public void shouldMatchSnapshotsAndProvideAPredicateForExactIds() {
+		WebElement element1 = ElementTest.webElement("div", null, Expressive.<String, String> map("id", "myId"));
+		WebElement element2 = ElementTest.webElement("div", null, Expressive.<String, String> map("id", "yourId"));
+		ElementSnapshot snapshot = new Element(list(element1, element2)).snapshot("id");
+		assertThat(new HasIdMatcher("yourId").matches(snapshot, 0), is(false));
+		assertThat(new HasIdMatcher("yourId").matches(snapshot, 1), is(true));
+		assertThat(new HasIdMatcher(containsString("my")).matches(snapshot, 0), is(true));
+
+		assertThat(new HasIdMatcher("myId").attributes(), is((List<String>) list("id")));
+		assertThat(new HasIdMatcher("myId").predicate(), is((List<Object>) Expressive.<Object> list("attr", "id", "myId")));
+		assertThat(new HasIdMatcher(is("myId")).predicate(), is(nullValue()));
+	}
+
 	@Test
 	public void shouldDescribeTo() {
 		Description description = new StringDescription();
@@ -24,6 +24,8 @@ import static com.atomicleopard.expressive.Expressive.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.util.List;
+
 import org.hamcrest.Description;
 import org.hamcrest.StringDescription;
 import org.junit.Test;
@@ -31,6 +33,7 @@ import org.openqa.selenium.WebElement;
 
 import com.atomicleopard.expressive.Expressive;
 import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
 import com.atomicleopard.webelemental.ElementTest;
 import com.atomicleopard.webelemental.matchers.HasTextMatcher;
 
@@ -47,6 +50,20 @@ public class HasTextMatcherTest {
 		assertThat(new HasTextMatcher(containsString("2")).matches(element), is(false));
 	}
 
+	@Test
+	public void shouldMatchSnapshotsAndProvideAPredicateForExactText() {
+		WebElement webElement1 = ElementTest.webElement("div", "text1", Expressive.<String, String> map());
+		WebElement webElement2 = ElementTest.webElement("div", "text2", Expressive.<String, String> map());
+		ElementSnapshot snapshot = new Element(list(webElement1, webElement2)).snapshot();
+		assertThat(new HasTextMatcher("text2").matches(snapshot, 0), is(false));
+		assertThat(new HasTextMatcher("text2").matches(snapshot, 1), is(true));
+		assertThat(new HasTextMatcher(containsString("text")).matches(snapshot, 0), is(true));
+
+		assertThat(new HasTextMatcher("text1").attributes().isEmpty(), is(true));
+		assertThat(new HasTextMatcher("text1").predicate(), is((List<Object>) Expressive.<Object> list("text", "text1")));
+		assertThat(new HasTextMatcher(is("text1")).predicate(), is(nullValue()));
+	}
+
 	@Test
 	public void shouldDescribeTo() {
 		Description description = new StringDescription();
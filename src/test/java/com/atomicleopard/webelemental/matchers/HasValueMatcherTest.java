@@ -24,6 +24,8 @@ import static com.atomicleopard.expressive.Expressive.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.util.List;
+
 import org.hamcrest.Description;
 import org.hamcrest.StringDescription;
 import org.junit.Test;
@@ -31,6 +33,7 @@ import org.openqa.selenium.WebElement;
 
 import com.atomicleopard.expressive.Expressive;
 import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
 import com.atomicleopard.webelemental.ElementTest;
 import com.atomicleopard.webelemental.matchers.HasValueMatcher;
 
@@ -47,6 +50,20 @@ public class HasValueMatcherTest {
 		assertThat(new HasValueMatcher(containsString("2")).matches(element), is(false));
 	}
 
+	@Test
+	public void shouldMatchSnapshotsAndProvideAPredicateForExactValues() {
+		WebElement element1 = ElementTest.webElement("input", null, Expressive.<String, String> map("value", "value1"));
+		WebElement element2 = ElementTest.webElement("input", null, Expressive.<String, String> map("value", "value2"));
+		ElementSnapshot snapshot = new Element(list(element1, element2)).snapshot("value");
+		assertThat(new HasValueMatcher("value2").matches(snapshot, 0), is(false));
+		assertThat(new HasValueMatcher("value2").matches(snapshot, 1), is(true));
+		assertThat(new HasValueMatcher(containsString("value")).matches(snapshot, 0), is(true));
+
+		assertThat(new HasValueMatcher("value1").attributes(), is((List<String>) list("value")));
+		assertThat(new HasValueMatcher("value1").predicate(), is((List<Object>) Expressive.<Object> list("attr", "value", "value1")));
+		assertThat(new HasValueMatcher(is("value1")).predicate(), is(nullValue()));
+	}
+
 	@Test
 	public void shouldDescribeTo() {
 		Description description = new StringDescription();
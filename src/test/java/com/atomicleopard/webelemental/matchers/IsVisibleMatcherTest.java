@@ -25,6 +25,8 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.util.List;
+
 import org.hamcrest.Description;
 import org.hamcrest.StringDescription;
 import org.junit.Test;
@@ -32,6 +34,7 @@ import org.openqa.selenium.WebElement;
 
 import com.atomicleopard.expressive.Expressive;
 import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementSnapshot;
 import com.atomicleopard.webelemental.ElementTest;
 import com.atomicleopard.webelemental.matchers.IsVisibleMatcher;
 
@@ -50,6 +53,37 @@ public class IsVisibleMatcherTest {
 		assertThat(new IsVisibleMatcher().matches(element), is(true));
 	}
 
+	@Test
+	public void shouldMatchSnapshotsAndProvideAPredicate() {
+		WebElement webElement1 = ElementTest.webElement("div", null, Expressive.<String, String> map());
+		WebElement webElement2 = ElementTest.webElement("div", null, Expressive.<String, String> map());
+		when(webElement2.isDisplayed()).thenReturn(true);
+		ElementSnapshot snapshot = new Element(list(webElement1, webElement2)).snapshot();
+		assertThat(new IsVisibleMatcher().matches(snapshot, 0), is(false));
+		assertThat(new IsVisibleMatcher().matches(snapshot, 1), is(true));
+
+		assertThat(new IsVisibleMatcher().attributes().isEmpty(), is(true));
+		assertThat(new IsVisibleMatcher().predicate(), is((List<Object>) Expressive.<Object> list("visible")));
+	}
+
+	@Test
+	public void shouldMatchElementsWhichAreNotVisible() {
+		WebElement webElement1 = ElementTest.webElement("div", null, Expressive.<String, String> map());
+		WebElement webElement2 = ElementTest.webElement("div", null, Expressive.<String, String> map());
+		when(webElement2.isDisplayed()).thenReturn(true);
+		Element element = new Element(list(webElement1, webElement2));
+		assertThat(new IsVisibleMatcher(false).matches(element), is(true));
+
+		ElementSnapshot snapshot = element.snapshot();
+		assertThat(new IsVisibleMatcher(false).matches(snapshot, 0), is(true));
+		assertThat(new IsVisibleMatcher(false).matches(snapshot, 1), is(false));
+		assertThat(new IsVisibleMatcher(false).predicate(), is((List<Object>) Expressive.<Object> list("hidden")));
+
+		Description description = new StringDescription();
+		new IsVisibleMatcher(false).describeTo(description);
+		assertThat(description.toString(), is("not element to be visible"));
+	}
+
 	@Test
 	public void shouldDescribeTo() {
 		Description description = new StringDescription();
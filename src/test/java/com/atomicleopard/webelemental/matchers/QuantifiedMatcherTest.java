@@ -0,0 +1,112 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.matchers;
+
+import static com.atomicleopard.expressive.Expressive.*;
+import static com.atomicleopard.webelemental.ElementMatchers.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.hamcrest.StringDescription;
+import org.junit.Test;
+import org.openqa.selenium.WebElement;
+
+import com.atomicleopard.expressive.Expressive;
+import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementTest;
+import com.atomicleopard.webelemental.matchers.QuantifiedMatcher.Quantifier;
+
+public class QuantifiedMatcherTest {
+	private WebElement row1 = ElementTest.webElement("tr", "Anthony", Expressive.<String, String> map("class", "row odd"));
+	private WebElement row2 = ElementTest.webElement("tr", "Bob", Expressive.<String, String> map("class", "row"));
+	private WebElement row3 = ElementTest.webElement("tr", "Carl", Expressive.<String, String> map("class", "row odd"));
+	private Element rows = new Element(list(row1, row2, row3));
+	private Element none = new Element(Collections.<WebElement> emptyList());
+
+	@Test
+	public void shouldRequireEveryElementToMatch() {
+		assertThat(everyElement(cssClass("row")).matches(rows), is(true));
+		assertThat(everyElement(cssClass("odd")).matches(rows), is(false));
+		assertThat(everyElement(cssClass("odd")).matches(none), is(true));
+	}
+
+	@Test
+	public void shouldRequireAnyElementToMatch() {
+		assertThat(anyElement(text("Bob")).matches(rows), is(true));
+		assertThat(anyElement(text("Dave")).matches(rows), is(false));
+		assertThat(anyElement(text("Dave")).matches(none), is(false));
+	}
+
+	@Test
+	public void shouldRequireNoElementToMatch() {
+		assertThat(noElement(text("Dave")).matches(rows), is(true));
+		assertThat(noElement(text("Bob")).matches(rows), is(false));
+		assertThat(noElement(text("Bob")).matches(none), is(true));
+	}
+
+	@Test
+	public void shouldReportTheIndexesOfTheElementsWhichFailed() {
+		QuantifiedMatcher every = new QuantifiedMatcher(Quantifier.EVERY, cssClass("odd"));
+		assertThat(every.failures(rows), is(Arrays.asList(1)));
+		assertThat(StringDescription.toString(every), is("every element has class a collection containing is \"odd\""));
+
+		QuantifiedMatcher no = new QuantifiedMatcher(Quantifier.NO, cssClass("odd"));
+		assertThat(no.failures(rows), is(Arrays.asList(0, 2)));
+
+		QuantifiedMatcher any = new QuantifiedMatcher(Quantifier.ANY, text("Dave"));
+		assertThat(any.failures(rows), is(Arrays.asList(0, 1, 2)));
+		assertThat(any.failures(none).isEmpty(), is(true));
+		assertThat(any.matches(none), is(false));
+		assertThat(StringDescription.toString(any), is("any element has text is \"Dave\""));
+	}
+
+	@Test
+	public void shouldNotDescribeAPreviousEvaluation() {
+		QuantifiedMatcher every = new QuantifiedMatcher(Quantifier.EVERY, cssClass("odd"));
+		assertThat(every.matches(rows), is(false));
+		assertThat(StringDescription.toString(every), is("every element has class a collection containing is \"odd\""));
+		assertThat(every.failures(new Element(row1)).isEmpty(), is(true));
+		assertThat(every.failures(rows), is(Arrays.asList(1)));
+	}
+
+	@Test
+	public void shouldReadTheTextOfEveryElementOnceForAPropertyMatcher() {
+		everyElement(text(containsString(""))).matches(rows);
+		verify(row1, times(1)).getText();
+		verify(row2, times(1)).getText();
+		verify(row3, times(1)).getText();
+	}
+
+	@Test
+	public void shouldApplyOtherMatchersToEachElement() {
+		assertThat(everyElement(size(1)).matches(rows), is(true));
+		assertThat(new QuantifiedMatcher(Quantifier.EVERY, size(1)).attributes(), is(nullValue()));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldOnlyMatchSnapshotsForPropertyMatchers() {
+		new QuantifiedMatcher(Quantifier.EVERY, size(1)).matches(rows.snapshot());
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.WebDriver;
+
+import com.atomicleopard.webelemental.testkit.InMemoryWebDriver;
+
+/**
+ * The drivers each {@link Scenario} is measured against. Both serve the same
+ * page, a table with the given number of rows and columns. Each row has the
+ * id 'row-r' and the class 'row', and each cell the text 'r-c'.
+ */
+public enum Browser {
+	/**
+	 * A {@link FakeWebDriver}, which cannot execute javascript, measuring the
+	 * paths WebElemental falls back to when no script executor is available
+	 */
+	FAKE {
+		@Override
+		public WebDriver page(int rows, int columns, long latency, TimeUnit unit) {
+			FakeWebDriver driver = new FakeWebDriver(latency, unit);
+			FakeWebElement tbody = driver.document().append("body").append("table").attr("id", "results").append("tbody");
+			for (int r = 0; r < rows; r++) {
+				FakeWebElement row = tbody.append("tr").attr("id", "row-" + r).attr("class", "row");
+				for (int c = 0; c < columns; c++) {
+					row.append("td").text(r + "-" + c);
+				}
+			}
+			return driver;
+		}
+
+		@Override
+		public long commands(WebDriver driver) {
+			return ((FakeWebDriver) driver).commands();
+		}
+	},
+	/**
+	 * The testkit's {@link InMemoryWebDriver}, which answers the scripts used
+	 * by WebElemental in a single command, measuring the script based paths
+	 * taken against a real browser
+	 */
+	SCRIPTED {
+		@Override
+		public WebDriver page(int rows, int columns, long latency, TimeUnit unit) {
+			StringBuilder html = new StringBuilder("<table id='results'><tbody>");
+			for (int r = 0; r < rows; r++) {
+				html.append(String.format("<tr id='row-%s' class='row'>", r));
+				for (int c = 0; c < columns; c++) {
+					html.append(String.format("<td>%s-%s</td>", r, c));
+				}
+				html.append("</tr>");
+			}
+			html.append("</tbody></table>");
+			return new InMemoryWebDriver(html.toString()).latency(latency, unit);
+		}
+
+		@Override
+		public long commands(WebDriver driver) {
+			return ((InMemoryWebDriver) driver).commands();
+		}
+	};
+
+	/**
+	 * @param rows
+	 * @param columns
+	 * @param latency
+	 *            the time each command sent to the driver takes
+	 * @param unit
+	 *            the unit of the given latency
+	 * @return a driver serving a table with the given number of rows and
+	 *         columns
+	 */
+	public abstract WebDriver page(int rows, int columns, long latency, TimeUnit unit);
+
+	/**
+	 * @param driver
+	 *            a driver returned by {@link #page(int, int, long, TimeUnit)}
+	 * @return the number of commands sent to the given driver and its elements
+	 */
+	public abstract long commands(WebDriver driver);
+}
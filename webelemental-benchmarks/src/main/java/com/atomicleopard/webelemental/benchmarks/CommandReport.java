@@ -0,0 +1,57 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Prints the number of commands each {@link Scenario} sends to the browser,
+ * for a table of the given number of rows and columns (100 by 5 by default),
+ * with a column for each {@link Browser}. Unlike the throughput measured by
+ * {@link ElementBenchmarks}, this is deterministic and so can be compared
+ * between builds.
+ */
+public class CommandReport {
+	public static void main(String[] args) {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int columns = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		Browser[] browsers = Browser.values();
+		WebDriver[] drivers = new WebDriver[browsers.length];
+		StringBuilder header = new StringBuilder(String.format("%-24s", ""));
+		for (int b = 0; b < browsers.length; b++) {
+			drivers[b] = browsers[b].page(rows, columns, 0, TimeUnit.NANOSECONDS);
+			header.append(String.format(" %10s", browsers[b]));
+		}
+		System.out.println(String.format("Commands per operation, %s rows by %s columns", rows, columns));
+		System.out.println(header);
+		for (Scenario scenario : Scenario.values()) {
+			StringBuilder line = new StringBuilder(String.format("%-24s", scenario));
+			for (int b = 0; b < browsers.length; b++) {
+				long before = browsers[b].commands(drivers[b]);
+				scenario.run(drivers[b]);
+				line.append(String.format(" %10d", browsers[b].commands(drivers[b]) - before));
+			}
+			System.out.println(line);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * <p>
+ * Measures the throughput of each {@link Scenario} against each
+ * {@link Browser}, with and without latency added to each command.
+ * </p>
+ * <p>
+ * Alongside the throughput, the 'commands' counter reports the number of
+ * commands sent to the driver. Divided by the number of operations, this is
+ * the number of round trips each operation would make to a real browser, see
+ * also {@link CommandReport}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElementBenchmarks {
+	@Param({ "FAKE", "SCRIPTED" })
+	public Browser browser;
+
+	@Param({ "0", "50" })
+	public long latencyMicros;
+
+	@Param({ "100" })
+	public int rows;
+
+	@Param({ "5" })
+	public int columns;
+
+	private WebDriver driver;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		driver = browser.page(rows, columns, latencyMicros, TimeUnit.MICROSECONDS);
+	}
+
+	/**
+	 * Counts the commands sent to the driver by the benchmarked operations
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Commands {
+		public long commands;
+	}
+
+	private Object run(Scenario scenario, Commands commands) {
+		long before = browser.commands(driver);
+		Object result = scenario.run(driver);
+		commands.commands += browser.commands(driver) - before;
+		return result;
+	}
+
+	@Benchmark
+	public Object find(Commands commands) {
+		return run(Scenario.FIND, commands);
+	}
+
+	@Benchmark
+	public Object parent(Commands commands) {
+		return run(Scenario.PARENT, commands);
+	}
+
+	@Benchmark
+	public Object iterator(Commands commands) {
+		return run(Scenario.ITERATOR, commands);
+	}
+
+	@Benchmark
+	public Object each(Commands commands) {
+		return run(Scenario.EACH, commands);
+	}
+
+	@Benchmark
+	public Object toString(Commands commands) {
+		return run(Scenario.TO_STRING, commands);
+	}
+
+	@Benchmark
+	public Object matchers(Commands commands) {
+		return run(Scenario.MATCHERS, commands);
+	}
+
+	@Benchmark
+	public Object matcherChain(Commands commands) {
+		return run(Scenario.MATCHER_CHAIN, commands);
+	}
+
+	@Benchmark
+	public Object batchedMatcherChain(Commands commands) {
+		return run(Scenario.BATCHED_MATCHER_CHAIN, commands);
+	}
+}
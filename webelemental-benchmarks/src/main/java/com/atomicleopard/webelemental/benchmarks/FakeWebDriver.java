@@ -0,0 +1,155 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * <p>
+ * An in-process {@link WebDriver} serving a page of {@link FakeWebElement}s.
+ * Each command sent to the driver, or to one of its elements, is counted and
+ * delayed by a configurable latency, simulating the round trip to a remote
+ * browser.
+ * </p>
+ * <p>
+ * The driver cannot execute javascript, so WebElemental falls back to issuing
+ * a command per element wherever it would otherwise use a script. The script
+ * based paths are measured against the testkit's in-memory driver instead, see
+ * {@link Browser#SCRIPTED}.
+ * </p>
+ */
+public class FakeWebDriver implements WebDriver {
+	/**
+	 * Latencies shorter than this are simulated by spinning, as parking the
+	 * thread is not precise enough
+	 */
+	private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final FakeWebElement document;
+	private final long latencyNanos;
+	private final AtomicLong commands = new AtomicLong();
+
+	/**
+	 * @param latency
+	 *            the time each command takes
+	 * @param unit
+	 *            the unit of the given latency
+	 */
+	public FakeWebDriver(long latency, TimeUnit unit) {
+		this.latencyNanos = unit.toNanos(latency);
+		this.document = new FakeWebElement(this, "html");
+	}
+
+	/**
+	 * @return the root element of the page, which elements can be appended to
+	 */
+	public FakeWebElement document() {
+		return document;
+	}
+
+	/**
+	 * @return the number of commands sent to this driver and its elements
+	 */
+	public long commands() {
+		return commands.get();
+	}
+
+	void command() {
+		commands.incrementAndGet();
+		if (latencyNanos <= 0) {
+			return;
+		}
+		if (latencyNanos < SPIN_NANOS) {
+			long end = System.nanoTime() + latencyNanos;
+			while (System.nanoTime() < end) {
+				// spin
+			}
+		} else {
+			LockSupport.parkNanos(latencyNanos);
+		}
+	}
+
+	public void get(String url) {
+		command();
+	}
+
+	public String getCurrentUrl() {
+		command();
+		return "about:blank";
+	}
+
+	public String getTitle() {
+		command();
+		return "";
+	}
+
+	/**
+	 * Finds elements within the root element of the page, which itself is
+	 * never found.
+	 */
+	public List<WebElement> findElements(By by) {
+		return by.findElements(document);
+	}
+
+	public WebElement findElement(By by) {
+		return by.findElement(document);
+	}
+
+	public String getPageSource() {
+		command();
+		return "";
+	}
+
+	public void close() {
+	}
+
+	public void quit() {
+	}
+
+	public Set<String> getWindowHandles() {
+		return Collections.singleton(getWindowHandle());
+	}
+
+	public String getWindowHandle() {
+		return "fake";
+	}
+
+	public TargetLocator switchTo() {
+		throw new UnsupportedOperationException("The fake driver only serves a single page");
+	}
+
+	public Navigation navigate() {
+		throw new UnsupportedOperationException("The fake driver only serves a single page");
+	}
+
+	public Options manage() {
+		throw new UnsupportedOperationException("The fake driver only serves a single page");
+	}
+}
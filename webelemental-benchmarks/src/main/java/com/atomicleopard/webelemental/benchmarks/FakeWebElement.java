@@ -0,0 +1,336 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.FindsByClassName;
+import org.openqa.selenium.internal.FindsByCssSelector;
+import org.openqa.selenium.internal.FindsById;
+import org.openqa.selenium.internal.FindsByTagName;
+import org.openqa.selenium.internal.FindsByXPath;
+import org.openqa.selenium.internal.WrapsDriver;
+
+/**
+ * <p>
+ * An in-memory element of a {@link FakeWebDriver} page. Every method of the
+ * {@link WebElement} interface counts as a command sent to the browser, and
+ * incurs the latency of the driver.
+ * </p>
+ * <p>
+ * Elements can be found by tag name, id, class name and by CSS selectors made
+ * of descendant combinators between tag names, ids and classes, such as
+ * <code>table#results tr.row td</code>. The XPath expressions used by
+ * WebElemental to move to the parent, ancestors and siblings of an element
+ * are also supported.
+ * </p>
+ */
+public class FakeWebElement implements WebElement, WrapsDriver, FindsByCssSelector, FindsByTagName, FindsById, FindsByClassName, FindsByXPath {
+	private final FakeWebDriver driver;
+	private final String tagName;
+	private final Map<String, String> attributes = new LinkedHashMap<String, String>();
+	private final List<FakeWebElement> children = new ArrayList<FakeWebElement>();
+	private FakeWebElement parent;
+	private String text = "";
+	private boolean displayed = true;
+
+	FakeWebElement(FakeWebDriver driver, String tagName) {
+		this.driver = driver;
+		this.tagName = tagName;
+	}
+
+	/**
+	 * Appends a new child element, without incurring any latency.
+	 * 
+	 * @param tagName
+	 * @return the new child element
+	 */
+	public FakeWebElement append(String tagName) {
+		FakeWebElement child = new FakeWebElement(driver, tagName);
+		child.parent = this;
+		children.add(child);
+		return child;
+	}
+
+	/**
+	 * Sets an attribute, without incurring any latency.
+	 * 
+	 * @return this element
+	 */
+	public FakeWebElement attr(String name, String value) {
+		attributes.put(name, value);
+		return this;
+	}
+
+	/**
+	 * Sets the text of this element, without incurring any latency.
+	 * 
+	 * @return this element
+	 */
+	public FakeWebElement text(String text) {
+		this.text = text;
+		return this;
+	}
+
+	/**
+	 * Sets whether this element is displayed, without incurring any latency.
+	 * 
+	 * @return this element
+	 */
+	public FakeWebElement displayed(boolean displayed) {
+		this.displayed = displayed;
+		return this;
+	}
+
+	public void click() {
+		driver.command();
+	}
+
+	public void submit() {
+		driver.command();
+	}
+
+	public void sendKeys(CharSequence... keysToSend) {
+		driver.command();
+		StringBuilder value = new StringBuilder(attributes.containsKey("value") ? attributes.get("value") : "");
+		for (CharSequence keys : keysToSend) {
+			value.append(keys);
+		}
+		attributes.put("value", value.toString());
+	}
+
+	public void clear() {
+		driver.command();
+		attributes.remove("value");
+	}
+
+	public String getTagName() {
+		driver.command();
+		return tagName;
+	}
+
+	public String getAttribute(String name) {
+		driver.command();
+		return attributes.get(name);
+	}
+
+	public boolean isSelected() {
+		driver.command();
+		return attributes.containsKey("selected") || attributes.containsKey("checked");
+	}
+
+	public boolean isEnabled() {
+		driver.command();
+		return !attributes.containsKey("disabled");
+	}
+
+	public String getText() {
+		driver.command();
+		StringBuilder sb = new StringBuilder();
+		appendText(sb);
+		return sb.toString().trim();
+	}
+
+	public List<WebElement> findElements(By by) {
+		return by.findElements(this);
+	}
+
+	public WebElement findElement(By by) {
+		return by.findElement(this);
+	}
+
+	public boolean isDisplayed() {
+		driver.command();
+		return displayed;
+	}
+
+	public Point getLocation() {
+		driver.command();
+		return new Point(0, 0);
+	}
+
+	public Dimension getSize() {
+		driver.command();
+		return new Dimension(0, 0);
+	}
+
+	public String getCssValue(String propertyName) {
+		driver.command();
+		return null;
+	}
+
+	public WebDriver getWrappedDriver() {
+		return driver;
+	}
+
+	public List<WebElement> findElementsByCssSelector(String using) {
+		driver.command();
+		return select(using.trim().split("\\s+"));
+	}
+
+	public WebElement findElementByCssSelector(String using) {
+		return first(findElementsByCssSelector(using), using);
+	}
+
+	public List<WebElement> findElementsByTagName(String using) {
+		driver.command();
+		return select(using);
+	}
+
+	public WebElement findElementByTagName(String using) {
+		return first(findElementsByTagName(using), using);
+	}
+
+	public List<WebElement> findElementsById(String using) {
+		driver.command();
+		return select("#" + using);
+	}
+
+	public WebElement findElementById(String using) {
+		return first(findElementsById(using), using);
+	}
+
+	public List<WebElement> findElementsByClassName(String using) {
+		driver.command();
+		return select("." + using);
+	}
+
+	public WebElement findElementByClassName(String using) {
+		return first(findElementsByClassName(using), using);
+	}
+
+	public List<WebElement> findElementsByXPath(String using) {
+		driver.command();
+		List<WebElement> found = new ArrayList<WebElement>();
+		if ("..".equals(using)) {
+			if (parent != null) {
+				found.add(parent);
+			}
+		} else if ("/*".equals(using)) {
+			found.add(driver.document());
+		} else if ("ancestor-or-self::*".equals(using)) {
+			for (FakeWebElement element = this; element != null; element = element.parent) {
+				found.add(0, element);
+			}
+		} else if (parent != null) {
+			int index = parent.children.indexOf(this);
+			if ("preceding-sibling::* | following-sibling::*".equals(using)) {
+				found.addAll(parent.children);
+				found.remove(this);
+			} else if ("following-sibling::*[1]".equals(using) && index + 1 < parent.children.size()) {
+				found.add(parent.children.get(index + 1));
+			} else if ("preceding-sibling::*[1]".equals(using) && index > 0) {
+				found.add(parent.children.get(index - 1));
+			}
+		}
+		return found;
+	}
+
+	public WebElement findElementByXPath(String using) {
+		return first(findElementsByXPath(using), using);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("<%s %s>", tagName, attributes);
+	}
+
+	/**
+	 * @return the descendants of this element matching the given compound
+	 *         selectors, each of which must match an ancestor of the next
+	 */
+	List<WebElement> select(String... selectors) {
+		List<WebElement> found = new ArrayList<WebElement>();
+		collect(selectors, found);
+		return found;
+	}
+
+	private void collect(String[] selectors, List<WebElement> found) {
+		for (FakeWebElement child : children) {
+			if (child.matches(selectors[selectors.length - 1]) && child.hasAncestors(selectors, selectors.length - 2)) {
+				found.add(child);
+			}
+			child.collect(selectors, found);
+		}
+	}
+
+	private boolean hasAncestors(String[] selectors, int index) {
+		if (index < 0) {
+			return true;
+		}
+		for (FakeWebElement ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+			if (ancestor.matches(selectors[index])) {
+				return ancestor.hasAncestors(selectors, index - 1);
+			}
+		}
+		return false;
+	}
+
+	private boolean matches(String selector) {
+		String[] parts = selector.split("(?=[#.])");
+		for (String part : parts) {
+			if (part.length() == 0 || "*".equals(part)) {
+				continue;
+			}
+			if (part.startsWith("#")) {
+				if (!part.substring(1).equals(attributes.get("id"))) {
+					return false;
+				}
+			} else if (part.startsWith(".")) {
+				String classes = attributes.get("class");
+				if (classes == null || !(" " + classes + " ").contains(" " + part.substring(1) + " ")) {
+					return false;
+				}
+			} else if (!part.equalsIgnoreCase(tagName)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void appendText(StringBuilder sb) {
+		if (!displayed) {
+			return;
+		}
+		if (text.length() > 0) {
+			sb.append(text).append(' ');
+		}
+		for (FakeWebElement child : children) {
+			child.appendText(sb);
+		}
+	}
+
+	private static WebElement first(List<WebElement> elements, String using) {
+		if (elements.isEmpty()) {
+			throw new NoSuchElementException("No element found for " + using);
+		}
+		return elements.get(0);
+	}
+}
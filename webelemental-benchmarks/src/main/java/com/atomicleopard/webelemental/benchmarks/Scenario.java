@@ -0,0 +1,128 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.benchmarks;
+
+import static com.atomicleopard.webelemental.ElementMatchers.*;
+
+import static org.hamcrest.Matchers.startsWith;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.WebDriver;
+
+import com.atomicleopard.expressive.ETransformer;
+import com.atomicleopard.webelemental.Element;
+
+/**
+ * The operations measured by {@link ElementBenchmarks}, each run against a
+ * page built by {@link Browser#page(int, int, long, TimeUnit)}.
+ */
+public enum Scenario {
+	/**
+	 * A chain of finds from the document to every cell
+	 */
+	FIND {
+		@Override
+		public Object run(WebDriver driver) {
+			return new Element(driver, "table").find("tbody tr").find("td").size();
+		}
+	},
+	/**
+	 * The parents of every cell
+	 */
+	PARENT {
+		@Override
+		public Object run(WebDriver driver) {
+			return new Element(driver, "td").parent().size();
+		}
+	},
+	/**
+	 * Iterating over every row
+	 */
+	ITERATOR {
+		@Override
+		public Object run(WebDriver driver) {
+			int count = 0;
+			for (Element row : new Element(driver, "tr.row")) {
+				count += row == null ? 0 : 1;
+			}
+			return count;
+		}
+	},
+	/**
+	 * Reading the text of every cell with each()
+	 */
+	EACH {
+		@Override
+		public Object run(WebDriver driver) {
+			return new Element(driver, "td").each(new ETransformer<Element, String>() {
+				public String to(Element from) {
+					return from.text();
+				}
+			});
+		}
+	},
+	/**
+	 * Describing every row
+	 */
+	TO_STRING {
+		@Override
+		public Object run(WebDriver driver) {
+			return new Element(driver, "tr.row").toString();
+		}
+	},
+	/**
+	 * Evaluating the id, class and text matchers against the first row
+	 */
+	MATCHERS {
+		@Override
+		public Object run(WebDriver driver) {
+			Element row = new Element(driver, "tr.row");
+			return id("row-0").matches(row) && cssClass("row").matches(row) && text(startsWith("0-0")).matches(row);
+		}
+	},
+	/**
+	 * A chain of assertions made by an ElementMatcher
+	 */
+	MATCHER_CHAIN {
+		@Override
+		public Object run(WebDriver driver) {
+			return new Element(driver, "tr.row").verify().isPresent().hasId("row-0").hasAttribute("class", "row").hasText(startsWith("0-0")).isVisible();
+		}
+	},
+	/**
+	 * The same chain of assertions made as a batch
+	 */
+	BATCHED_MATCHER_CHAIN {
+		@Override
+		public Object run(WebDriver driver) {
+			return new Element(driver, "tr.row").verify().batch().isPresent().hasId("row-0").hasAttribute("class", "row").hasText(startsWith("0-0")).isVisible().assertAll();
+		}
+	};
+
+	/**
+	 * @param driver
+	 *            a driver serving a page built by
+	 *            {@link Browser#page(int, int, long, TimeUnit)}
+	 * @return a result of the operation, to be consumed by the benchmark
+	 */
+	public abstract Object run(WebDriver driver);
+}
@@ -0,0 +1,436 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.testkit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openqa.selenium.WebDriverException;
+
+import com.atomicleopard.webelemental.ElementScript;
+
+/**
+ * Java implementations of the scripts used by
+ * {@link com.atomicleopard.webelemental.Element}, registered with every
+ * {@link InMemoryWebDriver}. Each behaves as the javascript it replaces, see
+ * the scripts themselves for a description of their arguments and results.
+ */
+final class ElementScripts {
+	private ElementScripts() {
+	}
+
+	static void register(InMemoryWebDriver driver) {
+		driver.script(ElementScript.SNAPSHOT.source(), SNAPSHOT);
+		driver.script(ElementScript.DESCRIBE.source(), DESCRIBE);
+		driver.script(ElementScript.ROWS.source(), ROWS);
+		driver.script(ElementScript.TABLE.source(), TABLE);
+		driver.script(ElementScript.FILTER.source(), FILTER);
+		driver.script(ElementScript.DETACH.source(), DETACH);
+		driver.script(ElementScript.FIND.source(), FIND);
+		driver.script(ElementScript.CACHED_FIND.source(), CACHED_FIND);
+		driver.script(ElementScript.QUERY.source(), QUERY);
+		driver.script(ElementScript.TRAVERSE.source(), TRAVERSE);
+		driver.script(ElementScript.AWAIT_MUTATION.source(), AWAIT_MUTATION);
+		driver.script(ElementScript.FILL.source(), FILL);
+	}
+
+	static final Script SNAPSHOT = new Script() {
+		public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+			List<Object> result = new ArrayList<Object>();
+			for (InMemoryWebElement element : elements(arguments.get(0))) {
+				List<String> values = new ArrayList<String>();
+				for (Object name : (List<?>) arguments.get(1)) {
+					values.add(element.attribute(String.valueOf(name)));
+				}
+				result.add(Arrays.<Object> asList(element.node().tagName(), element.text(), element.displayed(), values));
+			}
+			return result;
+		}
+	};
+
+	static final Script DESCRIBE = new Script() {
+		public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+			List<Object> result = new ArrayList<Object>();
+			for (InMemoryWebElement element : elements(arguments.get(0))) {
+				List<String> values = new ArrayList<String>();
+				for (Object name : (List<?>) arguments.get(1)) {
+					values.add(element.attribute(String.valueOf(name)));
+				}
+				result.add(Arrays.<Object> asList(element.node().tagName(), values));
+			}
+			return result;
+		}
+	};
+
+	static final Script ROWS = new Script() {
+		public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+			List<Object> result = new ArrayList<Object>();
+			for (InMemoryWebElement row : elements(arguments.get(0))) {
+				List<Element> cells = new ArrayList<Element>();
+				for (Element cell : row.node().select(String.valueOf(arguments.get(1)))) {
+					if (cell != row.node()) {
+						cells.add(cell);
+					}
+				}
+				result.add(texts(driver, cells));
+			}
+			return result;
+		}
+	};
+
+	static final Script TABLE = new Script() {
+		public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+			List<String> header = null;
+			List<Object> rows = new ArrayList<Object>();
+			for (InMemoryWebElement table : elements(arguments.get(0))) {
+				List<String> last = null;
+				List<Element> tableRows = new ArrayList<Element>();
+				for (Element child : table.node().children()) {
+					tableRows.addAll("tr".equals(child.tagName()) ? Collections.singletonList(child) : children(child, "tr"));
+				}
+				for (int r = 0; r < tableRows.size(); r++) {
+					Element row = tableRows.get(r);
+					List<Element> cells = children(row, "td", "th");
+					if ("thead".equals(row.parent().tagName()) || (r == 0 && !cells.isEmpty() && children(row, "th").size() == cells.size())) {
+						last = texts(driver, cells);
+					} else {
+						rows.add(texts(driver, cells));
+					}
+				}
+				if (header == null) {
+					header = last;
+				}
+			}
+			return Arrays.<Object> asList(header, rows);
+		}
+	};
+
+	static final Script FILTER = new Script() {
+		public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+			List<?> predicate = (List<?>) arguments.get(1);
+			boolean keep = Boolean.TRUE.equals(arguments.get(2));
+			List<InMemoryWebElement> result = new ArrayList<InMemoryWebElement>();
+			for (InMemoryWebElement element : elements(arguments.get(0))) {
+				if (test(element, predicate) == keep) {
+					result.add(element);
+				}
+			}
+			return result;
+		}
+
+		private boolean test(InMemoryWebElement element, List<?> predicate) {
+			Object type = predicate.get(0);
+			if ("attr".equals(type)) {
+				String value = element.attribute(String.valueOf(predicate.get(1)));
+				return value == null ? predicate.get(2) == null : value.equals(predicate.get(2));
+			}
+			if ("text".equals(type)) {
+				return element.text().equals(predicate.get(1));
+			}
+			if ("class".equals(type)) {
+				return Arrays.asList(element.node().attr("class").trim().split("\\s+")).contains(predicate.get(1));
+			}
+			if ("visible".equals(type)) {
+				return element.displayed();
+			}
+			if ("hidden".equals(type)) {
+				return !element.displayed();
+			}
+			return false;
+		}
+	};
+
+	static final Script DETACH = new Script() {
+		public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+			List<String> result = new ArrayList<String>();
+			for (InMemoryWebElement element : elements(arguments.get(0))) {
+				Element copy = element.node().clone();
+				List<Element> originals = element.node().getAllElements();
+				List<Element> copies = copy.getAllElements();
+				for (int i = 0; i < originals.size(); i++) {
+					InMemoryWebElement original = new InMemoryWebElement(driver, originals.get(i));
+					if (!original.displayed()) {
+						copies.get(i).attr(ElementScript.HIDDEN_ATTRIBUTE, "");
+					}
+					if ("select".equals(original.node().tagName())) {
+						copies.get(i).attr("value", original.value());
+					}
+				}
+				result.add(copy.outerHtml());
+			}
+			return result;
+		}
+	};
+
+	static final Script FIND = new Script() {
+		public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+			List<Element> current = new ArrayList<Element>();
+			if (arguments.get(0) == null) {
+				current.add(driver.document());
+			} else {
+				current.addAll(nodes(elements(arguments.get(0))));
+			}
+			long lookups = 0;
+			for (Object selector : (List<?>) arguments.get(1)) {
+				List<Element> found = new ArrayList<Element>();
+				for (Element element : current) {
+					for (Element match : element.select(String.valueOf(selector))) {
+						if (match != element) {
+							found.add(match);
+						}
+					}
+					lookups++;
+				}
+				current = driver.documentOrder(found);
+			}
+			Object selected = Boolean.TRUE.equals(arguments.get(2)) ? Long.valueOf(current.size()) : driver.wrap(current);
+			return Arrays.<Object> asList(selected, lookups);
+		}
+	};
+
+	static final Script CACHED_FIND = new Script() {
+		public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+			String generation = String.valueOf(driver.generation());
+			if (arguments.get(0) != null) {
+				elements(arguments.get(0));
+			}
+			if (generation.equals(arguments.get(2))) {
+				return Arrays.<Object> asList(generation);
+			}
+			List<?> found = (List<?>) FIND.execute(driver, Arrays.asList(arguments.get(0), arguments.get(1), false));
+			return Arrays.<Object> asList(generation, found.get(0), found.get(1));
+		}
+	};
+
+	static final Script QUERY = new Script() {
+		public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+			List<Element> selected = new ArrayList<Element>();
+			if (arguments.get(0) == null) {
+				selected.add(driver.document());
+			} else {
+				selected.addAll(nodes(elements(arguments.get(0))));
+			}
+			long[] lookups = { 0 };
+			for (Object groups : (List<?>) arguments.get(1)) {
+				selected = query(driver, selected, (List<?>) groups, lookups);
+			}
+			Object result = Boolean.TRUE.equals(arguments.get(2)) ? Long.valueOf(selected.size()) : driver.wrap(selected);
+			return Arrays.<Object> asList(result, lookups[0]);
+		}
+
+		private List<Element> query(InMemoryWebDriver driver, List<Element> roots, List<?> groups, long[] lookups) {
+			List<Element> found = new ArrayList<Element>();
+			for (Object group : groups) {
+				List<Element> current = roots;
+				for (Object step : (List<?>) group) {
+					current = step(driver, current, (List<?>) step, lookups);
+				}
+				found.addAll(current);
+			}
+			return groups.size() > 1 ? driver.documentOrder(found) : found;
+		}
+
+		private List<Element> step(InMemoryWebDriver driver, List<Element> current, List<?> step, long[] lookups) {
+			String combinator = String.valueOf(step.get(0));
+			String css = String.valueOf(step.get(1));
+			List<Element> found = new ArrayList<Element>();
+			for (Element element : current) {
+				if ("+".equals(combinator) || "~".equals(combinator)) {
+					for (Element sibling = element.nextElementSibling(); sibling != null; sibling = "+".equals(combinator) ? null : sibling.nextElementSibling()) {
+						if (matches(sibling, css)) {
+							found.add(sibling);
+						}
+					}
+				} else {
+					for (Element match : element.select(css)) {
+						if (match != element && (!">".equals(combinator) || match.parent() == element)) {
+							found.add(match);
+						}
+					}
+				}
+				lookups[0]++;
+			}
+			found = driver.documentOrder(found);
+			for (Object filter : (List<?>) step.get(2)) {
+				found = filter(driver, found, (List<?>) filter, lookups);
+			}
+			return found;
+		}
+
+		private List<Element> filter(InMemoryWebDriver driver, List<Element> elements, List<?> filter, long[] lookups) {
+			Object type = filter.get(0);
+			if ("first".equals(type)) {
+				return elements.isEmpty() ? elements : elements.subList(0, 1);
+			}
+			if ("last".equals(type)) {
+				return elements.isEmpty() ? elements : elements.subList(elements.size() - 1, elements.size());
+			}
+			if ("eq".equals(type)) {
+				int index = ((Number) filter.get(1)).intValue();
+				int position = index < 0 ? elements.size() + index : index;
+				return position >= 0 && position < elements.size() ? elements.subList(position, position + 1) : Collections.<Element> emptyList();
+			}
+			List<Element> kept = new ArrayList<Element>();
+			for (Element element : elements) {
+				boolean keep = false;
+				if ("visible".equals(type)) {
+					keep = new InMemoryWebElement(driver, element).displayed();
+				} else if ("hidden".equals(type)) {
+					keep = !new InMemoryWebElement(driver, element).displayed();
+				} else if ("contains".equals(type)) {
+					keep = new InMemoryWebElement(driver, element).textContent().contains(String.valueOf(filter.get(1)));
+				} else if ("has".equals(type)) {
+					keep = !query(driver, Collections.singletonList(element), (List<?>) filter.get(1), lookups).isEmpty();
+				} else if ("is".equals(type)) {
+					keep = matches(element, String.valueOf(filter.get(1)));
+				}
+				if (keep) {
+					kept.add(element);
+				}
+			}
+			return kept;
+		}
+
+		private boolean matches(Element element, String css) {
+			Element scope = element.parent() == null ? element : element.parent();
+			for (Element match : scope.select(css)) {
+				if (match == element) {
+					return true;
+				}
+			}
+			return false;
+		}
+	};
+
+	static final Script TRAVERSE = new Script() {
+		public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+			String direction = String.valueOf(arguments.get(1));
+			Set<Element> matches = null;
+			if ("closest".equals(direction)) {
+				matches = Collections.newSetFromMap(new IdentityHashMap<Element, Boolean>());
+				matches.addAll(driver.document().select(String.valueOf(arguments.get(2))));
+			}
+			List<Element> found = new ArrayList<Element>();
+			for (Element element : nodes(elements(arguments.get(0)))) {
+				Element related = null;
+				if ("parent".equals(direction)) {
+					related = element.parent() instanceof Document ? null : element.parent();
+				} else if ("closest".equals(direction)) {
+					for (related = element; related != null && !matches.contains(related); related = related.parent()) {
+					}
+				} else if ("siblings".equals(direction)) {
+					found.addAll(element.siblingElements());
+				} else if ("next".equals(direction)) {
+					related = element.nextElementSibling();
+				} else if ("prev".equals(direction)) {
+					related = element.previousElementSibling();
+				}
+				if (related != null) {
+					found.add(related);
+				}
+			}
+			return driver.wrap(driver.documentOrder(found));
+		}
+	};
+
+	static final Script AWAIT_MUTATION = new Script() {
+		public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+			synchronized (driver) {
+				String generation = String.valueOf(driver.generation());
+				Object since = arguments.size() > 1 ? arguments.get(1) : null;
+				if (since == null || since.equals(generation)) {
+					driver.awaitChange(((Number) arguments.get(0)).longValue());
+				}
+				return String.valueOf(driver.generation());
+			}
+		}
+	};
+
+	static final Script FILL = new Script() {
+		public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+			List<?> selectors = (List<?>) arguments.get(1);
+			List<?> values = (List<?>) arguments.get(2);
+			for (InMemoryWebElement element : elements(arguments.get(0))) {
+				if (selectors == null) {
+					element.value(String.valueOf(values.get(0)));
+					continue;
+				}
+				for (int s = 0; s < selectors.size(); s++) {
+					for (Element field : element.node().select(String.valueOf(selectors.get(s)))) {
+						if (field != element.node()) {
+							new InMemoryWebElement(driver, field).value(String.valueOf(values.get(s)));
+						}
+					}
+				}
+			}
+			return null;
+		}
+	};
+
+	/**
+	 * @return the given script argument as a list of in-memory elements
+	 */
+	private static List<InMemoryWebElement> elements(Object argument) {
+		List<InMemoryWebElement> elements = new ArrayList<InMemoryWebElement>();
+		for (Object element : (List<?>) argument) {
+			if (!(element instanceof InMemoryWebElement)) {
+				throw new WebDriverException(String.format("%s does not belong to an in-memory driver", element));
+			}
+			InMemoryWebElement inMemory = (InMemoryWebElement) element;
+			inMemory.checkAttached();
+			elements.add(inMemory);
+		}
+		return elements;
+	}
+
+	private static List<String> texts(InMemoryWebDriver driver, List<Element> cells) {
+		List<String> texts = new ArrayList<String>(cells.size());
+		for (Element cell : cells) {
+			texts.add(new InMemoryWebElement(driver, cell).text());
+		}
+		return texts;
+	}
+
+	private static List<Element> children(Element element, String... tags) {
+		List<Element> children = new ArrayList<Element>();
+		for (Element child : element.children()) {
+			if (Arrays.asList(tags).contains(child.tagName())) {
+				children.add(child);
+			}
+		}
+		return children;
+	}
+
+	private static List<Element> nodes(List<InMemoryWebElement> elements) {
+		List<Element> nodes = new ArrayList<Element>(elements.size());
+		for (InMemoryWebElement element : elements) {
+			nodes.add(element.node());
+		}
+		return nodes;
+	}
+}
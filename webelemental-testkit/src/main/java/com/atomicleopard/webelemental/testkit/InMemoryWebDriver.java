@@ -0,0 +1,435 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.testkit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.FindsByClassName;
+import org.openqa.selenium.internal.FindsByCssSelector;
+import org.openqa.selenium.internal.FindsById;
+import org.openqa.selenium.internal.FindsByName;
+import org.openqa.selenium.internal.FindsByTagName;
+import org.openqa.selenium.internal.FindsByXPath;
+
+/**
+ * <p>
+ * A {@link WebDriver} serving pages parsed into memory, for running page
+ * objects and the tests using them without a browser.
+ * </p>
+ * <p>
+ * Elements are found with CSS selectors, XPath expressions, ids, class names,
+ * tag names and names. Clicking checkboxes, radio buttons and options, typing
+ * into fields and clearing them change the page as they would in a browser,
+ * although no events are fired and forms are never submitted. The page has no
+ * layout, so the location and size of elements are unsupported, and elements
+ * are displayed unless they, or one of their ancestors, are hidden by a
+ * 'hidden' attribute or an inline style.
+ * </p>
+ * <p>
+ * There is no javascript engine. Instead, {@link Script}s written in java are
+ * registered against the source of the scripts they replace, and executing
+ * any other script fails. The scripts used by
+ * {@link com.atomicleopard.webelemental.Element} are registered by default, so
+ * all of its operations are answered in a single command as they would be by
+ * a real browser.
+ * </p>
+ * <p>
+ * Every command sent to the driver or its elements is counted, see
+ * {@link #commands()}, and can be delayed by a simulated latency, see
+ * {@link #latency(long, TimeUnit)}.
+ * </p>
+ */
+public class InMemoryWebDriver implements WebDriver, JavascriptExecutor, FindsByCssSelector, FindsById, FindsByClassName, FindsByTagName, FindsByName, FindsByXPath {
+	private static final String BLANK = "about:blank";
+	/**
+	 * Latencies shorter than this are simulated by spinning, as parking the
+	 * thread is not precise enough
+	 */
+	private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final Map<String, String> pages = new HashMap<String, String>();
+	private final Map<String, Script> scripts = new HashMap<String, Script>();
+	private final AtomicLong commands = new AtomicLong();
+	private volatile long latencyNanos;
+	private volatile Document document;
+	private volatile String url = BLANK;
+	private long generation;
+	private XPaths xpaths;
+
+	/**
+	 * Creates a driver showing an empty page
+	 */
+	public InMemoryWebDriver() {
+		this("");
+	}
+
+	/**
+	 * @param html
+	 *            the html of the page shown by the driver
+	 */
+	public InMemoryWebDriver(String html) {
+		this.document = Jsoup.parse(html, BLANK);
+		ElementScripts.register(this);
+	}
+
+	/**
+	 * Registers a page to be shown when the given url is requested by
+	 * {@link #get(String)}.
+	 * 
+	 * @param url
+	 * @param html
+	 * @return this driver
+	 */
+	public InMemoryWebDriver page(String url, String html) {
+		synchronized (pages) {
+			pages.put(url, html);
+		}
+		return this;
+	}
+
+	/**
+	 * Replaces the current page with the given html, without changing the
+	 * current url. Elements found on the previous page become stale.
+	 * 
+	 * @param html
+	 * @return this driver
+	 */
+	public InMemoryWebDriver load(String html) {
+		document = Jsoup.parse(html, url);
+		changed();
+		return this;
+	}
+
+	/**
+	 * Delays every subsequent command by the given latency, simulating the
+	 * round trip to a remote browser.
+	 * 
+	 * @param latency
+	 * @param unit
+	 *            the unit of the given latency
+	 * @return this driver
+	 */
+	public InMemoryWebDriver latency(long latency, TimeUnit unit) {
+		this.latencyNanos = unit.toNanos(latency);
+		return this;
+	}
+
+	/**
+	 * Registers a java implementation of a script, run whenever the given
+	 * script source is executed by {@link #executeScript(String, Object...)}
+	 * or {@link #executeAsyncScript(String, Object...)}.
+	 * 
+	 * @param source
+	 *            the exact source of the script
+	 * @param script
+	 * @return this driver
+	 */
+	public InMemoryWebDriver script(String source, Script script) {
+		synchronized (scripts) {
+			scripts.put(source, script);
+		}
+		return this;
+	}
+
+	/**
+	 * @return the number of commands sent to this driver and its elements
+	 */
+	public long commands() {
+		return commands.get();
+	}
+
+	/**
+	 * Changes made to the returned document must be followed by a call to
+	 * {@link #changed()}.
+	 * 
+	 * @return the parsed document of the current page
+	 */
+	public Document document() {
+		return document;
+	}
+
+	/**
+	 * Signals that the current page has changed, waking any script waiting for
+	 * the page to change.
+	 */
+	public synchronized void changed() {
+		generation++;
+		xpaths = null;
+		notifyAll();
+	}
+
+	/**
+	 * @return the number of times the page has changed, or been replaced
+	 */
+	synchronized long generation() {
+		return generation;
+	}
+
+	/**
+	 * Blocks until the page changes or the given time has passed.
+	 * 
+	 * @param millis
+	 * @return true if the page changed
+	 */
+	public synchronized boolean awaitChange(long millis) {
+		long start = generation;
+		long end = System.currentTimeMillis() + millis;
+		try {
+			for (long remaining = millis; generation == start && remaining > 0; remaining = end - System.currentTimeMillis()) {
+				wait(remaining);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new WebDriverException("Interrupted while waiting for the page to change", e);
+		}
+		return generation != start;
+	}
+
+	public void get(String url) {
+		command();
+		String html;
+		synchronized (pages) {
+			html = pages.get(url);
+		}
+		if (html == null) {
+			throw new WebDriverException(String.format("No page is registered for the url '%s'", url));
+		}
+		this.url = url;
+		load(html);
+	}
+
+	public String getCurrentUrl() {
+		command();
+		return url;
+	}
+
+	public String getTitle() {
+		command();
+		return document.title();
+	}
+
+	public List<WebElement> findElements(By by) {
+		return by.findElements(this);
+	}
+
+	public WebElement findElement(By by) {
+		return by.findElement(this);
+	}
+
+	public String getPageSource() {
+		command();
+		return document.outerHtml();
+	}
+
+	public void close() {
+	}
+
+	public void quit() {
+	}
+
+	public Set<String> getWindowHandles() {
+		return Collections.singleton(getWindowHandle());
+	}
+
+	public String getWindowHandle() {
+		return "in-memory";
+	}
+
+	public TargetLocator switchTo() {
+		throw new UnsupportedOperationException("The in-memory driver only has a single window");
+	}
+
+	public Navigation navigate() {
+		throw new UnsupportedOperationException("The in-memory driver does not keep a history, use get(url) instead");
+	}
+
+	public Options manage() {
+		throw new UnsupportedOperationException("The in-memory driver has no cookies, timeouts or windows to manage");
+	}
+
+	public Object executeScript(String script, Object... args) {
+		command();
+		return script(script).execute(this, Arrays.asList(args));
+	}
+
+	/**
+	 * Asynchronous scripts are registered in the same way as synchronous
+	 * scripts, and return their result rather than passing it to a callback.
+	 */
+	public Object executeAsyncScript(String script, Object... args) {
+		command();
+		return script(script).execute(this, Arrays.asList(args));
+	}
+
+	public List<WebElement> findElementsByCssSelector(String using) {
+		return root().findElementsByCssSelector(using);
+	}
+
+	public WebElement findElementByCssSelector(String using) {
+		return root().findElementByCssSelector(using);
+	}
+
+	public List<WebElement> findElementsById(String using) {
+		return root().findElementsById(using);
+	}
+
+	public WebElement findElementById(String using) {
+		return root().findElementById(using);
+	}
+
+	public List<WebElement> findElementsByClassName(String using) {
+		return root().findElementsByClassName(using);
+	}
+
+	public WebElement findElementByClassName(String using) {
+		return root().findElementByClassName(using);
+	}
+
+	public List<WebElement> findElementsByTagName(String using) {
+		return root().findElementsByTagName(using);
+	}
+
+	public WebElement findElementByTagName(String using) {
+		return root().findElementByTagName(using);
+	}
+
+	public List<WebElement> findElementsByName(String using) {
+		return root().findElementsByName(using);
+	}
+
+	public WebElement findElementByName(String using) {
+		return root().findElementByName(using);
+	}
+
+	public List<WebElement> findElementsByXPath(String using) {
+		return root().findElementsByXPath(using);
+	}
+
+	public WebElement findElementByXPath(String using) {
+		return root().findElementByXPath(using);
+	}
+
+	/**
+	 * Counts a command, and waits for the simulated latency
+	 */
+	void command() {
+		commands.incrementAndGet();
+		long latency = latencyNanos;
+		if (latency <= 0) {
+			return;
+		}
+		if (latency < SPIN_NANOS) {
+			long end = System.nanoTime() + latency;
+			while (System.nanoTime() < end) {
+				// spin
+			}
+		} else {
+			LockSupport.parkNanos(latency);
+		}
+	}
+
+	/**
+	 * @return the XPath view of the current page, which is rebuilt after the
+	 *         page changes
+	 */
+	synchronized XPaths xpaths() {
+		if (xpaths == null || xpaths.document() != document) {
+			xpaths = new XPaths(document);
+		}
+		return xpaths;
+	}
+
+	/**
+	 * @return the given elements as {@link InMemoryWebElement}s of this driver
+	 */
+	List<InMemoryWebElement> wrap(List<Element> nodes) {
+		List<InMemoryWebElement> elements = new ArrayList<InMemoryWebElement>(nodes.size());
+		for (Element node : nodes) {
+			elements.add(new InMemoryWebElement(this, node));
+		}
+		return elements;
+	}
+
+	/**
+	 * @return the given elements in the order they appear in the current page,
+	 *         without duplicates
+	 */
+	List<Element> documentOrder(List<Element> nodes) {
+		final Map<Element, Integer> positions = new IdentityHashMap<Element, Integer>();
+		List<Element> all = document.getAllElements();
+		for (int i = 0; i < all.size(); i++) {
+			positions.put(all.get(i), i);
+		}
+		Map<Element, Boolean> seen = new IdentityHashMap<Element, Boolean>();
+		List<Element> unique = new ArrayList<Element>(nodes.size());
+		for (Element node : nodes) {
+			if (seen.put(node, Boolean.TRUE) == null) {
+				unique.add(node);
+			}
+		}
+		Collections.sort(unique, new Comparator<Element>() {
+			public int compare(Element a, Element b) {
+				return position(a) - position(b);
+			}
+
+			private int position(Element element) {
+				Integer position = positions.get(element);
+				return position == null ? Integer.MAX_VALUE : position;
+			}
+		});
+		return unique;
+	}
+
+	private InMemoryWebElement root() {
+		return new InMemoryWebElement(this, document);
+	}
+
+	private Script script(String source) {
+		Script script;
+		synchronized (scripts) {
+			script = scripts.get(source);
+		}
+		if (script == null) {
+			String start = source.length() > 60 ? source.substring(0, 60) + "..." : source;
+			throw new WebDriverException(String.format("The in-memory driver cannot run javascript, no Script is registered for '%s'", start));
+		}
+		return script;
+	}
+}
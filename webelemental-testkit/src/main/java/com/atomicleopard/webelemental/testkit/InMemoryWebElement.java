@@ -0,0 +1,524 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.testkit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.FindsByClassName;
+import org.openqa.selenium.internal.FindsByCssSelector;
+import org.openqa.selenium.internal.FindsById;
+import org.openqa.selenium.internal.FindsByName;
+import org.openqa.selenium.internal.FindsByTagName;
+import org.openqa.selenium.internal.FindsByXPath;
+import org.openqa.selenium.internal.WrapsDriver;
+
+/**
+ * <p>
+ * An element of a page shown by an {@link InMemoryWebDriver}, backed by an
+ * element of the parsed document.
+ * </p>
+ * <p>
+ * The element becomes stale, throwing a
+ * {@link StaleElementReferenceException} from every method, once it is removed
+ * from the page or the driver loads another page.
+ * </p>
+ */
+public class InMemoryWebElement implements WebElement, WrapsDriver, FindsByCssSelector, FindsById, FindsByClassName, FindsByTagName, FindsByName, FindsByXPath {
+	private static final List<String> BOOLEAN_ATTRIBUTES = Arrays.asList("checked", "selected", "disabled", "readonly", "multiple", "required", "autofocus", "hidden");
+	private static final List<String> HIDDEN_TAGS = Arrays.asList("head", "script", "style", "title", "meta", "link", "template", "noscript");
+	private static final List<String> FIELDS = Arrays.asList("input", "textarea", "select", "option", "button");
+
+	private final InMemoryWebDriver driver;
+	private final Element node;
+
+	InMemoryWebElement(InMemoryWebDriver driver, Element node) {
+		this.driver = driver;
+		this.node = node;
+	}
+
+	/**
+	 * @return the parsed element backing this element. Changes made to it
+	 *         must be followed by a call to {@link InMemoryWebDriver#changed()}.
+	 */
+	public Element node() {
+		return node;
+	}
+
+	public WebDriver getWrappedDriver() {
+		return driver;
+	}
+
+	/**
+	 * Toggles checkboxes and multiple select options, and selects radio
+	 * buttons and single select options. Clicking other elements has no effect.
+	 */
+	public void click() {
+		command();
+		if (!enabled()) {
+			return;
+		}
+		String tag = node.tagName();
+		String type = node.attr("type").toLowerCase();
+		if ("input".equals(tag) && "checkbox".equals(type)) {
+			toggle("checked");
+		} else if ("input".equals(tag) && "radio".equals(type)) {
+			Element form = ancestor("form");
+			for (Element radio : (form == null ? node.ownerDocument() : form).select("input[type=radio]")) {
+				if (radio.attr("name").equals(node.attr("name"))) {
+					radio.removeAttr("checked");
+				}
+			}
+			node.attr("checked", "checked");
+		} else if ("option".equals(tag)) {
+			Element select = ancestor("select");
+			if (select != null && select.hasAttr("multiple")) {
+				toggle("selected");
+			} else {
+				if (select != null) {
+					for (Element option : select.select("option")) {
+						option.removeAttr("selected");
+					}
+				}
+				node.attr("selected", "selected");
+			}
+		} else {
+			return;
+		}
+		driver.changed();
+	}
+
+	/**
+	 * Forms are never submitted, so this only checks the element is still on
+	 * the page.
+	 */
+	public void submit() {
+		command();
+	}
+
+	/**
+	 * Appends the given keys to the value of the element. Special keys, such
+	 * as {@link org.openqa.selenium.Keys#ENTER}, are ignored.
+	 */
+	public void sendKeys(CharSequence... keysToSend) {
+		command();
+		StringBuilder keys = new StringBuilder();
+		for (CharSequence sequence : keysToSend) {
+			for (int i = 0; i < sequence.length(); i++) {
+				char key = sequence.charAt(i);
+				if (key < '\uE000' || key > '\uF8FF') {
+					keys.append(key);
+				}
+			}
+		}
+		value(value() + keys);
+	}
+
+	public void clear() {
+		command();
+		value("");
+	}
+
+	public String getTagName() {
+		command();
+		return node.tagName();
+	}
+
+	/**
+	 * As with a real driver, boolean attributes are returned as "true" or null,
+	 * the value of a field is its current value, and the href of a link or src
+	 * of an image is resolved against the current url.
+	 */
+	public String getAttribute(String name) {
+		command();
+		return attribute(name);
+	}
+
+	public boolean isSelected() {
+		command();
+		return node.hasAttr("checked") || node.hasAttr("selected");
+	}
+
+	public boolean isEnabled() {
+		command();
+		return enabled();
+	}
+
+	public String getText() {
+		command();
+		return text();
+	}
+
+	public List<WebElement> findElements(By by) {
+		return by.findElements(this);
+	}
+
+	public WebElement findElement(By by) {
+		return by.findElement(this);
+	}
+
+	public boolean isDisplayed() {
+		command();
+		return displayed();
+	}
+
+	public Point getLocation() {
+		throw new UnsupportedOperationException("Pages shown by the in-memory driver have no layout, getLocation() is not supported");
+	}
+
+	public Dimension getSize() {
+		throw new UnsupportedOperationException("Pages shown by the in-memory driver have no layout, getSize() is not supported");
+	}
+
+	/**
+	 * @return the value of the given property in the inline style of this
+	 *         element, or an empty string as styles are not computed
+	 */
+	public String getCssValue(String propertyName) {
+		command();
+		return style(node, propertyName);
+	}
+
+	public List<WebElement> findElementsByCssSelector(String using) {
+		command();
+		return found(node.select(using));
+	}
+
+	public WebElement findElementByCssSelector(String using) {
+		return first(findElementsByCssSelector(using), "css selector", using);
+	}
+
+	public List<WebElement> findElementsById(String using) {
+		command();
+		return found(node.getElementsByAttributeValue("id", using));
+	}
+
+	public WebElement findElementById(String using) {
+		return first(findElementsById(using), "id", using);
+	}
+
+	public List<WebElement> findElementsByClassName(String using) {
+		command();
+		return found(node.getElementsByClass(using));
+	}
+
+	public WebElement findElementByClassName(String using) {
+		return first(findElementsByClassName(using), "class name", using);
+	}
+
+	public List<WebElement> findElementsByTagName(String using) {
+		command();
+		return found(node.getElementsByTag(using));
+	}
+
+	public WebElement findElementByTagName(String using) {
+		return first(findElementsByTagName(using), "tag name", using);
+	}
+
+	public List<WebElement> findElementsByName(String using) {
+		command();
+		return found(node.getElementsByAttributeValue("name", using));
+	}
+
+	public WebElement findElementByName(String using) {
+		return first(findElementsByName(using), "name", using);
+	}
+
+	public List<WebElement> findElementsByXPath(String using) {
+		command();
+		return new ArrayList<WebElement>(driver.wrap(driver.xpaths().select(node, using)));
+	}
+
+	public WebElement findElementByXPath(String using) {
+		return first(findElementsByXPath(using), "xpath", using);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof InMemoryWebElement && ((InMemoryWebElement) obj).node == node;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(node);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("In-memory <%s>", node.tagName());
+	}
+
+	/**
+	 * Checks this element is still on the page, and counts a command against
+	 * the driver
+	 */
+	void command() {
+		checkAttached();
+		driver.command();
+	}
+
+	/**
+	 * @throws StaleElementReferenceException
+	 *             if this element is no longer on the page
+	 */
+	void checkAttached() {
+		Element root = node;
+		while (root.parent() != null) {
+			root = root.parent();
+		}
+		if (root != driver.document()) {
+			throw new StaleElementReferenceException(String.format("%s is no longer on the page", this));
+		}
+	}
+
+	/**
+	 * @return the attribute of this element as returned by
+	 *         {@link #getAttribute(String)}, which the scripts used by
+	 *         {@link com.atomicleopard.webelemental.Element} also return
+	 */
+	String attribute(String name) {
+		String attribute = name.toLowerCase();
+		String tag = node.tagName();
+		if (BOOLEAN_ATTRIBUTES.contains(attribute)) {
+			return node.hasAttr(attribute) ? "true" : null;
+		}
+		if ("value".equals(attribute) && FIELDS.contains(tag)) {
+			return value();
+		}
+		if ("outerhtml".equals(attribute)) {
+			return node.outerHtml();
+		}
+		if ("innerhtml".equals(attribute)) {
+			return node.html();
+		}
+		if ("textcontent".equals(attribute)) {
+			return textContent();
+		}
+		if (node.hasAttr(attribute) && (("a".equals(tag) && "href".equals(attribute)) || ("img".equals(tag) && "src".equals(attribute)))) {
+			String url = node.absUrl(attribute);
+			return url.length() == 0 ? node.attr(attribute) : url;
+		}
+		return node.hasAttr(attribute) ? node.attr(attribute) : null;
+	}
+
+	/**
+	 * @return the text of this element and all its descendants as the DOM's
+	 *         textContent property returns it, regardless of visibility and
+	 *         with whitespace preserved
+	 */
+	String textContent() {
+		StringBuilder text = new StringBuilder();
+		appendTextContent(node, text);
+		return text.toString();
+	}
+
+	private static void appendTextContent(Element element, StringBuilder text) {
+		for (Node child : element.childNodes()) {
+			if (child instanceof TextNode) {
+				text.append(((TextNode) child).getWholeText());
+			} else if (child instanceof DataNode) {
+				text.append(((DataNode) child).getWholeData());
+			} else if (child instanceof Element) {
+				appendTextContent((Element) child, text);
+			}
+		}
+	}
+
+	/**
+	 * @return the current value of this field
+	 */
+	String value() {
+		String tag = node.tagName();
+		if ("textarea".equals(tag)) {
+			return node.text();
+		}
+		if ("select".equals(tag)) {
+			Element selected = node.select("option[selected]").first();
+			selected = selected == null ? node.select("option").first() : selected;
+			return selected == null ? "" : new InMemoryWebElement(driver, selected).value();
+		}
+		if ("option".equals(tag) && !node.hasAttr("value")) {
+			return node.text();
+		}
+		return node.attr("value");
+	}
+
+	/**
+	 * Assigns the value of this field, or the text of any other element
+	 */
+	void value(String value) {
+		String tag = node.tagName();
+		if ("textarea".equals(tag)) {
+			node.text(value);
+		} else if ("select".equals(tag)) {
+			for (Element option : node.select("option")) {
+				option.removeAttr("selected");
+				if (new InMemoryWebElement(driver, option).value().equals(value)) {
+					option.attr("selected", "selected");
+				}
+			}
+		} else if (FIELDS.contains(tag)) {
+			node.attr("value", value);
+		} else {
+			node.text(value);
+		}
+		driver.changed();
+	}
+
+	boolean enabled() {
+		return !node.hasAttr("disabled");
+	}
+
+	/**
+	 * @return true if neither this element nor any of its ancestors are hidden
+	 */
+	boolean displayed() {
+		for (Element element = node; element != null && !(element instanceof Document); element = element.parent()) {
+			if (hidden(element)) {
+				return false;
+			}
+			String visibility = style(element, "visibility");
+			if (!visibility.isEmpty()) {
+				return !"hidden".equals(visibility) && !"collapse".equals(visibility) && !hiddenAncestor(element.parent());
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the text of this element and its displayed descendants, with
+	 *         line breaks between block elements, or an empty string if this
+	 *         element is not displayed
+	 */
+	String text() {
+		if (!displayed()) {
+			return "";
+		}
+		StringBuilder text = new StringBuilder();
+		appendText(node, text);
+		return text.toString().replaceAll("[ \\t\\x0B\\f\\r]*\\n[ \\t\\x0B\\f\\r\\n]*", "\n").replaceAll("  +", " ").trim();
+	}
+
+	private void appendText(Element element, StringBuilder text) {
+		for (Node child : element.childNodes()) {
+			if (child instanceof TextNode) {
+				String childText = ((TextNode) child).getWholeText().replaceAll("\\s+", " ");
+				if (childText.startsWith(" ") && (text.length() == 0 || Character.isWhitespace(text.charAt(text.length() - 1)))) {
+					childText = childText.substring(1);
+				}
+				text.append(childText);
+			} else if (child instanceof Element && !hidden((Element) child) && !"hidden".equals(style((Element) child, "visibility"))) {
+				Element childElement = (Element) child;
+				String tag = childElement.tagName();
+				if ("td".equals(tag) || "th".equals(tag)) {
+					text.append(' ');
+				}
+				boolean block = !"td".equals(tag) && !"th".equals(tag) && (childElement.isBlock() || "br".equals(tag));
+				if (block) {
+					text.append('\n');
+				}
+				appendText(childElement, text);
+				if (block) {
+					text.append('\n');
+				}
+			}
+		}
+	}
+
+	private void toggle(String attribute) {
+		if (node.hasAttr(attribute)) {
+			node.removeAttr(attribute);
+		} else {
+			node.attr(attribute, attribute);
+		}
+	}
+
+	private Element ancestor(String tag) {
+		for (Element element = node.parent(); element != null; element = element.parent()) {
+			if (tag.equals(element.tagName())) {
+				return element;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Wraps the given descendants, dropping this element itself as an element
+	 * is never found within itself
+	 */
+	private List<WebElement> found(List<Element> elements) {
+		List<WebElement> result = new ArrayList<WebElement>(elements.size());
+		for (Element element : elements) {
+			if (element != node) {
+				result.add(new InMemoryWebElement(driver, element));
+			}
+		}
+		return result;
+	}
+
+	private static boolean hiddenAncestor(Element element) {
+		for (; element != null && !(element instanceof Document); element = element.parent()) {
+			if (hidden(element)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the given element is not rendered, regardless of its
+	 *         ancestors
+	 */
+	private static boolean hidden(Element element) {
+		return HIDDEN_TAGS.contains(element.tagName()) || element.hasAttr("hidden") || "none".equals(style(element, "display"))
+				|| ("input".equals(element.tagName()) && "hidden".equalsIgnoreCase(element.attr("type")));
+	}
+
+	private static String style(Element element, String property) {
+		for (String declaration : element.attr("style").split(";")) {
+			int colon = declaration.indexOf(':');
+			if (colon > 0 && declaration.substring(0, colon).trim().equalsIgnoreCase(property)) {
+				return declaration.substring(colon + 1).trim().toLowerCase();
+			}
+		}
+		return "";
+	}
+
+	private static WebElement first(List<WebElement> elements, String strategy, String using) {
+		if (elements.isEmpty()) {
+			throw new NoSuchElementException(String.format("No element found by %s '%s'", strategy, using));
+		}
+		return elements.get(0);
+	}
+}
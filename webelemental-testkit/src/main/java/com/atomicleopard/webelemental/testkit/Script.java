@@ -0,0 +1,42 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.testkit;
+
+import java.util.List;
+
+/**
+ * A java implementation of a script, registered with an
+ * {@link InMemoryWebDriver} by {@link InMemoryWebDriver#script(String, Script)}
+ * and run in place of the javascript source it was registered for.
+ */
+public interface Script {
+	/**
+	 * @param driver
+	 *            the driver executing the script
+	 * @param arguments
+	 *            the arguments passed to the script, with elements given as
+	 *            {@link InMemoryWebElement}s
+	 * @return the result of the script. As with a real driver, numbers should
+	 *         be returned as longs or doubles and elements as
+	 *         {@link InMemoryWebElement}s.
+	 */
+	Object execute(InMemoryWebDriver driver, List<Object> arguments);
+}
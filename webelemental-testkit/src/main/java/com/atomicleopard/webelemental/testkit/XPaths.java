@@ -0,0 +1,125 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.testkit;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.openqa.selenium.InvalidSelectorException;
+import org.openqa.selenium.WebDriverException;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.NodeList;
+
+/**
+ * Evaluates XPath expressions against a parsed page, by way of a copy of the
+ * page as a W3C document which the XPath implementation of the JDK can
+ * query.
+ */
+final class XPaths {
+	private final Document document;
+	private final org.w3c.dom.Document copy;
+	private final Map<Element, org.w3c.dom.Node> copies = new IdentityHashMap<Element, org.w3c.dom.Node>();
+	private final Map<org.w3c.dom.Node, Element> originals = new IdentityHashMap<org.w3c.dom.Node, Element>();
+
+	XPaths(Document document) {
+		this.document = document;
+		try {
+			this.copy = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		} catch (ParserConfigurationException e) {
+			throw new WebDriverException("XPath expressions cannot be evaluated, no XML parser is configured", e);
+		}
+		copies.put(document, copy);
+		originals.put(copy, document);
+		copyChildren(document, copy);
+	}
+
+	Document document() {
+		return document;
+	}
+
+	/**
+	 * @param context
+	 *            the element the expression is evaluated from
+	 * @param expression
+	 * @return the elements selected by the given expression, in document order
+	 */
+	List<Element> select(Element context, String expression) {
+		org.w3c.dom.Node node = copies.get(context);
+		if (node == null) {
+			throw new WebDriverException(String.format("The element <%s> is not part of the current page", context.tagName()));
+		}
+		NodeList nodes;
+		try {
+			nodes = (NodeList) XPathFactory.newInstance().newXPath().evaluate(expression, node, XPathConstants.NODESET);
+		} catch (XPathExpressionException e) {
+			throw new InvalidSelectorException(String.format("The xpath '%s' is not a valid expression selecting elements", expression), e);
+		}
+		List<Element> elements = new ArrayList<Element>(nodes.getLength());
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Element element = originals.get(nodes.item(i));
+			if (element != null && element != document) {
+				elements.add(element);
+			}
+		}
+		return elements;
+	}
+
+	private void copyChildren(Element element, org.w3c.dom.Node parent) {
+		for (Node child : element.childNodes()) {
+			if (child instanceof Element) {
+				Element childElement = (Element) child;
+				org.w3c.dom.Element childCopy;
+				try {
+					childCopy = copy.createElement(childElement.tagName());
+				} catch (DOMException e) {
+					// not a valid xml name, the element and its children cannot be reached by an xpath
+					continue;
+				}
+				for (Attribute attribute : childElement.attributes()) {
+					try {
+						childCopy.setAttribute(attribute.getKey(), attribute.getValue());
+					} catch (DOMException e) {
+						// not a valid xml name, the attribute cannot be reached by an xpath
+					}
+				}
+				parent.appendChild(childCopy);
+				copies.put(childElement, childCopy);
+				originals.put(childCopy, childElement);
+				copyChildren(childElement, childCopy);
+			} else if (child instanceof TextNode) {
+				parent.appendChild(copy.createTextNode(((TextNode) child).getWholeText()));
+			}
+		}
+	}
+}
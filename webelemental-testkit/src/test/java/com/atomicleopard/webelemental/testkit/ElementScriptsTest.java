@@ -0,0 +1,265 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.testkit;
+
+import static com.atomicleopard.webelemental.ElementMatchers.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+import com.atomicleopard.webelemental.Element;
+import com.atomicleopard.webelemental.ElementScript;
+import com.atomicleopard.webelemental.ElementSnapshot;
+
+/**
+ * Runs {@link Element} against an {@link InMemoryWebDriver}, checking each
+ * operation is answered by the java implementation of its script in a single
+ * command.
+ */
+public class ElementScriptsTest {
+	private InMemoryWebDriver driver = new InMemoryWebDriver("<table id='people'><tbody>"
+			+ "<tr id='anthony' class='row odd'><td class='name'>Anthony</td><td class='age'>31</td></tr>"
+			+ "<tr id='bob' class='row'><td class='name'>Bob</td><td class='age'>25</td></tr>"
+			+ "<tr id='carl' class='row odd' style='display: none'><td class='name'>Carl</td><td class='age'>40</td></tr>"
+			+ "</tbody></table>"
+			+ "<form id='person'><input name='first'><input name='last'><textarea name='notes'></textarea></form>");
+
+	@Test
+	public void shouldFindAChainOfSelectorsInOneCommand() {
+		Element cells = new Element(driver, "#people").find("tr").find("td.name");
+		long commands = driver.commands();
+		assertThat(cells.size(), is(3));
+		assertThat(driver.commands() - commands, is(1L));
+	}
+
+	@Test
+	public void shouldEvaluateJQueryPseudoClassesInOneCommand() {
+		long commands = driver.commands();
+		assertThat(new Element(driver, "tr:visible").size(), is(2));
+		assertThat(new Element(driver, "tr:hidden").id(), is("carl"));
+		assertThat(new Element(driver, "tr:eq(-2)").id(), is("bob"));
+		assertThat(new Element(driver, "#people").find("tr:visible:last").id(), is("bob"));
+		assertThat(new Element(driver, "tr:has(td:contains(Bob))").id(), is("bob"));
+		assertThat(new Element(driver, "tr:first + tr").id(), is("bob"));
+		assertThat(new Element(driver, "tr:first > td.age").text(), is("31"));
+		assertThat(new Element(driver, "td:contains(Anthony), td:contains(Bob)").size(), is(2));
+		assertThat(new Element(driver, "tr.odd:last").id(), is("carl"));
+		assertThat(driver.commands() - commands, is(16L));
+	}
+
+	@Test
+	public void shouldReuseCachedLookupsUntilThePageChanges() {
+		Element.setSelectorCacheSize(8);
+		try {
+			long commands = driver.commands();
+			assertThat(new Element(driver, "tr").get(1).id(), is("bob"));
+			assertThat(new Element(driver, "tr").get(1).id(), is("bob"));
+			assertThat(driver.commands() - commands, is(4L));
+
+			driver.document().getElementById("bob").attr("id", "robert");
+			driver.changed();
+			assertThat(new Element(driver, "tr").get(1).id(), is("robert"));
+
+			driver.load("<table><tr id='dave'></tr></table>");
+			assertThat(new Element(driver, "tr").first().id(), is("dave"));
+		} finally {
+			Element.setSelectorCacheSize(0);
+		}
+	}
+
+	@Test
+	public void shouldSnapshotAllElementsInOneCommand() {
+		long commands = driver.commands();
+		ElementSnapshot snapshot = new Element(driver, "tr").snapshot("id", "class");
+		assertThat(snapshot.attrs("id"), is(Arrays.asList("anthony", "bob", "carl")));
+		assertThat(snapshot.texts(), is(Arrays.asList("Anthony 31", "Bob 25", "")));
+		assertThat(snapshot.isVisible(2), is(false));
+		assertThat(driver.commands() - commands, is(2L));
+	}
+
+	@Test
+	public void shouldSnapshotAttributesAsTheDriverReturnsThem() {
+		driver.page("http://localhost/links/", "<input id='agree' type='checkbox' checked><input id='name' value='Anthony' disabled>"
+				+ "<a id='home' href='../home'>Home</a><img id='logo' src='logo.png'>");
+		driver.get("http://localhost/links/");
+		String[][] attributes = { { "agree", "checked" }, { "agree", "disabled" }, { "name", "disabled" }, { "name", "value" }, { "home", "href" }, { "logo", "src" } };
+		for (String[] attribute : attributes) {
+			Element element = new Element(driver, "#" + attribute[0]);
+			assertThat(element.snapshot(attribute[1]).attr(attribute[1]), is(element.attr(attribute[1])));
+		}
+		assertThat(new Element(driver, "#agree").snapshot("checked").attr("checked"), is("true"));
+		assertThat(new Element(driver, "#home").snapshot("href").attr("href"), is("http://localhost/home"));
+	}
+
+	@Test
+	public void shouldFilterAndVerifyAttributesInScriptsAsEachElementWouldBe() {
+		driver.load("<input id='agree' type='checkbox' checked><input id='subscribe' type='checkbox'><input id='name' disabled>");
+		new Element(driver, "#agree").click();
+		new Element(driver, "#subscribe").click();
+		Element inputs = new Element(driver, "input");
+		List<String> expected = new ArrayList<String>();
+		for (WebElement input : driver.findElements(By.tagName("input"))) {
+			if (attr("checked", "true").matches(new Element(input))) {
+				expected.add(input.getAttribute("id"));
+			}
+		}
+		assertThat(expected, is(Arrays.asList("subscribe")));
+		assertThat(inputs.filter(attr("checked", "true")).snapshot("id").attrs("id"), is(expected));
+		assertThat(inputs.filter(attr("disabled", "true")).id(), is("name"));
+		new Element(driver, "#subscribe").verify().batch().hasAttribute("checked", "true").hasId("subscribe").assertAll();
+		try {
+			new Element(driver, "#agree").verify().batch().hasAttribute("checked", "true").assertAll();
+			fail("Expected the unticked checkbox not to be checked");
+		} catch (AssertionError e) {
+			assertThat(e.getMessage(), containsString("got: null"));
+		}
+	}
+
+	@Test
+	public void shouldDescribeAllElementsAfterFindingThem() {
+		long commands = driver.commands();
+		assertThat(new Element(driver, "tr").toString(), is("<tr id='anthony' class='row odd'/>, <tr id='bob' class='row'/>, <tr id='carl' class='row odd'/>"));
+		assertThat(driver.commands() - commands, is(2L));
+	}
+
+	@Test
+	public void shouldReadTablesAndRowsInOneCommand() {
+		Element table = new Element(driver, "#people");
+		long commands = driver.commands();
+		assertThat(table.table(), is(Arrays.<List<String>> asList(Arrays.asList("Anthony", "31"), Arrays.asList("Bob", "25"), Arrays.asList("", ""))));
+		assertThat(driver.commands() - commands, is(2L));
+		assertThat(new Element(driver, "tr.odd").rows("td.name"), is(Arrays.<List<String>> asList(Arrays.asList("Anthony"), Arrays.asList(""))));
+	}
+
+	@Test
+	public void shouldKeyTableRowsByHeader() {
+		InMemoryWebDriver driver = new InMemoryWebDriver("<table><thead><tr><th>Name</th><th>Age</th></tr></thead><tbody><tr><td>Anthony</td><td>31</td></tr></tbody></table>");
+		List<Map<String, String>> rows = new Element(driver, "table").tableByHeader();
+		assertThat(rows.size(), is(1));
+		assertThat(rows.get(0).get("Name"), is("Anthony"));
+		assertThat(rows.get(0).get("Age"), is("31"));
+	}
+
+	@Test
+	public void shouldTraverseAllElementsInOneCommand() {
+		Element names = new Element(driver, "td.name");
+		assertThat(names.parent().size(), is(3));
+		assertThat(names.closest("table").id(), is("people"));
+		assertThat(names.next().first().text(), is("31"));
+		assertThat(new Element(driver, "td.age").prev().last().attr("class"), is("name"));
+		assertThat(new Element(driver, "#bob").siblings().size(), is(2));
+	}
+
+	@Test
+	public void shouldFilterElements() {
+		assertThat(new Element(driver, "tr").filter(cssClass("odd")).size(), is(2));
+		assertThat(new Element(driver, "tr").filter(visible()).size(), is(2));
+		assertThat(new Element(driver, "tr").not(id("bob")).size(), is(2));
+		assertThat(new Element(driver, "td.name").filter(text("Bob")).size(), is(1));
+	}
+
+	@Test
+	public void shouldFillFields() {
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		values.put("[name=first]", "Anthony");
+		values.put("[name=notes]", "Likes tables");
+		long commands = driver.commands();
+		Element form = new Element(driver, "#person").fill(values);
+		assertThat(driver.commands() - commands, is(2L));
+		assertThat(form.find("[name=first]").val(), is("Anthony"));
+		assertThat(form.find("[name=notes]").val(), is("Likes tables"));
+		new Element(driver, "input").fill("Smith");
+		assertThat(new Element(driver, "[name=last]").val(), is("Smith"));
+	}
+
+	@Test
+	public void shouldDetachElements() {
+		Element detached = new Element(driver, "tr").detach();
+		long commands = driver.commands();
+		assertThat(detached.find("td.name").size(), is(3));
+		assertThat(detached.last().isVisible(), is(false));
+		assertThat(detached.first().find(".age").text(), is("31"));
+		assertThat(driver.commands(), is(commands));
+	}
+
+	@Test
+	public void shouldVerifyElements() {
+		new Element(driver, "#bob").verify().isPresent().hasId("bob").hasText("Bob 25").isVisible();
+		new Element(driver, "#carl").verify().isNotVisible();
+	}
+
+	@Test
+	public void shouldVerifyAChangeMadeWhileWaiting() {
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					return;
+				}
+				new Element(driver, "[name=first]").val("Changed");
+			}
+		}.start();
+		new Element(driver, "[name=first]").verify().within(5, TimeUnit.SECONDS).hasValue("Changed");
+	}
+
+	@Test
+	public void shouldNotWaitForAChangeWhenThePageChangedSinceTheGivenGeneration() {
+		String generation = (String) ElementScripts.AWAIT_MUTATION.execute(driver, Arrays.<Object> asList(1L, null));
+		new Element(driver, "[name=first]").val("Changed");
+		long start = System.currentTimeMillis();
+		Object current = ElementScripts.AWAIT_MUTATION.execute(driver, Arrays.<Object> asList(5000L, generation));
+		assertThat(System.currentTimeMillis() - start < 1000, is(true));
+		assertThat(current, is(not((Object) generation)));
+	}
+
+	@Test
+	public void shouldMatchContainsAgainstTheTextContentIncludingHiddenText() {
+		assertThat(new Element(driver, "tr:contains(Carl)").id(), is("carl"));
+		assertThat(driver.findElement(By.id("carl")).getAttribute("textContent"), is("Carl40"));
+		assertThat(driver.findElement(By.id("carl")).getText(), is(""));
+	}
+
+	@Test
+	public void shouldRegisterAScriptForEveryElementScript() {
+		for (ElementScript script : ElementScript.values()) {
+			try {
+				driver.executeScript(script.source());
+			} catch (WebDriverException e) {
+				assertThat(script.name(), e.getMessage(), not(containsString("no Script is registered")));
+			} catch (RuntimeException e) {
+				// registered, but the arguments were missing
+			}
+		}
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ *  Copyright (c) 2011 Nicholas Okunew
+ *  All rights reserved.
+ *  
+ *  This file is part of the com.atomicleopard.webelemental library
+ *  
+ *  The com.atomicleopard.webelemental library is free software: you 
+ *  can redistribute it and/or modify it under the terms of the GNU
+ *  Lesser General Public License as published by the Free Software Foundation, 
+ *  either version 3 of the License, or (at your option) any later version.
+ *  
+ *  The com.atomicleopard.webelemental library is distributed in the hope
+ *  that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with the com.atomicleopard.webelemental library.  If not, see 
+ *  http://www.gnu.org/licenses/lgpl-3.0.html.
+ */
+package com.atomicleopard.webelemental.testkit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.InvalidSelectorException;
+import org.openqa.selenium.Keys;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+public class InMemoryWebDriverTest {
+	private InMemoryWebDriver driver = new InMemoryWebDriver("<html><head><title>People</title></head><body>"
+			+ "<table id='people'><tbody>"
+			+ "<tr class='row odd'><td class='name'>Anthony</td><td>Smith <span style='display: none'>(hidden)</span></td></tr>"
+			+ "<tr class='row'><td class='name'>Bob</td><td>Jones</td></tr>"
+			+ "</tbody></table>"
+			+ "<form><input name='first' value='Ann'><textarea name='notes'>None</textarea>"
+			+ "<input type='checkbox' name='subscribe'><input type='radio' name='plan' value='a' checked><input type='radio' name='plan' value='b'>"
+			+ "<select name='size'><option value='s'>Small</option><option value='l'>Large</option></select>"
+			+ "<input type='hidden' name='token' value='1'><input name='locked' disabled></form>"
+			+ "<div hidden><p>Gone</p></div>"
+			+ "</body></html>");
+
+	@Test
+	public void shouldFindElementsByEachStrategy() {
+		assertThat(driver.findElements(By.cssSelector("tr.row")).size(), is(2));
+		assertThat(driver.findElements(By.className("name")).size(), is(2));
+		assertThat(driver.findElements(By.tagName("td")).size(), is(4));
+		assertThat(driver.findElements(By.name("first")).size(), is(1));
+		assertThat(driver.findElement(By.id("people")).getTagName(), is("table"));
+		assertThat(driver.findElement(By.xpath("//tr[2]/td[1]")).getText(), is("Bob"));
+	}
+
+	@Test
+	public void shouldFindDescendantsOfAnElementExcludingItself() {
+		WebElement table = driver.findElement(By.id("people"));
+		assertThat(table.findElements(By.cssSelector("table")).size(), is(0));
+		assertThat(table.findElements(By.cssSelector("td.name")).size(), is(2));
+		assertThat(table.findElements(By.xpath(".//td[@class='name']")).size(), is(2));
+	}
+
+	@Test
+	public void shouldMoveBetweenRelatedElementsByXPath() {
+		WebElement cell = driver.findElements(By.tagName("td")).get(1);
+		assertThat(cell.findElement(By.xpath("..")).getAttribute("class"), is("row odd"));
+		assertThat(cell.findElement(By.xpath("preceding-sibling::*[1]")).getText(), is("Anthony"));
+		assertThat(cell.findElements(By.xpath("ancestor-or-self::*")).size(), is(6));
+		assertThat(cell.findElement(By.xpath("/*")).getTagName(), is("html"));
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void shouldFailToFindAMissingElement() {
+		driver.findElement(By.cssSelector("ul"));
+	}
+
+	@Test(expected = InvalidSelectorException.class)
+	public void shouldFailToFindElementsByAnInvalidXPath() {
+		driver.findElements(By.xpath("//tr["));
+	}
+
+	@Test
+	public void shouldReadTheTextOfDisplayedElements() {
+		assertThat(driver.getTitle(), is("People"));
+		assertThat(driver.findElements(By.tagName("tr")).get(0).getText(), is("Anthony Smith"));
+		assertThat(driver.findElement(By.tagName("p")).getText(), is(""));
+		assertThat(driver.findElement(By.tagName("p")).isDisplayed(), is(false));
+		assertThat(driver.findElement(By.name("token")).isDisplayed(), is(false));
+		assertThat(driver.findElement(By.name("first")).isDisplayed(), is(true));
+	}
+
+	@Test
+	public void shouldReadAttributesAsARealDriverWould() {
+		assertThat(driver.findElement(By.name("first")).getAttribute("value"), is("Ann"));
+		assertThat(driver.findElement(By.name("notes")).getAttribute("value"), is("None"));
+		assertThat(driver.findElement(By.name("size")).getAttribute("value"), is("s"));
+		assertThat(driver.findElement(By.name("locked")).getAttribute("disabled"), is("true"));
+		assertThat(driver.findElement(By.name("locked")).isEnabled(), is(false));
+		assertThat(driver.findElement(By.name("first")).getAttribute("disabled"), is(nullValue()));
+		assertThat(driver.findElement(By.name("first")).getAttribute("title"), is(nullValue()));
+		assertThat(driver.findElement(By.tagName("span")).getCssValue("display"), is("none"));
+	}
+
+	@Test
+	public void shouldTypeIntoAndClearFields() {
+		WebElement first = driver.findElement(By.name("first"));
+		first.sendKeys("ie", Keys.ENTER);
+		assertThat(first.getAttribute("value"), is("Annie"));
+		first.clear();
+		assertThat(first.getAttribute("value"), is(""));
+
+		WebElement notes = driver.findElement(By.name("notes"));
+		notes.clear();
+		notes.sendKeys("Some");
+		assertThat(notes.getAttribute("value"), is("Some"));
+		assertThat(notes.getText(), is("Some"));
+	}
+
+	@Test
+	public void shouldSelectByClicking() {
+		WebElement subscribe = driver.findElement(By.name("subscribe"));
+		subscribe.click();
+		assertThat(subscribe.isSelected(), is(true));
+		subscribe.click();
+		assertThat(subscribe.isSelected(), is(false));
+
+		List<WebElement> plans = driver.findElements(By.name("plan"));
+		plans.get(1).click();
+		assertThat(plans.get(0).isSelected(), is(false));
+		assertThat(plans.get(1).isSelected(), is(true));
+
+		driver.findElements(By.tagName("option")).get(1).click();
+		assertThat(driver.findElement(By.name("size")).getAttribute("value"), is("l"));
+	}
+
+	@Test
+	public void shouldNotChangeDisabledElementsWhenClicked() {
+		WebElement locked = driver.findElement(By.name("locked"));
+		locked.click();
+		assertThat(locked.isSelected(), is(false));
+	}
+
+	@Test
+	public void shouldServeRegisteredPages() {
+		driver.page("http://localhost/other", "<title>Other</title><p>Hello</p>");
+		WebElement table = driver.findElement(By.id("people"));
+		driver.get("http://localhost/other");
+		assertThat(driver.getCurrentUrl(), is("http://localhost/other"));
+		assertThat(driver.getTitle(), is("Other"));
+		assertThat(driver.findElement(By.tagName("p")).getText(), is("Hello"));
+		try {
+			table.getText();
+			fail("Expected the element of the previous page to be stale");
+		} catch (StaleElementReferenceException e) {
+			assertThat(e.getMessage(), containsString("no longer on the page"));
+		}
+	}
+
+	@Test(expected = WebDriverException.class)
+	public void shouldFailToGetAnUnregisteredPage() {
+		driver.get("http://localhost/missing");
+	}
+
+	@Test(expected = StaleElementReferenceException.class)
+	public void shouldMakeRemovedElementsStale() {
+		WebElement row = driver.findElement(By.cssSelector("tr.odd"));
+		((InMemoryWebElement) row).node().remove();
+		driver.changed();
+		row.getText();
+	}
+
+	@Test
+	public void shouldRunRegisteredScriptsInPlaceOfJavascript() {
+		driver.script("return arguments[0].tagName;", new Script() {
+			public Object execute(InMemoryWebDriver driver, List<Object> arguments) {
+				return ((InMemoryWebElement) arguments.get(0)).node().tagName();
+			}
+		});
+		assertThat(driver.executeScript("return arguments[0].tagName;", driver.findElement(By.id("people"))), is((Object) "table"));
+	}
+
+	@Test
+	public void shouldFailToRunUnregisteredScripts() {
+		try {
+			driver.executeScript("return document.title;");
+			fail("Expected an unregistered script to fail");
+		} catch (WebDriverException e) {
+			assertThat(e.getMessage(), containsString("no Script is registered for 'return document.title;'"));
+		}
+	}
+
+	@Test
+	public void shouldCountCommandsAndDelayEachByTheLatency() {
+		driver.latency(2, TimeUnit.MILLISECONDS);
+		long commands = driver.commands();
+		long start = System.nanoTime();
+		WebElement table = driver.findElement(By.id("people"));
+		table.getTagName();
+		table.getText();
+		assertThat(driver.commands() - commands, is(3L));
+		assertThat(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(6), is(true));
+	}
+
+	@Test
+	public void shouldWaitForThePageToChange() throws InterruptedException {
+		assertThat(driver.awaitChange(1), is(false));
+		Thread change = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					return;
+				}
+				driver.findElement(By.name("subscribe")).click();
+			}
+		};
+		change.start();
+		assertThat(driver.awaitChange(5000), is(true));
+		change.join();
+	}
+}